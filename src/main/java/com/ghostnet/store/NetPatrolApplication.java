@@ -3,13 +3,15 @@ package com.ghostnet.store;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Hauptklasse der Spring Boot Anwendung für Geisternetz-Verwaltung
- * Aktiviert JPA Repositories für Datenbankzugriffe
+ * Aktiviert JPA Repositories für Datenbankzugriffe und geplante Hintergrundaufgaben
  */
 @SpringBootApplication
 @EnableJpaRepositories(basePackages = "com.ghostnet.store.repository")
+@EnableScheduling
 public class NetPatrolApplication {
 
 	/**
@@ -0,0 +1,61 @@
+package com.ghostnet.store.controller;
+
+import com.ghostnet.store.service.AnalyticsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Controller für organisationsweite Auswertungen
+ * Liefert Statusverteilung, Meldungen pro Tag oder Woche und mittlere Bergungsdauer
+ */
+@SuppressWarnings("null")
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsController.class);
+
+    /** Längster auswertbarer Zeitraum in Tagen */
+    private static final long MAX_RANGE_DAYS = 3660;
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    /**
+     * Liefert die Auswertung eines Zeitraums
+     * @param from Erster Tag (optional, Standard: 29 Tage vor to)
+     * @param to Letzter Tag (optional, Standard: heute)
+     * @param bucket Zeitraster "day" oder "week" (optional, Standard: day)
+     * @return Statusverteilung am Ende des Zeitraums, Werte je Zeitabschnitt und mittlere Bergungsdauer
+     */
+    @GetMapping
+    public ResponseEntity<AnalyticsService.Report> getReport(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "day") String bucket) {
+        try {
+            LocalDate end = to != null ? to : LocalDate.now();
+            LocalDate start = from != null ? from : end.minusDays(29);
+            if (start.isAfter(end) || ChronoUnit.DAYS.between(start, end) > MAX_RANGE_DAYS) {
+                return ResponseEntity.badRequest().build();
+            }
+            AnalyticsService.Granularity granularity = AnalyticsService.Granularity.valueOf(bucket.trim().toUpperCase());
+            return ResponseEntity.ok(analyticsService.report(start, end, granularity));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build(); // Unbekanntes Zeitraster
+        } catch (Exception e) {
+            logger.error("Error building analytics report", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
@@ -1,21 +1,69 @@
 package com.ghostnet.store.controller;
 
 import com.ghostnet.store.domain.GhostNet;
-import com.ghostnet.store.domain.User;
+import com.ghostnet.store.domain.GhostNetStatus;
+import com.ghostnet.store.domain.GhostNetTombstone;
+import com.ghostnet.store.domain.UserStats;
 import com.ghostnet.store.repository.GhostNetRepository;
-import com.ghostnet.store.repository.UserRepository;
+import com.ghostnet.store.repository.GhostNetTombstoneRepository;
+import com.ghostnet.store.security.AuthenticatedUser;
+import com.ghostnet.store.security.CurrentUser;
+import com.ghostnet.store.service.BatchAssignmentService;
+import com.ghostnet.store.service.ChangeVersion;
+import com.ghostnet.store.service.DuplicateDetector;
+import com.ghostnet.store.service.GhostNetChangedEvent;
+import com.ghostnet.store.service.GhostNetClusterIndex;
+import com.ghostnet.store.service.GhostNetCursor;
+import com.ghostnet.store.service.GhostNetEventFeed;
+import com.ghostnet.store.service.GhostNetExportService;
+import com.ghostnet.store.service.GhostNetIngestService;
+import com.ghostnet.store.service.GhostNetReadModel;
+import com.ghostnet.store.service.GhostNetSnapshot;
+import com.ghostnet.store.service.GhostNetTransitionService;
+import com.ghostnet.store.service.NearestNetIndex;
+import com.ghostnet.store.service.RouteOptimizer;
+import com.ghostnet.store.service.UserStatsService;
+import com.ghostnet.store.service.WriteBehindIngestQueue;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Controller für Geisternetz-API
@@ -28,73 +76,447 @@ import java.util.Map;
 public class GhostNetController {
     
     private static final Logger logger = LoggerFactory.getLogger(GhostNetController.class);
+    
+    /** Antworten dürfen im Browser gespeichert werden, müssen aber vor jeder Verwendung per ETag geprüft werden */
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+    
+    /** Header mit der ID der ursprünglichen Meldung, wenn eine Meldung als Duplikat zusammengeführt wurde */
+    private static final String DUPLICATE_OF = "X-Duplicate-Of";
 
     @Autowired
     private GhostNetRepository ghostNetRepository;
     
     @Autowired
-    private UserRepository userRepository;
+    private GhostNetTombstoneRepository tombstoneRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private GhostNetClusterIndex clusterIndex;
+    
+    @Autowired
+    private GhostNetReadModel readModel;
+    
+    @Autowired
+    private ChangeVersion changeVersion;
+    
+    @Autowired
+    private GhostNetEventFeed eventFeed;
+    
+    @Autowired
+    private UserStatsService userStatsService;
+    
+    @Autowired
+    private GhostNetIngestService ingestService;
+    
+    @Autowired
+    private WriteBehindIngestQueue ingestQueue;
+    
+    @Autowired
+    private GhostNetExportService exportService;
+    
+    @Autowired
+    private DuplicateDetector duplicateDetector;
+    
+    @Autowired
+    private NearestNetIndex nearestNetIndex;
+    
+    @Autowired
+    private RouteOptimizer routeOptimizer;
+    
+    @Autowired
+    private BatchAssignmentService batchAssignmentService;
+    
+    @Autowired
+    private GhostNetTransitionService transitionService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Value("${netpatrol.ghostnets.page.default-size:50}")
+    private int defaultPageSize;
+    
+    @Value("${netpatrol.ghostnets.page.max-size:500}")
+    private int maxPageSize;
+    
+    @Value("${netpatrol.ghostnets.batch.max-size:1000}")
+    private int maxBatchSize;
+    
+    @Value("${netpatrol.nearest.max-k:100}")
+    private int maxNearest;
 
     /**
-     * Liefert alle Geisternetze
-     * Sortiert nach Erstellungsdatum, mit Fallback auf Meldungsdatum
-     * @return Liste aller Geisternetze
+     * Liefert alle Geisternetze, neueste zuerst
+     * Wird aus dem Lesemodell beantwortet; solange dieses nicht bereit ist, wird die Liste direkt aus
+     * der Datenbank gestreamt und jede Zeile nach dem Schreiben aus dem Persistence Context entfernt,
+     * damit der Speicherbedarf unabhängig von der Tabellengröße bleibt
+     * @param ifNoneMatch ETag einer zwischengespeicherten Antwort (optional)
+     * @return Gestreamte Liste aller Geisternetze oder 304 wenn sich seitdem nichts geändert hat
+     */
+    @GetMapping(params = {"!cursor", "!limit"})
+    public ResponseEntity<StreamingResponseBody> getAllGhostNets(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = changeVersion.etag();
+        if (ChangeVersion.matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        
+        if (readModel.isReady()) {
+            List<GhostNetSnapshot> ghostNets = readModel.findAll();
+            StreamingResponseBody body = out -> {
+                try (SequenceWriter json = arrayWriter(out)) {
+                    json.writeAll(ghostNets);
+                }
+            };
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .eTag(etag)
+                    .cacheControl(REVALIDATE)
+                    .body(body);
+        }
+        
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        
+        StreamingResponseBody body = out -> readOnly.executeWithoutResult(status -> {
+            try (Stream<GhostNet> ghostNets = ghostNetRepository.streamAllNewestFirst();
+                 SequenceWriter json = arrayWriter(out)) {
+                Iterator<GhostNet> rows = ghostNets.iterator();
+                while (rows.hasNext()) {
+                    GhostNet ghostNet = rows.next();
+                    json.write(ghostNet);
+                    entityManager.detach(ghostNet);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .cacheControl(REVALIDATE)
+                .body(body);
+    }
+    
+    /**
+     * Exportiert Geisternetze als CSV oder GeoJSON zum Download
+     * Die Daten werden abschnittsweise gestreamt; unterstützt der Client gzip, wird komprimiert übertragen
+     * @param format csv oder geojson
+     * @param status Optionaler Status-Filter
+     * @param from Erstellt ab diesem Tag (optional)
+     * @param to Erstellt bis einschließlich diesem Tag (optional)
+     * @param acceptEncoding Vom Client unterstützte Kodierungen (optional)
+     * @return Gestreamte Exportdatei oder 400 bei unbekanntem Format oder ungültigem Zeitraum
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportGhostNets(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        GhostNetExportService.Format exportFormat;
+        try {
+            exportFormat = GhostNetExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build(); // Unbekanntes Format
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        GhostNetStatus statusFilter = GhostNetStatus.parse(status);
+        if (statusFilter == null && status != null && !status.isBlank()) {
+            return ResponseEntity.badRequest().build(); // Unbekannter Status
+        }
+        
+        GhostNetExportService.Filter filter = new GhostNetExportService.Filter(
+            statusFilter,
+            from != null ? from.atStartOfDay() : null,
+            to != null ? to.plusDays(1).atStartOfDay() : null);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024, true);
+                exportService.export(exportFormat, filter, compressed);
+                compressed.finish();
+            } else {
+                exportService.export(exportFormat, filter, out);
+            }
+        };
+        
+        String filename = "ghostnets-" + LocalDate.now() + "." + exportFormat.extension();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.mediaType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .cacheControl(CacheControl.noStore());
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+    
+    /**
+     * Erzeugt einen Writer, der Elemente einzeln in ein JSON-Array schreibt
+     * Der Ausgabestrom wird weder nach jedem Element geflusht noch beim Schließen geschlossen
+     * @param out Ausgabestrom der Antwort
+     * @return Writer für das JSON-Array
+     */
+    private SequenceWriter arrayWriter(OutputStream out) throws IOException {
+        return objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .writeValuesAsArray(out);
+    }
+    
+    /**
+     * Liefert eine Seite von Geisternetzen, neueste zuerst
+     * Keyset-Pagination über (createdAt, id), die Position wird als opaker Cursor übergeben
+     * @param cursor Cursor aus der vorherigen Seite (optional, ohne Cursor wird die erste Seite geliefert)
+     * @param limit Gewünschte Seitengröße, begrenzt auf die maximale Seitengröße (optional)
+     * @param ifNoneMatch ETag einer zwischengespeicherten Antwort (optional)
+     * @return Map mit items, nextCursor (null auf der letzten Seite) und limit oder 304 ohne Änderungen
      */
     @GetMapping
-    public ResponseEntity<List<GhostNet>> getAllGhostNets() {
+    public ResponseEntity<Map<String, Object>> getGhostNetPage(@RequestParam(required = false) String cursor,
+                                                               @RequestParam(required = false) Integer limit,
+                                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            List<GhostNet> ghostNets;
-            try {
-                ghostNets = ghostNetRepository.findAllByOrderByCreatedAtDesc();
-            } catch (Exception e) {
-                // Fallback auf Meldungsdatum-Sortierung falls Erstellungsdatum fehlschlägt
-                try {
-                    ghostNets = ghostNetRepository.findAllByOrderByReportedAtDesc();
-                } catch (Exception e2) {
-                    // Finaler Fallback auf findAll falls beide Sortierungen fehlschlagen
-                    logger.warn("Ordering failed, using findAll: {}", e2.getMessage());
-                    ghostNets = ghostNetRepository.findAll();
-                }
+            String etag = changeVersion.etag();
+            if (ChangeVersion.matches(ifNoneMatch, etag)) {
+                return notModified(etag);
+            }
+            
+
+            int pageSize = limit != null ? limit : defaultPageSize;
+            if (pageSize < 1) {
+                return ResponseEntity.badRequest().build();
+            }
+            pageSize = Math.min(pageSize, maxPageSize);
+            
+            // Einen Eintrag mehr laden, um zu erkennen ob eine weitere Seite existiert
+            GhostNetCursor position = cursor != null ? GhostNetCursor.decode(cursor) : null;
+            List<GhostNetSnapshot> ghostNets;
+            if (readModel.isReady()) {
+                ghostNets = readModel.findPage(position, pageSize + 1);
+            } else if (position == null) {
+                ghostNets = toSnapshots(ghostNetRepository.findAllByOrderByCreatedAtDescIdDesc(Limit.of(pageSize + 1)));
+            } else {
+                ghostNets = toSnapshots(ghostNetRepository.findPageAfter(position.createdAt(), position.id(), Limit.of(pageSize + 1)));
+            }
+            
+            String nextCursor = null;
+            if (ghostNets.size() > pageSize) {
+                ghostNets = ghostNets.subList(0, pageSize);
+                GhostNetSnapshot last = ghostNets.get(pageSize - 1);
+                nextCursor = GhostNetCursor.of(last.createdAt(), last.id()).encode();
             }
-            return ResponseEntity.ok(ghostNets);
+            
+            Map<String, Object> page = new HashMap<>();
+            page.put("items", ghostNets);
+            page.put("nextCursor", nextCursor);
+            page.put("limit", pageSize);
+            return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build(); // Ungültiger Cursor
         } catch (Exception e) {
             logger.error("Error fetching ghost nets", e);
             return ResponseEntity.internalServerError().build();
         }
     }
     
+    /**
+     * Liefert die nächstgelegenen Geisternetze zu einer Position, z.B. zum aktuellen Standort eines Bergenden
+     * Wird aus einem KD-Baum im Speicher beantwortet, Entfernungen sind Großkreisentfernungen in Metern
+     * @param lat Breitengrad der Position
+     * @param lon Längengrad der Position
+     * @param k Anzahl der gewünschten Netze, begrenzt auf das konfigurierte Maximum
+     * @param status Status der Netze (GEMELDET, BERGUNG_BEVORSTEHEND oder VERSCHOLLEN)
+     * @return Netze mit Entfernung, nächstes zuerst, oder 400 bei ungültigen Parametern
+     */
+    @GetMapping("/nearest")
+    public ResponseEntity<List<NearestNetIndex.Nearby>> getNearestGhostNets(@RequestParam double lat,
+                                                                            @RequestParam double lon,
+                                                                            @RequestParam(defaultValue = "10") int k,
+                                                                            @RequestParam(defaultValue = "GEMELDET") String status) {
+        GhostNetStatus nearStatus = GhostNetStatus.parse(status);
+        if (lat < -90 || lat > 90 || lon < -180 || lon > 180 || k < 1
+                || !NearestNetIndex.STATUSES.contains(nearStatus)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(nearestNetIndex.nearest(lat, lon, Math.min(k, maxNearest), nearStatus));
+        } catch (Exception e) {
+            logger.error("Error fetching nearest ghost nets", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    /**
+     * Liefert alle Geisternetze innerhalb eines Kartenausschnitts
+     * Wird über Bereichsabfragen auf dem Hilbert-Schlüssel beantwortet statt die ganze Tabelle zu laden
+     * @param minLat Südliche Grenze
+     * @param minLon Westliche Grenze
+     * @param maxLat Nördliche Grenze
+     * @param maxLon Östliche Grenze (kleiner als minLon, wenn der Ausschnitt die Datumsgrenze überquert)
+     * @param status Optionaler Status-Filter
+     * @param ifNoneMatch ETag einer zwischengespeicherten Antwort (optional)
+     * @return Liste der Geisternetze im Ausschnitt, 304 wenn sich seitdem nichts geändert hat, 400 bei unbekanntem Status
+     */
+    @GetMapping("/in-bounds")
+    public ResponseEntity<List<GhostNet>> getGhostNetsInBounds(@RequestParam double minLat,
+                                                               @RequestParam double minLon,
+                                                               @RequestParam double maxLat,
+                                                               @RequestParam double maxLon,
+                                                               @RequestParam(required = false) String status,
+                                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (minLat < -90 || maxLat > 90 || minLat > maxLat ||
+            minLon < -180 || minLon > 180 || maxLon < -180 || maxLon > 180) {
+            return ResponseEntity.badRequest().build();
+        }
+        GhostNetStatus statusFilter = GhostNetStatus.parse(status);
+        if (statusFilter == null && status != null && !status.isBlank()) {
+            return ResponseEntity.badRequest().build(); // Unbekannter Status
+        }
+        String etag = changeVersion.etag();
+        if (ChangeVersion.matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        try {
+            // Ohne Filter alle Status übergeben, damit der Index (status, spatial_key) nutzbar bleibt
+            Set<GhostNetStatus> statuses = statusFilter == null
+                ? EnumSet.allOf(GhostNetStatus.class)
+                : EnumSet.of(statusFilter);
+            List<GhostNet> ghostNets = ghostNetRepository.findInBounds(minLat, minLon, maxLat, maxLon, statuses);
+            return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(ghostNets);
+        } catch (Exception e) {
+            logger.error("Error fetching ghost nets in bounds", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    /**
+     * Liefert aggregierte Cluster für eine Zoomstufe der Karte
+     * Wird aus der vorberechneten Cluster-Pyramide beantwortet, ohne die Datenbank abzufragen
+     * @param zoom Zoomstufe der Karte
+     * @param bbox Kartenausschnitt als "westLon,südLat,ostLon,nordLat"
+     * @return Liste der Cluster mit Schwerpunkt, Anzahl und Statusverteilung
+     */
+    @GetMapping("/clusters")
+    public ResponseEntity<List<GhostNetClusterIndex.Cluster>> getClusters(@RequestParam int zoom,
+                                                                          @RequestParam String bbox) {
+        String[] parts = bbox.split(",");
+        if (parts.length != 4 || zoom < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            double minLon = Double.parseDouble(parts[0].trim());
+            double minLat = Double.parseDouble(parts[1].trim());
+            double maxLon = Double.parseDouble(parts[2].trim());
+            double maxLat = Double.parseDouble(parts[3].trim());
+            if (minLat < -90 || maxLat > 90 || minLat > maxLat ||
+                minLon < -180 || minLon > 180 || maxLon < -180 || maxLon > 180) {
+                return ResponseEntity.badRequest().build();
+            }
+            return ResponseEntity.ok(clusterIndex.clusters(zoom, minLat, minLon, maxLat, maxLon));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    /**
+     * Öffnet einen Server-Sent-Events-Strom mit Änderungen an Geisternetzen
+     * Jedes Ereignis trägt die Art der Änderung als Event-Namen und eine ID, mit der sich der
+     * Strom nach einem Verbindungsabbruch über den Last-Event-ID Header fortsetzen lässt. Alle Änderungen
+     * enthalten Melderdaten fremder Netze und stehen deshalb nur Usern mit der Berechtigung DISPATCH offen
+     * @param lastEventId Zuletzt empfangene Ereignis-ID (optional)
+     * @param scope "mine" nur für Netze, die der User gemeldet hat oder birgt, "all" für alle Änderungen;
+     *              ohne Angabe "all" mit DISPATCH, sonst "mine"
+     * @param user Angemeldeter User
+     * @return SSE-Strom der Änderungen, 403 bei "all" ohne Berechtigung
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> getEvents(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                                @RequestParam(required = false) String scope,
+                                                @CurrentUser AuthenticatedUser user) {
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+        boolean dispatcher = user.hasAuthority(AuthenticatedUser.DISPATCH);
+        if (scope == null) {
+            scope = dispatcher ? "all" : "mine";
+        }
+        Long userId;
+        if ("mine".equalsIgnoreCase(scope)) {
+            userId = user.getId();
+        } else if ("all".equalsIgnoreCase(scope)) {
+            if (!dispatcher) {
+                return ResponseEntity.status(403).build();
+            }
+            userId = null;
+        } else {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(eventFeed.subscribe(lastEventId, userId));
+    }
+    
     /**
      * Erstellt ein neues Geisternetz
-     * Setzt Status auf GEMELDET und speichert Melder-Informationen
+     * Setzt Status auf GEMELDET und speichert Melder-Informationen. Liegt eine kürzlich eingegangene
+     * offene Meldung in der Nähe, wird die neue Meldung als Duplikat markiert oder je nach Einstellung
+     * gar nicht gespeichert
      * @param ghostNet Geisternetz-Daten
-     * @return Gespeichertes Geisternetz
+     * @param user Angemeldeter User
+     * @return Gespeichertes Geisternetz; bei einem Duplikat im Modus MERGE nur die ID der ursprünglichen Meldung
+     *         (Header X-Duplicate-Of), da der Endpunkt öffentlich ist und fremde Meldungen keine Melderdaten preisgeben dürfen
      */
     @PostMapping
-    public ResponseEntity<GhostNet> createGhostNet(@RequestBody GhostNet ghostNet) {
+    public ResponseEntity<?> createGhostNet(@RequestBody GhostNet ghostNet, @CurrentUser AuthenticatedUser user) {
         try {
             // Status auf GEMELDET setzen
-            ghostNet.setStatus("GEMELDET");
+            ghostNet.setStatus(GhostNetStatus.GEMELDET);
             
             // Zeitstempel setzen
             LocalDateTime now = LocalDateTime.now();
             ghostNet.setCreatedAt(now);
             ghostNet.setReportedAt(now);
             
-            // Aktuellen User abrufen und Melder-Informationen setzen
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            if (authentication != null && authentication.isAuthenticated() && 
-                !authentication.getName().equals("anonymousUser")) {
-                String username = authentication.getName();
-                var userOpt = userRepository.findByUsername(username);
-                if (userOpt.isPresent()) {
-                    User user = userOpt.get();
-                    ghostNet.setReporterName(user.getName() != null ? user.getName() : "");
-                    ghostNet.setReportedBy(username);
-                    ghostNet.setReporterId(user.getId());
+            // Vermutliche Duplikate kürzlich eingegangener Meldungen erkennen
+            ghostNet.setDuplicateOfId(null);
+            Optional<GhostNetSnapshot> original = duplicateDetector.findDuplicate(ghostNet.getLatitude(), ghostNet.getLongitude());
+            if (original.isPresent()) {
+                if (duplicateDetector.mode() == DuplicateDetector.Mode.MERGE) {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("id", original.get().id());
+                    response.put("status", "DUPLICATE");
+                    return ResponseEntity.ok()
+                            .header(DUPLICATE_OF, original.get().id().toString())
+                            .body(response);
                 }
+                ghostNet.setDuplicateOfId(original.get().id());
+            }
+            
+            // Aktuellen User abrufen und Melder-Informationen setzen
+            if (user != null) {
+                ghostNet.setReporterName(user.getName() != null ? user.getName() : "");
+                ghostNet.setReportedBy(user.getUsername());
+                ghostNet.setReporterId(user.getId());
+            } else if (ingestQueue.isEnabled()) {
+                return enqueue(ghostNet);
             }
             
-            GhostNet saved = ghostNetRepository.save(ghostNet);
+            GhostNet saved = save(ghostNet, GhostNetChangedEvent.Type.CREATED, null);
             return ResponseEntity.ok(saved);
         } catch (Exception e) {
             logger.error("Error creating ghost net", e);
@@ -102,28 +524,112 @@ public class GhostNetController {
         }
     }
     
+    /**
+     * Reiht eine anonyme Meldung in die Schreibwarteschlange ein
+     * @param ghostNet Geisternetz mit Status und Zeitstempeln
+     * @return 202 mit Tracking-ID, 400 bei ungültiger Meldung oder 503 wenn die Warteschlange voll ist
+     */
+    private ResponseEntity<Map<String, Object>> enqueue(GhostNet ghostNet) {
+        Map<String, Object> response = new HashMap<>();
+        String error = GhostNetIngestService.validate(ghostNet);
+        if (error != null) {
+            response.put("error", error);
+            return ResponseEntity.badRequest().body(response);
+        }
+        try {
+            String trackingId = ingestQueue.submit(ghostNet);
+            response.put("trackingId", trackingId);
+            response.put("status", WriteBehindIngestQueue.Status.QUEUED);
+            return ResponseEntity.accepted().body(response);
+        } catch (WriteBehindIngestQueue.QueueFullException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(response);
+        }
+    }
+    
+    /**
+     * Liefert den Verarbeitungsstatus einer anonymen Meldung aus der Schreibwarteschlange
+     * @param trackingId Tracking-ID aus der Antwort auf die Meldung
+     * @return Status QUEUED, COMMITTED (mit ghostNetId), FAILED (mit error) oder 404 wenn unbekannt
+     */
+    @GetMapping("/ingest/{trackingId}")
+    public ResponseEntity<WriteBehindIngestQueue.Receipt> getIngestStatus(@PathVariable String trackingId) {
+        try {
+            WriteBehindIngestQueue.Receipt receipt = ingestQueue.find(trackingId);
+            if (receipt.status() == WriteBehindIngestQueue.Status.UNKNOWN) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(receipt);
+        } catch (Exception e) {
+            logger.error("Error fetching ingest status", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    /**
+     * Erstellt viele Geisternetze auf einmal
+     * Jede Meldung wird einzeln geprüft; gültige Meldungen werden gemeinsam in einer Transaktion
+     * gespeichert, ungültige mit Begründung abgelehnt
+     * @param reports Liste der Geisternetz-Daten
+     * @param user Angemeldeter User
+     * @return Map mit created, duplicates, rejected und results (Ergebnis je Meldung in Eingabereihenfolge)
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<Map<String, Object>> createGhostNets(@RequestBody List<GhostNet> reports,
+                                                               @CurrentUser AuthenticatedUser user) {
+        if (reports == null || reports.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (reports.size() > maxBatchSize) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        try {
+            if (user == null) {
+                return ResponseEntity.status(401).build();
+            }
+            List<GhostNetIngestService.ItemResult> results = ingestService.ingest(reports, user);
+            long created = results.stream().filter(result -> "CREATED".equals(result.status())).count();
+            long duplicates = results.stream().filter(result -> "DUPLICATE".equals(result.status())).count();
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("created", created);
+            response.put("duplicates", duplicates);
+            response.put("rejected", results.size() - created - duplicates);
+            response.put("results", results);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error creating ghost net batch", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
     /**
      * Liefert alle Geisternetze, die vom aktuellen User gemeldet wurden
-     * @return Liste der gemeldeten Geisternetze
+     * @param ifNoneMatch ETag einer zwischengespeicherten Antwort (optional)
+     * @param user Angemeldeter User
+     * @return Liste der gemeldeten Geisternetze oder 304 wenn sich seitdem nichts geändert hat
      */
     @GetMapping("/my-reports")
-    public ResponseEntity<List<GhostNet>> getMyReports() {
+    public ResponseEntity<List<GhostNetSnapshot>> getMyReports(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @CurrentUser AuthenticatedUser user) {
         try {
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            if (authentication == null || !authentication.isAuthenticated() || 
-                authentication.getName().equals("anonymousUser")) {
+            if (user == null) {
                 return ResponseEntity.status(401).build();
             }
             
-            String username = authentication.getName();
-            var userOpt = userRepository.findByUsername(username);
-            if (userOpt.isEmpty()) {
-                return ResponseEntity.status(404).build();
+            String username = user.getUsername();
+            String etag = changeVersion.etag(username);
+            if (ChangeVersion.matches(ifNoneMatch, etag)) {
+                return notModified(etag);
             }
             
-            User user = userOpt.get();
-            List<GhostNet> ghostNets = ghostNetRepository.findByReporterIdOrderByCreatedAtDesc(user.getId());
-            return ResponseEntity.ok(ghostNets);
+            List<GhostNetSnapshot> ghostNets = readModel.isReady()
+                ? readModel.findByReporterId(user.getId())
+                : toSnapshots(ghostNetRepository.findByReporterIdOrderByCreatedAtDesc(user.getId()));
+            return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(ghostNets);
         } catch (Exception e) {
             logger.error("Error fetching my reports", e);
             return ResponseEntity.internalServerError().build();
@@ -132,77 +638,133 @@ public class GhostNetController {
     
     /**
      * Liefert alle Geisternetze, die dem aktuellen User zur Bergung zugewiesen sind
-     * @return Liste der zugewiesenen Geisternetze
+     * @param ifNoneMatch ETag einer zwischengespeicherten Antwort (optional)
+     * @param user Angemeldeter User
+     * @return Liste der zugewiesenen Geisternetze oder 304 wenn sich seitdem nichts geändert hat
      */
     @GetMapping("/my-assignments")
-    public ResponseEntity<List<GhostNet>> getMyAssignments() {
+    public ResponseEntity<List<GhostNetSnapshot>> getMyAssignments(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @CurrentUser AuthenticatedUser user) {
         try {
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            if (authentication == null || !authentication.isAuthenticated() || 
-                authentication.getName().equals("anonymousUser")) {
+            if (user == null) {
                 return ResponseEntity.status(401).build();
             }
             
-            String username = authentication.getName();
-            var userOpt = userRepository.findByUsername(username);
-            if (userOpt.isEmpty()) {
-                return ResponseEntity.status(404).build();
+            String username = user.getUsername();
+            String etag = changeVersion.etag(username);
+            if (ChangeVersion.matches(ifNoneMatch, etag)) {
+                return notModified(etag);
             }
             
-            User user = userOpt.get();
-            List<GhostNet> ghostNets = ghostNetRepository.findBySalvorUserIdOrderByCreatedAtDesc(user.getId());
-            return ResponseEntity.ok(ghostNets);
+            List<GhostNetSnapshot> ghostNets = readModel.isReady()
+                ? readModel.findBySalvorUserId(user.getId())
+                : toSnapshots(ghostNetRepository.findBySalvorUserIdOrderByCreatedAtDesc(user.getId()));
+            return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(ghostNets);
         } catch (Exception e) {
             logger.error("Error fetching my assignments", e);
             return ResponseEntity.internalServerError().build();
         }
     }
-    
+
+    /**
+     * Plant eine möglichst kurze Fahrt zu allen Netzen, deren Bergung der aktuelle User übernommen hat
+     * Die Route beginnt an der Startposition und endet am letzten Netz; verglichen wird mit der
+     * Reihenfolge aus /my-assignments. Netze ohne Koordinaten werden unter "unrouted" geliefert
+     * @param startLat Breitengrad der Startposition, z.B. des Hafens
+     * @param startLon Längengrad der Startposition
+     * @param user Angemeldeter User
+     * @return Route mit Gesamtstrecke und Ersparnis in Metern, 400 bei ungültiger Position
+     */
+    @GetMapping("/my-assignments/route")
+    public ResponseEntity<Map<String, Object>> getMyAssignmentsRoute(@RequestParam double startLat,
+                                                                     @RequestParam double startLon,
+                                                                     @CurrentUser AuthenticatedUser user) {
+        if (startLat < -90 || startLat > 90 || startLon < -180 || startLon > 180) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid start position"));
+        }
+        try {
+            if (user == null) {
+                return ResponseEntity.status(401).build();
+            }
+
+            Long userId = user.getId();
+            List<GhostNetSnapshot> assignments = (readModel.isReady()
+                    ? readModel.findBySalvorUserId(userId)
+                    : toSnapshots(ghostNetRepository.findBySalvorUserIdOrderByCreatedAtDesc(userId))).stream()
+                .filter(ghostNet -> ghostNet.status() == GhostNetStatus.BERGUNG_BEVORSTEHEND)
+                .toList();
+            List<GhostNetSnapshot> routable = assignments.stream().filter(GhostNetSnapshot::hasPosition).toList();
+
+            RouteOptimizer.Route route = routeOptimizer.plan(startLat, startLon, routable);
+            Map<String, Object> response = new HashMap<>();
+            response.put("route", route.stops());
+            response.put("unrouted", assignments.stream().filter(ghostNet -> !ghostNet.hasPosition()).toList());
+            response.put("distanceMeters", Math.round(route.distanceMeters()));
+            response.put("naiveDistanceMeters", Math.round(route.naiveDistanceMeters()));
+            response.put("savedMeters", Math.round(route.naiveDistanceMeters() - route.distanceMeters()));
+            response.put("restarts", route.restarts());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error planning salvage route", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Verteilt alle gemeldeten Geisternetze auf einmal an die angegebenen Bergenden
+     * Minimiert die Summe der Entfernungen zwischen Standort der Bergenden und Netz unter Einhaltung
+     * ihrer Kapazitäten; alle Zuweisungen werden gemeinsam gespeichert. Nur für User mit der Berechtigung
+     * DISPATCH (netpatrol.dispatchers), da hier Netze fremden Usern zugewiesen werden
+     * @param request Bergende mit userId, latitude, longitude und capacity, optional maxDistanceMeters
+     * @param user Angemeldeter User
+     * @return Map mit assigned, assignments, unassigned, skipped und totalDistanceMeters, 400 bei ungültiger Anfrage
+     *         oder 403 ohne Berechtigung
+     */
+    @PostMapping("/assign-batch")
+    public ResponseEntity<Map<String, Object>> assignGhostNets(@RequestBody BatchAssignmentService.Request request,
+                                                               @CurrentUser AuthenticatedUser user) {
+        try {
+            if (user == null) {
+                return ResponseEntity.status(401).build();
+            }
+            if (!user.hasAuthority(AuthenticatedUser.DISPATCH)) {
+                return ResponseEntity.status(403).build();
+            }
+
+            BatchAssignmentService.Result result = batchAssignmentService.assignAll(request);
+            Map<String, Object> response = new HashMap<>();
+            response.put("assigned", result.assignments().size());
+            response.put("assignments", result.assignments());
+            response.put("unassigned", result.unassigned());
+            response.put("skipped", result.skipped());
+            response.put("totalDistanceMeters", result.totalDistanceMeters());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error assigning ghost nets in batch", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     /**
      * Weist ein Geisternetz dem aktuellen User zur Bergung zu
-     * Ändert Status auf BERGUNG_BEVORSTEHEND
+     * Ändert Status auf BERGUNG_BEVORSTEHEND mit einem bedingten UPDATE
      * @param id ID des Geisternetzes
-     * @return Aktualisiertes Geisternetz
+     * @param user Angemeldeter User
+     * @return Aktualisiertes Geisternetz, 400 wenn es nicht GEMELDET ist, 409 wenn ein anderer Request schneller war
      */
     @PutMapping("/{id}/assign")
-    public ResponseEntity<GhostNet> assignGhostNet(@PathVariable Long id) {
+    public ResponseEntity<GhostNet> assignGhostNet(@PathVariable Long id, @CurrentUser AuthenticatedUser user) {
         try {
-            // Geisternetz abrufen
-            var ghostNetOpt = ghostNetRepository.findById(id);
-            if (ghostNetOpt.isEmpty()) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            GhostNet ghostNet = ghostNetOpt.get();
-            
-            // Prüfen ob Geisternetz im Status GEMELDET ist
-            String currentStatus = ghostNet.getStatus();
-            if (currentStatus == null || !"GEMELDET".equalsIgnoreCase(currentStatus)) {
-                return ResponseEntity.badRequest().build();
-            }
-            
-            // Aktuellen User abrufen
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            if (authentication == null || !authentication.isAuthenticated() || 
-                authentication.getName().equals("anonymousUser")) {
+            if (user == null) {
                 return ResponseEntity.status(401).build();
             }
             
-            String username = authentication.getName();
-            var userOpt = userRepository.findByUsername(username);
-            if (userOpt.isEmpty()) {
-                return ResponseEntity.status(404).build();
-            }
-            
-            User user = userOpt.get();
-            Long userId = user.getId();
-            
-            // Aktuellen User als Berger zuweisen
-            ghostNet.setSalvorUserId(userId);
-            ghostNet.setStatus("BERGUNG_BEVORSTEHEND");
-            
-            GhostNet saved = ghostNetRepository.save(ghostNet);
-            return ResponseEntity.ok(saved);
+            return transitionResponse(transitionService.assign(id, user));
         } catch (Exception e) {
             logger.error("Error assigning ghost net", e);
             return ResponseEntity.internalServerError().build();
@@ -212,15 +774,15 @@ public class GhostNetController {
     /**
      * Löscht ein Geisternetz
      * Nur der Melder kann löschen, und nur bei Status GEMELDET oder VERSCHOLLEN
+     * Hinterlegt in derselben Transaktion einen Löschmarker für die Delta-Synchronisation
      * @param id ID des Geisternetzes
+     * @param user Angemeldeter User
      * @return Erfolgreiche Antwort ohne Body
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteGhostNet(@PathVariable Long id) {
+    public ResponseEntity<Void> deleteGhostNet(@PathVariable Long id, @CurrentUser AuthenticatedUser user) {
         try {
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            if (authentication == null || !authentication.isAuthenticated() || 
-                authentication.getName().equals("anonymousUser")) {
+            if (user == null) {
                 return ResponseEntity.status(401).build();
             }
             
@@ -232,24 +794,27 @@ public class GhostNetController {
             GhostNet ghostNet = ghostNetOpt.get();
             
             // Nur erlauben wenn User der Melder ist und Status GEMELDET oder VERSCHOLLEN
-            String username = authentication.getName();
-            var userOpt = userRepository.findByUsername(username);
-            if (userOpt.isEmpty()) {
-                return ResponseEntity.status(404).build();
-            }
-            
-            User user = userOpt.get();
             if (ghostNet.getReporterId() == null || !ghostNet.getReporterId().equals(user.getId())) {
                 return ResponseEntity.status(403).build(); // Nicht autorisiert - nicht der Melder
             }
             
-            String currentStatus = ghostNet.getStatus();
-            if (currentStatus == null || (!"GEMELDET".equalsIgnoreCase(currentStatus) && !"VERSCHOLLEN".equalsIgnoreCase(currentStatus))) {
+            GhostNetStatus currentStatus = ghostNet.getStatus();
+            if (currentStatus != GhostNetStatus.GEMELDET && currentStatus != GhostNetStatus.VERSCHOLLEN) {
                 return ResponseEntity.badRequest().build(); // Nur GEMELDET oder VERSCHOLLEN können gelöscht werden
             }
             
-            ghostNetRepository.deleteById(id);
+            GhostNetTombstone tombstone = new GhostNetTombstone();
+            tombstone.setGhostNetId(id);
+            tombstone.setDeletedAt(LocalDateTime.now());
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                ghostNetRepository.delete(ghostNet);
+                tombstoneRepository.save(tombstone);
+                eventPublisher.publishEvent(new GhostNetChangedEvent(
+                    GhostNetChangedEvent.Type.DELETED, GhostNetSnapshot.of(ghostNet), null));
+            });
             return ResponseEntity.ok().build();
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return ResponseEntity.status(409).build(); // Zwischenzeitlich von einem anderen Request geändert
         } catch (Exception e) {
             logger.error("Error deleting ghost net", e);
             return ResponseEntity.internalServerError().build();
@@ -258,44 +823,20 @@ public class GhostNetController {
     
     /**
      * Markiert ein Geisternetz als geborgen
-     * Ändert Status auf GEBORGEN
+     * Ändert Status auf GEBORGEN mit einem bedingten UPDATE
      * Nur der zugewiesene Berger kann bergen
      * @param id ID des Geisternetzes
-     * @return Aktualisiertes Geisternetz
+     * @param user Angemeldeter User
+     * @return Aktualisiertes Geisternetz, 400 wenn es bereits geborgen ist, 409 wenn ein anderer Request schneller war
      */
     @PutMapping("/{id}/recover")
-    public ResponseEntity<GhostNet> recoverGhostNet(@PathVariable Long id) {
+    public ResponseEntity<GhostNet> recoverGhostNet(@PathVariable Long id, @CurrentUser AuthenticatedUser user) {
         try {
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            if (authentication == null || !authentication.isAuthenticated() || 
-                authentication.getName().equals("anonymousUser")) {
+            if (user == null) {
                 return ResponseEntity.status(401).build();
             }
             
-            var ghostNetOpt = ghostNetRepository.findById(id);
-            if (ghostNetOpt.isEmpty()) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            GhostNet ghostNet = ghostNetOpt.get();
-            
-            // Nur erlauben wenn User der zugewiesene Berger ist
-            String username = authentication.getName();
-            var userOpt = userRepository.findByUsername(username);
-            if (userOpt.isEmpty()) {
-                return ResponseEntity.status(404).build();
-            }
-            
-            User user = userOpt.get();
-            if (ghostNet.getSalvorUserId() == null || !ghostNet.getSalvorUserId().equals(user.getId())) {
-                return ResponseEntity.status(403).build(); // Nicht autorisiert - nicht der zugewiesene Berger
-            }
-            
-            // Status auf GEBORGEN setzen
-            ghostNet.setStatus("GEBORGEN");
-            
-            GhostNet saved = ghostNetRepository.save(ghostNet);
-            return ResponseEntity.ok(saved);
+            return transitionResponse(transitionService.recover(id, user));
         } catch (Exception e) {
             logger.error("Error recovering ghost net", e);
             return ResponseEntity.internalServerError().build();
@@ -304,110 +845,20 @@ public class GhostNetController {
     
     /**
      * Markiert ein Geisternetz als verschollen
-     * Ändert Status auf VERSCHOLLEN
+     * Ändert Status auf VERSCHOLLEN mit einem bedingten UPDATE
      * Setzt Kontaktinformationen gemäß Datenbank-Constraint
      * @param id ID des Geisternetzes
-     * @return Aktualisiertes Geisternetz oder Fehlermeldung
+     * @param user Angemeldeter User
+     * @return Aktualisiertes Geisternetz, 400 wenn es bereits geborgen ist, 409 wenn ein anderer Request schneller war
      */
     @PutMapping("/{id}/mark-missing")
-    public ResponseEntity<?> markAsMissing(@PathVariable Long id) {
+    public ResponseEntity<?> markAsMissing(@PathVariable Long id, @CurrentUser AuthenticatedUser user) {
         try {
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            if (authentication == null || !authentication.isAuthenticated() || 
-                authentication.getName().equals("anonymousUser")) {
+            if (user == null) {
                 return ResponseEntity.status(401).build();
             }
             
-            var ghostNetOpt = ghostNetRepository.findById(id);
-            if (ghostNetOpt.isEmpty()) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            GhostNet ghostNet = ghostNetOpt.get();
-            
-            // Prüfen ob bereits GEBORGEN - kann nicht als verschollen markiert werden wenn bereits geborgen
-            String currentStatus = ghostNet.getStatus();
-            if (currentStatus != null && "GEBORGEN".equalsIgnoreCase(currentStatus)) {
-                return ResponseEntity.badRequest().build(); // Geborgene Netze können nicht als verschollen markiert werden
-            }
-            
-            // Aktuellen User für Kontaktinformationen abrufen
-            String username = authentication.getName();
-            var userOpt = userRepository.findByUsername(username);
-            if (userOpt.isEmpty()) {
-                return ResponseEntity.status(404).build(); // User not found
-            }
-            User user = userOpt.get();
-            
-            // Kontaktinformationen sicherstellen (erforderlich durch Datenbank-Constraint chk_missing_contact)
-            // Der Constraint verlangt nicht-leere Kontaktinformationen wenn Status VERSCHOLLEN ist
-            // Wir müssen reporter_name, reported_by und reporter_id auf nicht-null, nicht-leere Werte setzen
-            
-            // reporter_name setzen - User-Name oder Username als Fallback verwenden
-            String reporterName = ghostNet.getReporterName();
-            if (reporterName == null || reporterName.trim().isEmpty()) {
-                reporterName = (user.getName() != null && !user.getName().trim().isEmpty()) 
-                    ? user.getName() 
-                    : username;
-                ghostNet.setReporterName(reporterName);
-            }
-            
-            // reported_by setzen - immer username verwenden (für authentifizierte User garantiert nicht-leer)
-            String reportedBy = ghostNet.getReportedBy();
-            if (reportedBy == null || reportedBy.trim().isEmpty()) {
-                reportedBy = username;
-                ghostNet.setReportedBy(reportedBy);
-            }
-            
-            // reporter_id setzen - muss nicht-null sein
-            Long reporterId = ghostNet.getReporterId();
-            if (reporterId == null) {
-                reporterId = user.getId();
-                if (reporterId == null) {
-                    return ResponseEntity.status(500).body(Map.of("error", "User ID is null"));
-                }
-                ghostNet.setReporterId(reporterId);
-            }
-            
-            // Finale Validierung - sicherstellen dass alle Felder nicht-null und nicht-leer sind
-            if (ghostNet.getReporterName() == null || ghostNet.getReporterName().trim().isEmpty() ||
-                ghostNet.getReportedBy() == null || ghostNet.getReportedBy().trim().isEmpty() ||
-                ghostNet.getReporterId() == null) {
-                return ResponseEntity.status(500).body(Map.of("error", 
-                    "Contact information validation failed: reporterName='" + ghostNet.getReporterName() + 
-                    "', reportedBy='" + ghostNet.getReportedBy() + 
-                    "', reporterId=" + ghostNet.getReporterId()));
-            }
-            
-            // Log-Eintrag für Debugging
-            logger.debug("Setting contact info - reporterName: '{}', reportedBy: '{}', reporterId: {}", 
-                        ghostNet.getReporterName(), ghostNet.getReportedBy(), ghostNet.getReporterId());
-            
-            // missing_reporter_name und missing_reporter_phone setzen (erforderlich durch chk_missing_contact Constraint)
-            // Diese Felder sind erforderlich wenn Status VERSCHOLLEN ist und dürfen NICHT NULL sein
-            String missingReporterName = (user.getName() != null && !user.getName().trim().isEmpty()) 
-                ? user.getName() 
-                : username;
-            ghostNet.setMissingReporterName(missingReporterName);
-            
-            // Telefonnummer darf nicht NULL sein - User-Telefon oder Standardwert verwenden
-            String missingReporterPhone = (user.getPhone() != null && !user.getPhone().trim().isEmpty()) 
-                ? user.getPhone() 
-                : "N/A"; // Standardwert wenn Telefonnummer nicht verfügbar ist (Constraint verlangt nicht-NULL)
-            ghostNet.setMissingReporterPhone(missingReporterPhone);
-            
-            // Status auf VERSCHOLLEN setzen
-            ghostNet.setStatus("VERSCHOLLEN");
-            
-            try {
-                GhostNet saved = ghostNetRepository.save(ghostNet);
-                return ResponseEntity.ok(saved);
-            } catch (Exception saveException) {
-                logger.error("Error saving ghost net", saveException);
-                Map<String, String> error = new HashMap<>();
-                error.put("error", "Failed to save ghost net: " + saveException.getMessage());
-                return ResponseEntity.status(500).body(error);
-            }
+            return transitionResponse(transitionService.markMissing(id, user));
         } catch (Exception e) {
             logger.error("Error marking ghost net as missing", e);
             Map<String, String> error = new HashMap<>();
@@ -418,36 +869,24 @@ public class GhostNetController {
     
     /**
      * Liefert Statistiken für den aktuellen User
-     * Anzahl gemeldeter und geborgener Geisternetze
+     * Anzahl gemeldeter und geborgener Geisternetze, gelesen aus den vorberechneten Zählern
+     * @param user Angemeldeter User
      * @return Map mit "reported" und "recovered" Counts
      */
     @GetMapping("/stats")
-    public ResponseEntity<Map<String, Long>> getMyStats() {
+    public ResponseEntity<Map<String, Long>> getMyStats(@CurrentUser AuthenticatedUser user) {
         try {
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            if (authentication == null || !authentication.isAuthenticated() || 
-                authentication.getName().equals("anonymousUser")) {
+            if (user == null) {
                 return ResponseEntity.status(401).build();
             }
             
-            String username = authentication.getName();
-            var userOpt = userRepository.findByUsername(username);
-            if (userOpt.isEmpty()) {
-                return ResponseEntity.status(404).build();
-            }
-            
-            User user = userOpt.get();
             Long userId = user.getId();
             
-            // Gemeldete Netze zählen (alle Netze wo reporterId übereinstimmt)
-            long reportedCount = ghostNetRepository.countByReporterId(userId);
-            
-            // Geborgene Netze zählen (User zugewiesene Netze mit Status GEBORGEN)
-            long recoveredCount = ghostNetRepository.countBySalvorUserIdAndStatus(userId, "GEBORGEN");
+            UserStats userStats = userStatsService.find(userId);
             
             Map<String, Long> stats = new HashMap<>();
-            stats.put("reported", reportedCount);
-            stats.put("recovered", recoveredCount);
+            stats.put("reported", userStats.getReported());
+            stats.put("recovered", userStats.getRecovered());
             
             return ResponseEntity.ok(stats);
         } catch (Exception e) {
@@ -455,5 +894,54 @@ public class GhostNetController {
             return ResponseEntity.internalServerError().build();
         }
     }
+    
+    /**
+     * Speichert ein Geisternetz und veröffentlicht das Änderungsereignis in derselben Transaktion
+     * Listener, die vor dem Commit laufen (z.B. die User-Statistik), werden so atomar mit der Änderung verbucht
+     * @param ghostNet Zu speicherndes Geisternetz
+     * @param type Art der Änderung
+     * @param before Zustand vor der Änderung (null bei CREATED)
+     * @return Gespeichertes Geisternetz
+     */
+    private GhostNet save(GhostNet ghostNet, GhostNetChangedEvent.Type type, GhostNetSnapshot before) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            // Flush, damit Version und Änderungszeitpunkt im Ereignis bereits aktualisiert sind
+            GhostNet saved = ghostNetRepository.saveAndFlush(ghostNet);
+            eventPublisher.publishEvent(new GhostNetChangedEvent(type, before, GhostNetSnapshot.of(saved)));
+            return saved;
+        });
+    }
+    
+    /**
+     * Wandelt das Ergebnis eines Statusübergangs in die HTTP-Antwort um
+     * @param result Ergebnis des Übergangs
+     * @return 200 mit Geisternetz, 404, 403, 400 bei unzulässigem Ausgangsstatus oder 409 bei Konflikt
+     */
+    private static ResponseEntity<GhostNet> transitionResponse(GhostNetTransitionService.Result result) {
+        return switch (result.status()) {
+            case OK -> ResponseEntity.ok(result.ghostNet());
+            case NOT_FOUND -> ResponseEntity.notFound().build();
+            case FORBIDDEN -> ResponseEntity.status(403).build(); // Nicht autorisiert - nicht der zugewiesene Berger
+            case INVALID_STATE -> ResponseEntity.badRequest().build();
+            case CONFLICT -> ResponseEntity.status(409).build(); // Zwischenzeitlich von einem anderen Request geändert
+        };
+    }
+    
+    /**
+     * Antwort für Clients, deren zwischengespeicherte Daten noch aktuell sind
+     * @param etag Aktuelles ETag
+     * @return 304 ohne Body
+     */
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
+    }
+    
+    /**
+     * Wandelt geladene Entities in Snapshots um, damit Datenbank und Lesemodell dieselbe Antwort liefern
+     * @param ghostNets Geisternetz-Entities
+     * @return Snapshots in derselben Reihenfolge
+     */
+    private static List<GhostNetSnapshot> toSnapshots(List<GhostNet> ghostNets) {
+        return ghostNets.stream().map(GhostNetSnapshot::of).toList();
+    }
 }
-
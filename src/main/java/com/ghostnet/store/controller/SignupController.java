@@ -9,10 +9,19 @@ import org.springframework.core.io.Resource;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.ghostnet.store.domain.User;
 import com.ghostnet.store.repository.UserRepository;
+import com.ghostnet.store.security.PasswordHashingBusyException;
+import com.ghostnet.store.service.UserDirectory;
 
 import java.io.IOException;
 
@@ -23,6 +32,11 @@ import java.io.IOException;
 @SuppressWarnings("null")
 @RestController
 public class SignupController {
+
+    private static final Logger logger = LoggerFactory.getLogger(SignupController.class);
+
+    /** Eindeutiger Index auf user.username */
+    private static final String USERNAME_CONSTRAINT = "uk_user_username";
     
     @Autowired
     private UserRepository userRepository;
@@ -30,6 +44,9 @@ public class SignupController {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private UserDirectory userDirectory;
+
     /**
      * Zeigt die Registrierungsseite an
      * @return signup.html Template
@@ -52,6 +69,52 @@ public class SignupController {
     public User createUser(@RequestBody User user) {
         // Passwort vor dem Speichern verschlüsseln
         user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userDirectory.invalidate(saved.getId());
+        return saved;
+    }
+
+    /**
+     * Lehnt die Registrierung ab, wenn der Hash-Pool durch Logins ausgelastet ist
+     * @param e Ausnahme des Password Encoders
+     * @return 503 mit Retry-After
+     */
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<String> passwordHashingBusy(PasswordHashingBusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Signup is busy, please retry");
+    }
+
+    /**
+     * Lehnt die Registrierung ab, wenn der Benutzername bereits vergeben ist (eindeutiger Index uk_user_username)
+     * Andere Integritätsfehler sind kein Konflikt mit einem bestehenden User und werden als Serverfehler gemeldet
+     * @param e Ausnahme beim Speichern
+     * @return 409 bei doppeltem Benutzernamen, sonst 500
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<String> usernameTaken(DataIntegrityViolationException e) {
+        if (isUsernameConstraint(e)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Username already taken");
+        }
+        logger.error("Error creating user", e);
+        return ResponseEntity.internalServerError().build();
+    }
+
+    /**
+     * Prüft, ob die Ausnahme vom eindeutigen Index auf dem Benutzernamen stammt
+     * MySQL meldet den Namen je nach Version mit Tabellenpräfix (user.uk_user_username)
+     * @param e Ausnahme beim Speichern
+     * @return true wenn uk_user_username verletzt wurde
+     */
+    private static boolean isUsernameConstraint(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                String constraint = violation.getConstraintName();
+                return constraint != null && (constraint.equalsIgnoreCase(USERNAME_CONSTRAINT)
+                        || constraint.toLowerCase().endsWith("." + USERNAME_CONSTRAINT));
+            }
+        }
+        return false;
     }
 }
@@ -0,0 +1,55 @@
+package com.ghostnet.store.controller;
+
+import com.ghostnet.store.security.AuthenticatedUser;
+import com.ghostnet.store.security.CurrentUser;
+import com.ghostnet.store.service.DeltaSyncService;
+import com.ghostnet.store.service.SyncCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller für die Delta-Synchronisation
+ * Clients übergeben den Cursor der letzten Synchronisation und erhalten nur die Änderungen seitdem
+ */
+@SuppressWarnings("null")
+@RestController
+@RequestMapping("/api/sync")
+public class SyncController {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyncController.class);
+
+    @Autowired
+    private DeltaSyncService syncService;
+
+    /**
+     * Liefert alle Änderungen seit dem übergebenen Cursor
+     * Bei hasMore=true sollte der Client sofort mit dem neuen Cursor erneut abfragen,
+     * bei fullResync=true muss er seinen lokalen Bestand vorher verwerfen
+     * @param since Cursor der letzten Synchronisation (optional, ohne Cursor wird alles übertragen)
+     * @param user Angemeldeter User
+     * @return Geänderte Geisternetze, gelöschte IDs, geänderte Anfragen und neuer Cursor
+     */
+    @GetMapping
+    public ResponseEntity<DeltaSyncService.SyncPage> sync(@RequestParam(required = false) String since,
+                                                     @CurrentUser AuthenticatedUser user) {
+        try {
+            if (user == null) {
+                return ResponseEntity.status(401).build();
+            }
+            
+            SyncCursor cursor = since != null && !since.isBlank() ? SyncCursor.decode(since) : null;
+            return ResponseEntity.ok(syncService.changesSince(cursor, user.getId()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build(); // Ungültiger Cursor
+        } catch (Exception e) {
+            logger.error("Error syncing changes", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
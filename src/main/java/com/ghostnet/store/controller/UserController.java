@@ -2,17 +2,30 @@ package com.ghostnet.store.controller;
 
 import com.ghostnet.store.domain.User;
 import com.ghostnet.store.repository.UserRepository;
+import com.ghostnet.store.security.AuthenticatedUser;
+import com.ghostnet.store.security.CurrentUser;
+import com.ghostnet.store.service.UserDirectory;
+import com.ghostnet.store.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * Controller für User-API
@@ -23,29 +36,38 @@ import java.util.Map;
 @RequestMapping("/api/user")
 public class UserController {
 
+    /** Maximale Länge von Name und Telefonnummer */
+    private static final int MAX_TEXT_LENGTH = 255;
+
+    /** Maximale Anzahl an IDs für /batch */
+    private static final int MAX_BATCH_IDS = 1000;
+
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserDirectory userDirectory;
+
+    @Autowired
+    private SecurityContextRepository securityContextRepository;
+
     /**
      * Liefert Informationen über den aktuell eingeloggten User
+     * Wird aus dem Principal beantwortet, ohne Datenbankzugriff
+     * @param user Angemeldeter User (null bei anonymen Requests)
      * @return Map mit username, name und phone
      */
     @GetMapping("/current")
-    public ResponseEntity<Map<String, String>> getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    public ResponseEntity<Map<String, String>> getCurrentUser(@CurrentUser AuthenticatedUser user) {
         Map<String, String> response = new HashMap<>();
         
-        if (authentication != null && authentication.isAuthenticated() && !authentication.getName().equals("anonymousUser")) {
-            String username = authentication.getName();
-            response.put("username", username);
-            
-            // Vollständige User-Details abrufen
-            var userOpt = userRepository.findByUsername(username);
-            if (userOpt.isPresent()) {
-                User user = userOpt.get();
-                response.put("name", user.getName() != null ? user.getName() : "");
-                response.put("phone", user.getPhone() != null ? user.getPhone() : "");
-            }
+        if (user != null) {
+            response.put("username", user.getUsername());
+            response.put("name", user.getName() != null ? user.getName() : "");
+            response.put("phone", user.getPhone() != null ? user.getPhone() : "");
         } else {
             response.put("username", "Benutzer");
             response.put("name", "");
@@ -55,24 +77,65 @@ public class UserController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Ändert Name und Telefonnummer des aktuell eingeloggten Users
+     * Der Principal in der Session wird ersetzt, damit folgende Requests die neuen Daten sehen
+     * @param user Angemeldeter User
+     * @param payload Map mit name und phone
+     * @return Map mit username, name und phone oder 400 bei zu langen Werten
+     */
+    @PutMapping("/current")
+    public ResponseEntity<Map<String, String>> updateCurrentUser(@CurrentUser AuthenticatedUser user,
+                                                                 @RequestBody Map<String, String> payload,
+                                                                 HttpServletRequest request,
+                                                                 HttpServletResponse response) {
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+        String name = payload.get("name") != null ? payload.get("name").trim() : "";
+        String phone = payload.get("phone") != null ? payload.get("phone").trim() : "";
+        if (name.length() > MAX_TEXT_LENGTH || phone.length() > MAX_TEXT_LENGTH) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        AuthenticatedUser updated = userService.updateProfile(user.getId(), name, phone);
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(updated, null, updated.getAuthorities()));
+        SecurityContextHolder.setContext(context);
+        securityContextRepository.saveContext(context, request, response);
+        
+        Map<String, String> body = new HashMap<>();
+        body.put("username", updated.getUsername());
+        body.put("name", updated.getName());
+        body.put("phone", updated.getPhone());
+        return ResponseEntity.ok(body);
+    }
+
     /**
      * Findet einen User anhand der ID
+     * Wird aus dem User-Verzeichnis beantwortet
      * @param id User-ID
      * @return User-Informationen
      */
     @GetMapping("/by-id/{id}")
-    public ResponseEntity<Map<String, Object>> getUserById(@PathVariable Long id) {
-        var userOpt = userRepository.findById(id);
-        if (userOpt.isEmpty()) {
-            return ResponseEntity.notFound().build();
+    public ResponseEntity<UserDirectory.UserSummary> getUserById(@PathVariable Long id) {
+        return userDirectory.find(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Liefert die Kurzprofile mehrerer User in einem Request, z.B. alle Bergenden einer Liste
+     * Fehlende Profile werden gemeinsam nachgeladen, unbekannte IDs fehlen in der Antwort
+     * @param ids Kommagetrennte User-IDs
+     * @return Liste mit id, username, name und phone je User; 400 bei mehr als MAX_BATCH_IDS IDs
+     */
+    @GetMapping("/batch")
+    public ResponseEntity<List<UserDirectory.UserSummary>> getUsersByIds(@RequestParam List<Long> ids) {
+        if (ids.size() > MAX_BATCH_IDS) {
+            return ResponseEntity.badRequest().build();
         }
-        User user = userOpt.get();
-        Map<String, Object> response = new HashMap<>();
-        response.put("id", user.getId());
-        response.put("username", user.getUsername());
-        response.put("name", user.getName() != null ? user.getName() : "");
-        response.put("phone", user.getPhone() != null ? user.getPhone() : "");
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok(userDirectory.findAll(ids.stream().filter(Objects::nonNull).toList()));
     }
     
     /**
@@ -0,0 +1,66 @@
+package com.ghostnet.store.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Entity Klasse für tägliche Status-Aggregate
+ * Zählt pro Tag und Status, wie viele Geisternetze den Status erreicht oder verlassen haben,
+ * sowie die Bergungsdauer der an diesem Tag geborgenen Netze
+ */
+@Getter
+@Setter
+@Entity
+@IdClass(DailyStatusRollup.Key.class)
+@Table(name = "daily_status_rollup")
+public class DailyStatusRollup {
+
+    @Id
+    @Column(name = "rollup_day")
+    /** Kalendertag */
+    private LocalDate day;
+    
+    @Id
+    @Column(name = "status", length = 32)
+    /** Status */
+    private String status;
+    
+    @Column(name = "entered_count")
+    /** Anzahl der Netze, die an diesem Tag in den Status gewechselt sind */
+    private long entered;
+    
+    @Column(name = "left_count")
+    /** Anzahl der Netze, die an diesem Tag den Status verlassen haben oder gelöscht wurden */
+    private long left;
+    
+    @Column(name = "recovery_seconds")
+    /** Summe der Sekunden zwischen Meldung und Bergung (nur Status GEBORGEN) */
+    private long recoverySeconds;
+    
+    @Column(name = "recovery_count")
+    /** Anzahl der Bergungen, die in recoverySeconds eingehen */
+    private long recoveryCount;
+
+    /** Zusammengesetzter Primärschlüssel aus Tag und Status */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private LocalDate day;
+        private String status;
+    }
+    
+}
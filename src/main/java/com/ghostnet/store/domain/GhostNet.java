@@ -4,12 +4,21 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Version;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
 import lombok.Setter;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 /**
  * Entity Klasse für Geisternetze
@@ -18,11 +27,19 @@ import java.time.LocalDateTime;
 @Getter
 @Setter
 @Entity
-@Table(name = "ghost_net")
+@Table(name = "ghost_net", indexes = {
+    @Index(name = "idx_gn_status_spatial", columnList = "status, spatial_key"),
+    @Index(name = "idx_gn_salvor_status", columnList = "salvor_user_id, status"),
+    @Index(name = "idx_gn_reporter", columnList = "reporter_id"),
+    @Index(name = "idx_gn_updated", columnList = "updated_at, id"),
+    @Index(name = "idx_gn_created", columnList = "created_at, id")
+})
 public class GhostNet {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ghost_net_seq")
+    @SequenceGenerator(name = "ghost_net_seq", sequenceName = "ghost_net_seq", allocationSize = 50)
+    /** Wird in Blöcken zu 50 IDs aus ghost_net_seq vergeben, damit Inserts gebündelt werden können */
     private Long id;
     
     /** Textuelle Beschreibung des Standorts */
@@ -34,8 +51,10 @@ public class GhostNet {
     /** Längengrad der Position */
     private Double longitude;
     
-    /** Status: GEMELDET, BERGUNG_BEVORSTEHEND, GEBORGEN, VERSCHOLLEN */
-    private String status;
+    @Convert(converter = GhostNetStatusConverter.class)
+    @Column(name = "status", columnDefinition = "tinyint")
+    /** Status, gespeichert als Zahlencode (siehe GhostNetStatus) */
+    private GhostNetStatus status;
     
     @Column(name = "estimated_size")
     /** Geschätzte Größe des Geisternetzes */
@@ -74,5 +93,47 @@ public class GhostNet {
     /** Telefonnummer der Person, die das Verschwinden gemeldet hat (für VERSCHOLLEN Status) */
     private String missingReporterPhone;
     
+    @JsonIgnore
+    @Column(name = "spatial_key")
+    /** Hilbert-Schlüssel der Position für Bounding-Box-Abfragen, wird bei jedem Speichern neu berechnet */
+    private Long spatialKey;
+    
+    @Column(name = "duplicate_of_id")
+    /** ID der ursprünglichen Meldung, wenn dieses Netz vermutlich bereits gemeldet wurde */
+    private Long duplicateOfId;
+    
+    @Column(name = "updated_at")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    /** Zeitpunkt der letzten Änderung, Grundlage der Delta-Synchronisation */
+    private LocalDateTime updatedAt;
+    
+    @Version
+    @Column(name = "version", columnDefinition = "bigint not null default 0")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    /** Zeilenversion, wird bei jeder Änderung erhöht */
+    private Long version;
+    
+    /**
+     * Berechnet den Hilbert-Schlüssel aus den aktuellen Koordinaten
+     */
+    public void updateSpatialKey() {
+        spatialKey = SpatialKey.of(latitude, longitude);
+    }
+    
+    /**
+     * Aktualisiert abgeleitete Spalten vor jedem Insert und Update
+     * created_at speichert nur ganze Sekunden; ohne Kürzen würde die Datenbank runden und Cursor aus dem
+     * Lesemodell würden nicht mehr zu den gespeicherten Zeilen passen
+     */
+    @PrePersist
+    @PreUpdate
+    void beforeSave() {
+        if (createdAt != null) {
+            createdAt = createdAt.truncatedTo(ChronoUnit.SECONDS);
+        }
+        updateSpatialKey();
+        updatedAt = LocalDateTime.now();
+    }
+    
 }
 
@@ -0,0 +1,118 @@
+package com.ghostnet.store.domain;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Status eines Geisternetzes mit Übergangstabelle
+ * In der Datenbank wird der Status als kleiner Zahlencode gespeichert ({@link GhostNetStatusConverter}),
+ * nach außen (JSON, Export, Import) weiterhin unter seinem Namen. Die Codes sind persistiert und
+ * dürfen nicht geändert oder neu vergeben werden.
+ * Erlaubte Übergänge:
+ * GEMELDET → BERGUNG_BEVORSTEHEND, GEBORGEN, VERSCHOLLEN;
+ * BERGUNG_BEVORSTEHEND → GEBORGEN, VERSCHOLLEN;
+ * VERSCHOLLEN → GEBORGEN, VERSCHOLLEN (erneute Meldung aktualisiert die Kontaktdaten);
+ * GEBORGEN ist endgültig
+ */
+public enum GhostNetStatus {
+
+    GEMELDET(1),
+    BERGUNG_BEVORSTEHEND(2),
+    GEBORGEN(3),
+    VERSCHOLLEN(4);
+
+    /** Status nach Code, Index ist der Code */
+    private static final GhostNetStatus[] BY_CODE = new GhostNetStatus[5];
+
+    static {
+        for (GhostNetStatus status : values()) {
+            BY_CODE[status.code] = status;
+            status.targets = EnumSet.noneOf(GhostNetStatus.class);
+            status.sources = EnumSet.noneOf(GhostNetStatus.class);
+        }
+        allow(GEMELDET, BERGUNG_BEVORSTEHEND, GEBORGEN, VERSCHOLLEN);
+        allow(BERGUNG_BEVORSTEHEND, GEBORGEN, VERSCHOLLEN);
+        allow(VERSCHOLLEN, GEBORGEN, VERSCHOLLEN);
+        for (GhostNetStatus status : values()) {
+            status.targets = Collections.unmodifiableSet(status.targets);
+            status.sources = Collections.unmodifiableSet(status.sources);
+        }
+    }
+
+    private final int code;
+
+    /** Status, in die von diesem aus gewechselt werden darf */
+    private Set<GhostNetStatus> targets;
+
+    /** Status, aus denen in diesen gewechselt werden darf */
+    private Set<GhostNetStatus> sources;
+
+    GhostNetStatus(int code) {
+        this.code = code;
+    }
+
+    private static void allow(GhostNetStatus from, GhostNetStatus... to) {
+        for (GhostNetStatus target : to) {
+            from.targets.add(target);
+            target.sources.add(from);
+        }
+    }
+
+    /**
+     * Code, unter dem der Status gespeichert wird
+     * @return Zahlencode
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Prüft einen Übergang gegen die Übergangstabelle
+     * @param target Zielstatus
+     * @return true, wenn der Wechsel in den Zielstatus erlaubt ist
+     */
+    public boolean canTransitionTo(GhostNetStatus target) {
+        return targets.contains(target);
+    }
+
+    /**
+     * Liefert alle Status, aus denen in diesen gewechselt werden darf
+     * Dient als Bedingung der bedingten UPDATEs, damit Datenbank und Übergangstabelle übereinstimmen
+     * @return Unveränderliche Menge der Ausgangsstatus
+     */
+    public Set<GhostNetStatus> sources() {
+        return sources;
+    }
+
+    /**
+     * Liefert den Status zu einem gespeicherten Code
+     * @param code Zahlencode
+     * @return Status
+     * @throws IllegalArgumentException bei unbekanntem Code
+     */
+    public static GhostNetStatus fromCode(int code) {
+        GhostNetStatus status = code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+        if (status == null) {
+            throw new IllegalArgumentException("Unknown ghost net status code " + code);
+        }
+        return status;
+    }
+
+    /**
+     * Liefert den Status zu einem Namen, ohne Beachtung der Groß- und Kleinschreibung
+     * @param name Name des Status, z.B. aus Request-Parametern oder Importdateien
+     * @return Status oder null, wenn der Name leer oder unbekannt ist
+     */
+    public static GhostNetStatus parse(String name) {
+        if (name == null || name.isBlank()) {
+            return null;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.ghostnet.store.domain;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Speichert {@link GhostNetStatus} als Zahlencode statt als Text
+ */
+@Converter
+public class GhostNetStatusConverter implements AttributeConverter<GhostNetStatus, Integer> {
+
+    @Override
+    public Integer convertToDatabaseColumn(GhostNetStatus status) {
+        return status != null ? status.getCode() : null;
+    }
+
+    @Override
+    public GhostNetStatus convertToEntityAttribute(Integer code) {
+        return code != null ? GhostNetStatus.fromCode(code) : null;
+    }
+}
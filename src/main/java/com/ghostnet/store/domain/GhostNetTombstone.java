@@ -0,0 +1,34 @@
+package com.ghostnet.store.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity Klasse für gelöschte Geisternetze
+ * Merkt sich gelöschte IDs, damit Clients bei der Delta-Synchronisation Löschungen übernehmen können
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "ghost_net_tombstone", indexes = {
+    @Index(name = "idx_gnt_deleted", columnList = "deleted_at, ghost_net_id")
+})
+public class GhostNetTombstone {
+
+    @Id
+    @Column(name = "ghost_net_id")
+    /** ID des gelöschten Geisternetzes */
+    private Long ghostNetId;
+    
+    @Column(name = "deleted_at", nullable = false)
+    /** Zeitpunkt der Löschung */
+    private LocalDateTime deletedAt;
+    
+}
@@ -0,0 +1,56 @@
+package com.ghostnet.store.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity Klasse für den Fortschritt eines Massenimports
+ * Wird in derselben Transaktion wie die importierten Netze gespeichert, damit ein fortgesetzter
+ * Import keine Zeile doppelt übernimmt
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "import_checkpoint")
+public class ImportCheckpoint {
+
+    @Id
+    @Column(name = "import_file", length = 500)
+    /** Absoluter Pfad der Importdatei */
+    private String importFile;
+
+    @Column(name = "file_size", nullable = false)
+    /** Größe der Datei beim Start, ein Checkpoint gilt nur für unveränderte Dateien */
+    private long fileSize;
+
+    @Column(name = "byte_offset", nullable = false)
+    /** Byte-Position des Abschnitts, in dem fortgesetzt wird */
+    private long byteOffset;
+
+    @Column(name = "skip_rows", nullable = false)
+    /** Anzahl bereits verarbeiteter Datensätze ab byte_offset */
+    private int skipRows;
+
+    @Column(name = "line_count", nullable = false)
+    /** Anzahl der Zeilen vor dem Abschnitt */
+    private long lineCount;
+
+    @Column(name = "imported", nullable = false)
+    /** Bisher gespeicherte Netze */
+    private long imported;
+
+    @Column(name = "rejected", nullable = false)
+    /** Bisher abgelehnte Zeilen */
+    private long rejected;
+
+    @Column(name = "updated_at", nullable = false)
+    /** Zeitpunkt des letzten Commits */
+    private LocalDateTime updatedAt;
+
+}
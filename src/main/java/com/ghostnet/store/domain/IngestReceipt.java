@@ -0,0 +1,43 @@
+package com.ghostnet.store.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity Klasse für Quittungen verarbeiteter Meldungen aus der Schreibwarteschlange
+ * Wird in derselben Transaktion wie das Geisternetz gespeichert, damit eine Meldung nach einem
+ * Neustart nicht doppelt aus dem Journal übernommen wird
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "ingest_receipt", indexes = {
+    @Index(name = "idx_ir_processed", columnList = "processed_at")
+})
+public class IngestReceipt {
+
+    @Id
+    @Column(name = "tracking_id", length = 36)
+    /** Tracking-ID, die der Melder erhalten hat */
+    private String trackingId;
+    
+    @Column(name = "ghost_net_id")
+    /** ID des gespeicherten Geisternetzes (null wenn die Meldung nicht gespeichert werden konnte) */
+    private Long ghostNetId;
+    
+    @Column(name = "error")
+    /** Fehlerbeschreibung, wenn die Meldung nicht gespeichert werden konnte */
+    private String error;
+    
+    @Column(name = "processed_at", nullable = false)
+    /** Zeitpunkt der Verarbeitung */
+    private LocalDateTime processedAt;
+    
+}
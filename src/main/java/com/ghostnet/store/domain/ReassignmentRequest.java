@@ -1,11 +1,17 @@
 package com.ghostnet.store.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import jakarta.persistence.Column;
+import jakarta.persistence.Version;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -14,11 +20,18 @@ import java.time.LocalDateTime;
 /**
  * Entity Klasse für Umverteilungsanfragen
  * Repräsentiert eine Anfrage zur Übertragung der Bergungsverantwortung
+ * Je Geisternetz kann es höchstens eine offene Anfrage geben (eindeutiger Index auf pending_ghost_net_id)
  */
 @Getter
 @Setter
 @Entity
-@Table(name = "reassignment_request")
+@Table(name = "reassignment_request", indexes = {
+    @Index(name = "idx_rr_updated", columnList = "updated_at, id"),
+    @Index(name = "idx_rr_ghost_net_status", columnList = "ghost_net_id, status"),
+    @Index(name = "idx_rr_requester_status", columnList = "requester_id, status"),
+    @Index(name = "idx_rr_salvor_status", columnList = "current_salvor_id, status"),
+    @Index(name = "uk_rr_pending_ghost_net", columnList = "pending_ghost_net_id", unique = true)
+})
 public class ReassignmentRequest {
 
     @Id
@@ -37,13 +50,39 @@ public class ReassignmentRequest {
     /** ID des aktuell zugewiesenen Bergers */
     private Long currentSalvorId;
     
-    @Column(name = "status")
-    /** Status: PENDING, ACCEPTED, REJECTED */
-    private String status;
+    @Convert(converter = ReassignmentStatusConverter.class)
+    @Column(name = "status", columnDefinition = "tinyint")
+    /** Status, gespeichert als Zahlencode (siehe ReassignmentStatus) */
+    private ReassignmentStatus status;
     
     @Column(name = "created_at")
     /** Zeitpunkt der Anfrage */
     private LocalDateTime createdAt;
     
+    @JsonIgnore
+    @Column(name = "pending_ghost_net_id", insertable = false, updatable = false,
+            columnDefinition = "bigint generated always as (case when status = " + ReassignmentStatus.PENDING_CODE
+                    + " then ghost_net_id end) stored")
+    /** Von der Datenbank berechnet: ghostNetId solange die Anfrage offen ist, sonst null; eindeutig indiziert */
+    private Long pendingGhostNetId;
+    
+    @Column(name = "updated_at")
+    /** Zeitpunkt der letzten Änderung, Grundlage der Delta-Synchronisation */
+    private LocalDateTime updatedAt;
+    
+    @Version
+    @Column(name = "version", columnDefinition = "bigint not null default 0")
+    /** Zeilenversion, wird bei jeder Änderung erhöht */
+    private Long version;
+    
+    /**
+     * Setzt den Änderungszeitpunkt vor jedem Insert und Update
+     */
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = LocalDateTime.now();
+    }
+    
 }
 
@@ -0,0 +1,76 @@
+package com.ghostnet.store.domain;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Status einer Umverteilungsanfrage mit Übergangstabelle
+ * In der Datenbank wird der Status als kleiner Zahlencode gespeichert ({@link ReassignmentStatusConverter}),
+ * nach außen weiterhin unter seinem Namen. Die Codes sind persistiert und dürfen nicht geändert werden.
+ * Erlaubte Übergänge: PENDING → ACCEPTED, REJECTED; ACCEPTED und REJECTED sind endgültig
+ */
+public enum ReassignmentStatus {
+
+    PENDING(1),
+    ACCEPTED(2),
+    REJECTED(3);
+
+    /** Code von PENDING als Konstante für die Definition der berechneten Spalte pending_ghost_net_id */
+    public static final int PENDING_CODE = 1;
+
+    /** Status nach Code, Index ist der Code */
+    private static final ReassignmentStatus[] BY_CODE = new ReassignmentStatus[4];
+
+    static {
+        for (ReassignmentStatus status : values()) {
+            BY_CODE[status.code] = status;
+            status.targets = EnumSet.noneOf(ReassignmentStatus.class);
+        }
+        PENDING.targets.add(ACCEPTED);
+        PENDING.targets.add(REJECTED);
+        for (ReassignmentStatus status : values()) {
+            status.targets = Collections.unmodifiableSet(status.targets);
+        }
+    }
+
+    private final int code;
+
+    /** Status, in die von diesem aus gewechselt werden darf */
+    private Set<ReassignmentStatus> targets;
+
+    ReassignmentStatus(int code) {
+        this.code = code;
+    }
+
+    /**
+     * Code, unter dem der Status gespeichert wird
+     * @return Zahlencode
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Prüft einen Übergang gegen die Übergangstabelle
+     * @param target Zielstatus
+     * @return true, wenn der Wechsel in den Zielstatus erlaubt ist
+     */
+    public boolean canTransitionTo(ReassignmentStatus target) {
+        return targets.contains(target);
+    }
+
+    /**
+     * Liefert den Status zu einem gespeicherten Code
+     * @param code Zahlencode
+     * @return Status
+     * @throws IllegalArgumentException bei unbekanntem Code
+     */
+    public static ReassignmentStatus fromCode(int code) {
+        ReassignmentStatus status = code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+        if (status == null) {
+            throw new IllegalArgumentException("Unknown reassignment status code " + code);
+        }
+        return status;
+    }
+}
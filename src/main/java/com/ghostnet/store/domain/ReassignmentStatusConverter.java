@@ -0,0 +1,21 @@
+package com.ghostnet.store.domain;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Speichert {@link ReassignmentStatus} als Zahlencode statt als Text
+ */
+@Converter
+public class ReassignmentStatusConverter implements AttributeConverter<ReassignmentStatus, Integer> {
+
+    @Override
+    public Integer convertToDatabaseColumn(ReassignmentStatus status) {
+        return status != null ? status.getCode() : null;
+    }
+
+    @Override
+    public ReassignmentStatus convertToEntityAttribute(Integer code) {
+        return code != null ? ReassignmentStatus.fromCode(code) : null;
+    }
+}
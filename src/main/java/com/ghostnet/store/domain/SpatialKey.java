@@ -0,0 +1,173 @@
+package com.ghostnet.store.domain;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Raumfüllende Kurve (Hilbert-Kurve) über Breiten- und Längengrad
+ * Bildet Positionen auf einen eindimensionalen Schlüssel ab, sodass benachbarte Positionen
+ * überwiegend benachbarte Schlüssel erhalten und Bounding-Box-Abfragen als wenige
+ * Bereichsabfragen auf einem Index formuliert werden können
+ */
+public final class SpatialKey {
+
+    /** Auflösung der Kurve in Bits pro Achse (2^16 Zellen je Achse, ca. 300 m am Äquator) */
+    public static final int ORDER = 16;
+
+    private static final long SIDE = 1L << ORDER;
+
+    /** Maximale Anzahl an Zellen, die für eine Bounding Box betrachtet werden */
+    private static final int MAX_CELLS = 256;
+
+    private SpatialKey() {
+    }
+
+    /**
+     * Berechnet den Schlüssel einer Position
+     * @param latitude Breitengrad
+     * @param longitude Längengrad
+     * @return Hilbert-Schlüssel oder null, wenn die Position unvollständig ist
+     */
+    public static Long of(Double latitude, Double longitude) {
+        if (latitude == null || longitude == null || latitude.isNaN() || longitude.isNaN()) {
+            return null;
+        }
+        return encode(latitude, longitude);
+    }
+
+    /**
+     * Berechnet den Schlüssel einer Position
+     * @param latitude Breitengrad
+     * @param longitude Längengrad
+     * @return Hilbert-Schlüssel im Bereich [0, 4^ORDER)
+     */
+    public static long encode(double latitude, double longitude) {
+        return hilbertIndex(ORDER, cellX(longitude), cellY(latitude));
+    }
+
+    /**
+     * Berechnet die Schlüsselbereiche, die eine Bounding Box vollständig abdecken
+     * Die Bereiche können zusätzliche Positionen außerhalb der Box enthalten und müssen
+     * daher mit einem exakten Koordinatenfilter kombiniert werden
+     * Eine Box mit minLongitude größer maxLongitude überquert die Datumsgrenze
+     * @param minLatitude Südliche Grenze
+     * @param minLongitude Westliche Grenze
+     * @param maxLatitude Nördliche Grenze
+     * @param maxLongitude Östliche Grenze
+     * @param maxRanges Maximale Anzahl zurückgegebener Bereiche
+     * @return Sortierte, disjunkte Bereiche als Paare [von, bis] (inklusive)
+     */
+    public static List<long[]> coveringRanges(double minLatitude, double minLongitude,
+                                              double maxLatitude, double maxLongitude, int maxRanges) {
+        List<long[]> ranges = new ArrayList<>();
+        if (minLongitude > maxLongitude) {
+            // Box über die Datumsgrenze in zwei Boxen aufteilen
+            addCells(ranges, minLatitude, minLongitude, maxLatitude, 180.0);
+            addCells(ranges, minLatitude, -180.0, maxLatitude, maxLongitude);
+        } else {
+            addCells(ranges, minLatitude, minLongitude, maxLatitude, maxLongitude);
+        }
+        ranges.sort(Comparator.comparingLong(range -> range[0]));
+        return reduce(merge(ranges), Math.max(1, maxRanges));
+    }
+
+    /**
+     * Fügt die Schlüsselbereiche der Zellen hinzu, die eine Box ohne Datumsgrenze überdecken
+     * Wählt die feinste Kurvenebene, auf der die Box höchstens MAX_CELLS Zellen schneidet
+     */
+    private static void addCells(List<long[]> ranges, double minLatitude, double minLongitude,
+                                 double maxLatitude, double maxLongitude) {
+        long x0 = cellX(minLongitude);
+        long x1 = cellX(maxLongitude);
+        long y0 = cellY(minLatitude);
+        long y1 = cellY(maxLatitude);
+
+        int level = ORDER;
+        while (level > 0 && ((x1 >> (ORDER - level)) - (x0 >> (ORDER - level)) + 1)
+                * ((y1 >> (ORDER - level)) - (y0 >> (ORDER - level)) + 1) > MAX_CELLS) {
+            level--;
+        }
+
+        int shift = ORDER - level;
+        for (long cx = x0 >> shift; cx <= x1 >> shift; cx++) {
+            for (long cy = y0 >> shift; cy <= y1 >> shift; cy++) {
+                // Der Index einer groben Zelle ist das Präfix aller Schlüssel innerhalb der Zelle
+                long prefix = hilbertIndex(level, cx, cy);
+                ranges.add(new long[] {prefix << (2 * shift), ((prefix + 1) << (2 * shift)) - 1});
+            }
+        }
+    }
+
+    /** Verschmilzt sortierte, aneinandergrenzende oder überlappende Bereiche */
+    private static List<long[]> merge(List<long[]> sorted) {
+        List<long[]> merged = new ArrayList<>();
+        for (long[] range : sorted) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && range[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(new long[] {range[0], range[1]});
+            }
+        }
+        return merged;
+    }
+
+    /** Schließt jeweils die kleinste Lücke, bis höchstens maxRanges Bereiche übrig sind */
+    private static List<long[]> reduce(List<long[]> ranges, int maxRanges) {
+        while (ranges.size() > maxRanges) {
+            int smallest = 0;
+            long smallestGap = Long.MAX_VALUE;
+            for (int i = 0; i < ranges.size() - 1; i++) {
+                long gap = ranges.get(i + 1)[0] - ranges.get(i)[1];
+                if (gap < smallestGap) {
+                    smallestGap = gap;
+                    smallest = i;
+                }
+            }
+            ranges.get(smallest)[1] = ranges.get(smallest + 1)[1];
+            ranges.remove(smallest + 1);
+        }
+        return ranges;
+    }
+
+    private static long cellX(double longitude) {
+        return clamp((long) Math.floor((longitude + 180.0) / 360.0 * SIDE));
+    }
+
+    private static long cellY(double latitude) {
+        return clamp((long) Math.floor((latitude + 90.0) / 180.0 * SIDE));
+    }
+
+    private static long clamp(long cell) {
+        return Math.max(0, Math.min(SIDE - 1, cell));
+    }
+
+    /**
+     * Hilbert-Index einer Zelle auf der angegebenen Ebene
+     * @param order Ebene der Kurve (Gitter mit 2^order Zellen je Achse)
+     * @param x Zellspalte
+     * @param y Zellzeile
+     * @return Position der Zelle entlang der Kurve
+     */
+    static long hilbertIndex(int order, long x, long y) {
+        long n = 1L << order;
+        long index = 0;
+        for (long s = n >> 1; s > 0; s >>= 1) {
+            long rx = (x & s) > 0 ? 1 : 0;
+            long ry = (y & s) > 0 ? 1 : 0;
+            index += s * s * ((3 * rx) ^ ry);
+            // Quadranten drehen, damit die Teilkurve korrekt ausgerichtet ist
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = n - 1 - x;
+                    y = n - 1 - y;
+                }
+                long t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return index;
+    }
+}
@@ -4,16 +4,22 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import lombok.Getter;
 import lombok.Setter;
 
 /**
  * Entity Klasse für Benutzer
  * Repräsentiert einen registrierten User im System
+ * Der Benutzername ist eindeutig (uk_user_username)
  */
 @Getter
 @Setter
 @Entity
+@Table(name = "user", indexes = {
+    @Index(name = "uk_user_username", columnList = "username", unique = true)
+})
 public class User {
 
     @Id
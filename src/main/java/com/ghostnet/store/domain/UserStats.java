@@ -0,0 +1,31 @@
+package com.ghostnet.store.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Entity Klasse für vorberechnete User-Statistiken
+ * Zähler werden in derselben Transaktion wie die zugrunde liegende Änderung fortgeschrieben
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "user_stats")
+public class UserStats {
+
+    @Id
+    @Column(name = "user_id")
+    /** ID des Users */
+    private Long userId;
+    
+    /** Anzahl der vom User gemeldeten Geisternetze */
+    private long reported;
+    
+    /** Anzahl der vom User geborgenen Geisternetze */
+    private long recovered;
+    
+}
@@ -0,0 +1,49 @@
+package com.ghostnet.store.repository;
+
+import com.ghostnet.store.domain.DailyStatusRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository Interface für DailyStatusRollup-Entity
+ * Stellt Datenbankzugriffe für die täglichen Status-Aggregate bereit
+ */
+@Repository
+public interface DailyStatusRollupRepository extends JpaRepository<DailyStatusRollup, DailyStatusRollup.Key> {
+
+    /** Addiert Differenzen auf das Aggregat eines Tages und Status und legt die Zeile bei Bedarf an */
+    @Modifying
+    @Query(nativeQuery = true, value = "insert into daily_status_rollup "
+            + "(rollup_day, status, entered_count, left_count, recovery_seconds, recovery_count) "
+            + "values (:day, :status, :entered, :left, :recoverySeconds, :recoveryCount) "
+            + "on duplicate key update entered_count = entered_count + values(entered_count), "
+            + "left_count = left_count + values(left_count), "
+            + "recovery_seconds = recovery_seconds + values(recovery_seconds), "
+            + "recovery_count = recovery_count + values(recovery_count)")
+    void addDelta(@Param("day") LocalDate day, @Param("status") String status,
+                  @Param("entered") long entered, @Param("left") long left,
+                  @Param("recoverySeconds") long recoverySeconds, @Param("recoveryCount") long recoveryCount);
+
+    /** Setzt die Markierung für die Befüllung aus dem Bestand, liefert 0, wenn sie bereits gesetzt war */
+    @Modifying
+    @Query(nativeQuery = true, value = "insert ignore into daily_status_rollup_seed (id, seeded_at) values (1, :seededAt)")
+    int markSeeded(@Param("seededAt") LocalDateTime seededAt);
+
+    /** Anzahl der Markierungen für die Befüllung aus dem Bestand (0 oder 1) */
+    @Query(nativeQuery = true, value = "select count(*) from daily_status_rollup_seed")
+    long countSeedMarkers();
+
+    /** Findet alle Aggregate in einem Zeitraum (inklusive), sortiert nach Tag */
+    List<DailyStatusRollup> findByDayBetweenOrderByDay(LocalDate from, LocalDate to);
+
+    /** Anzahl der Netze je Status am Ende eines Tages, Zeilen bestehen aus Status und Anzahl */
+    @Query("select r.status, sum(r.entered) - sum(r.left) from DailyStatusRollup r where r.day <= :day group by r.status")
+    List<Object[]> countStatusesAt(@Param("day") LocalDate day);
+}
@@ -1,23 +1,34 @@
 package com.ghostnet.store.repository;
 
 import com.ghostnet.store.domain.GhostNet;
+import com.ghostnet.store.domain.GhostNetStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repository Interface für GhostNet-Entity
  * Stellt Datenbankzugriffe für Geisternetze bereit
  */
 @Repository
-public interface GhostNetRepository extends JpaRepository<GhostNet, Long> {
-    /** Findet alle Geisternetze sortiert nach Erstellungsdatum (neueste zuerst) */
-    List<GhostNet> findAllByOrderByCreatedAtDesc();
-    
-    /** Findet alle Geisternetze sortiert nach Meldungsdatum (neueste zuerst) */
-    List<GhostNet> findAllByOrderByReportedAtDesc();
-    
+public interface GhostNetRepository extends JpaRepository<GhostNet, Long>, GhostNetRepositoryCustom {
+
+    /** Fetch-Size, mit der der MySQL-Treiber Zeilen einzeln streamt statt die Ergebnismenge zu puffern */
+    String STREAMING_FETCH_SIZE = "" + Integer.MIN_VALUE;
+
     /** Findet alle Geisternetze eines Melders sortiert nach Erstellungsdatum */
     List<GhostNet> findByReporterIdOrderByCreatedAtDesc(Long reporterId);
     
@@ -28,6 +39,121 @@ public interface GhostNetRepository extends JpaRepository<GhostNet, Long> {
     long countByReporterId(Long reporterId);
     
     /** Zählt alle Geisternetze eines Bergers mit bestimmten Status */
-    long countBySalvorUserIdAndStatus(Long salvorUserId, String status);
-}
+    long countBySalvorUserIdAndStatus(Long salvorUserId, GhostNetStatus status);
+
+    /**
+     * Streamt alle Geisternetze sortiert nach (createdAt, id), neueste zuerst
+     * Muss innerhalb einer Transaktion konsumiert und geschlossen werden
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE))
+    @Query("select g from GhostNet g order by g.createdAt desc, g.id desc")
+    Stream<GhostNet> streamAllNewestFirst();
+
+    /**
+     * Streamt einen Abschnitt des Exports sortiert nach ID, beginnend nach der angegebenen ID
+     * Filter mit null werden ignoriert; muss innerhalb einer Transaktion konsumiert und geschlossen werden
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE))
+    @Query("select g from GhostNet g where g.id > :afterId and (:status is null or g.status = :status) "
+            + "and (:from is null or g.createdAt >= :from) and (:to is null or g.createdAt < :to) order by g.id")
+    Stream<GhostNet> streamForExport(@Param("afterId") Long afterId, @Param("status") GhostNetStatus status,
+                                     @Param("from") LocalDateTime from, @Param("to") LocalDateTime to, Limit limit);
+
+    /** Findet alle Geisternetze mit einem Status sortiert nach ID */
+    List<GhostNet> findByStatusOrderByIdAsc(GhostNetStatus status);
+
+    /**
+     * Sperrt die angegebenen Geisternetze, die noch im angegebenen Status (GEMELDET) sind, bis zum Ende der Transaktion
+     * Bereits anderweitig zugewiesene Netze fehlen im Ergebnis
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select g from GhostNet g where g.id in :ids and g.status = :status")
+    List<GhostNet> lockReported(@Param("ids") Collection<Long> ids, @Param("status") GhostNetStatus status);
+
+    /**
+     * Weist ein Geisternetz zu (BERGUNG_BEVORSTEHEND), sofern es unverändert (gleiche Version) und in einem
+     * der Ausgangsstatus ist
+     * @param from Zulässige Ausgangsstatus laut Übergangstabelle
+     * @return Anzahl der geänderten Zeilen, 0 wenn ein anderer Request schneller war
+     */
+    @Modifying
+    @Query("update GhostNet g set g.status = :status, g.salvorUserId = :salvorUserId, "
+            + "g.version = g.version + 1, g.updatedAt = :now "
+            + "where g.id = :id and g.version = :version and g.status in :from")
+    int assign(@Param("id") Long id, @Param("version") Long version, @Param("salvorUserId") Long salvorUserId,
+               @Param("status") GhostNetStatus status, @Param("from") Collection<GhostNetStatus> from,
+               @Param("now") LocalDateTime now);
 
+    /**
+     * Überträgt ein Geisternetz an einen anderen Berger, sofern es unverändert und noch dem bisherigen zugewiesen ist
+     * @return Anzahl der geänderten Zeilen, 0 wenn ein anderer Request schneller war
+     */
+    @Modifying
+    @Query("update GhostNet g set g.salvorUserId = :salvorUserId, g.version = g.version + 1, g.updatedAt = :now "
+            + "where g.id = :id and g.version = :version and g.salvorUserId = :currentSalvorUserId")
+    int reassign(@Param("id") Long id, @Param("version") Long version, @Param("currentSalvorUserId") Long currentSalvorUserId,
+                 @Param("salvorUserId") Long salvorUserId, @Param("now") LocalDateTime now);
+
+    /**
+     * Setzt ein Geisternetz auf GEBORGEN, sofern es unverändert, in einem der Ausgangsstatus und dem Berger zugewiesen ist
+     * @param from Zulässige Ausgangsstatus laut Übergangstabelle
+     * @return Anzahl der geänderten Zeilen, 0 wenn ein anderer Request schneller war
+     */
+    @Modifying
+    @Query("update GhostNet g set g.status = :status, g.version = g.version + 1, g.updatedAt = :now "
+            + "where g.id = :id and g.version = :version and g.salvorUserId = :salvorUserId and g.status in :from")
+    int recover(@Param("id") Long id, @Param("version") Long version, @Param("salvorUserId") Long salvorUserId,
+                @Param("status") GhostNetStatus status, @Param("from") Collection<GhostNetStatus> from,
+                @Param("now") LocalDateTime now);
+
+    /**
+     * Setzt ein Geisternetz auf VERSCHOLLEN mit Melder- und Kontaktdaten, sofern es unverändert und in einem
+     * der Ausgangsstatus ist
+     * @param from Zulässige Ausgangsstatus laut Übergangstabelle
+     * @return Anzahl der geänderten Zeilen, 0 wenn ein anderer Request schneller war
+     */
+    @Modifying
+    @Query("update GhostNet g set g.status = :status, g.reporterName = :reporterName, g.reportedBy = :reportedBy, "
+            + "g.reporterId = :reporterId, g.missingReporterName = :missingReporterName, "
+            + "g.missingReporterPhone = :missingReporterPhone, g.version = g.version + 1, g.updatedAt = :now "
+            + "where g.id = :id and g.version = :version and g.status in :from")
+    int markMissing(@Param("id") Long id, @Param("version") Long version,
+                    @Param("reporterName") String reporterName, @Param("reportedBy") String reportedBy,
+                    @Param("reporterId") Long reporterId, @Param("missingReporterName") String missingReporterName,
+                    @Param("missingReporterPhone") String missingReporterPhone,
+                    @Param("status") GhostNetStatus status, @Param("from") Collection<GhostNetStatus> from,
+                    @Param("now") LocalDateTime now);
+
+    /** Findet alle Netze mit einem der Status, die ab dem angegebenen Zeitpunkt erstellt wurden */
+    List<GhostNet> findByCreatedAtGreaterThanEqualAndStatusIn(LocalDateTime createdAt, Collection<GhostNetStatus> statuses);
+
+    /** Erste Seite der Keyset-Pagination sortiert nach (createdAt, id), neueste zuerst */
+    List<GhostNet> findAllByOrderByCreatedAtDescIdDesc(Limit limit);
+
+    /** Folgeseite der Keyset-Pagination: alle Geisternetze strikt hinter der Cursor-Position */
+    @Query("select g from GhostNet g where g.createdAt < :createdAt or (g.createdAt = :createdAt and g.id < :id) "
+            + "order by g.createdAt desc, g.id desc")
+    List<GhostNet> findPageAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Limit limit);
+
+    /** Zählt die Geisternetze je Status, Zeilen bestehen aus Status und Anzahl */
+    @Query("select g.status, count(g) from GhostNet g group by g.status")
+    List<Object[]> countGroupedByStatus();
+
+    /** Findet Geisternetze mit Koordinaten, deren Hilbert-Schlüssel noch nicht berechnet wurde */
+    @Query("select g from GhostNet g where g.spatialKey is null and g.latitude is not null and g.longitude is not null")
+    List<GhostNet> findWithoutSpatialKey(Limit limit);
+
+    /**
+     * Delta-Synchronisation: Geisternetze, die nach der Cursor-Position (updatedAt, id) und spätestens
+     * bis zum angegebenen Zeitpunkt geändert wurden, sortiert nach (updatedAt, id)
+     */
+    @Query("select g from GhostNet g where (g.updatedAt > :updatedAt or (g.updatedAt = :updatedAt and g.id > :id)) "
+            + "and g.updatedAt <= :until order by g.updatedAt, g.id")
+    List<GhostNet> findChangedAfter(@Param("updatedAt") LocalDateTime updatedAt, @Param("id") Long id,
+                                    @Param("until") LocalDateTime until, Limit limit);
+
+    /** Setzt den Änderungszeitpunkt für Geisternetze, die vor Einführung der Spalte gespeichert wurden */
+    @Modifying
+    @Query("update GhostNet g set g.updatedAt = coalesce(g.createdAt, :now) where g.updatedAt is null")
+    int backfillUpdatedAt(@Param("now") LocalDateTime now);
+}
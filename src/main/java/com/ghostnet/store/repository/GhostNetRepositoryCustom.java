@@ -0,0 +1,39 @@
+package com.ghostnet.store.repository;
+
+import com.ghostnet.store.domain.GhostNet;
+import com.ghostnet.store.domain.GhostNetStatus;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Erweiterung des GhostNetRepository um dynamisch aufgebaute Abfragen
+ */
+public interface GhostNetRepositoryCustom {
+
+    /**
+     * Findet alle Geisternetze innerhalb einer Bounding Box
+     * Die Box wird in wenige Bereiche des Hilbert-Schlüssels zerlegt, die als Bereichsabfragen
+     * auf dem Index (status, spatial_key) ausgeführt werden
+     * @param minLatitude Südliche Grenze
+     * @param minLongitude Westliche Grenze
+     * @param maxLatitude Nördliche Grenze
+     * @param maxLongitude Östliche Grenze (kleiner als minLongitude bei Boxen über die Datumsgrenze)
+     * @param statuses Zulässige Status
+     * @return Geisternetze innerhalb der Box, neueste zuerst
+     */
+    List<GhostNet> findInBounds(double minLatitude, double minLongitude,
+                                double maxLatitude, double maxLongitude, Collection<GhostNetStatus> statuses);
+
+    /**
+     * Weist viele Geisternetze in einem einzigen UPDATE ihren Bergenden zu
+     * Setzt Status BERGUNG_BEVORSTEHEND, erhöht die Version und setzt den Änderungszeitpunkt.
+     * Läuft am Persistence Context vorbei; bereits geladene Entities sind danach veraltet
+     * @param salvorByGhostNet ID des Bergenden je Geisternetz-ID
+     * @param now Änderungszeitpunkt
+     * @return Anzahl der geänderten Zeilen
+     */
+    int assignSalvors(Map<Long, Long> salvorByGhostNet, LocalDateTime now);
+}
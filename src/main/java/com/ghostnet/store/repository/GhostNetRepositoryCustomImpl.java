@@ -0,0 +1,85 @@
+package com.ghostnet.store.repository;
+
+import com.ghostnet.store.domain.GhostNet;
+import com.ghostnet.store.domain.GhostNetStatus;
+import com.ghostnet.store.domain.SpatialKey;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementierung der dynamischen GhostNet-Abfragen über die Criteria API
+ */
+public class GhostNetRepositoryCustomImpl implements GhostNetRepositoryCustom {
+
+    /** Maximale Anzahl an Schlüsselbereichen (und damit Index-Range-Scans) pro Status */
+    private static final int MAX_KEY_RANGES = 8;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<GhostNet> findInBounds(double minLatitude, double minLongitude,
+                                       double maxLatitude, double maxLongitude, Collection<GhostNetStatus> statuses) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<GhostNet> query = cb.createQuery(GhostNet.class);
+        Root<GhostNet> ghostNet = query.from(GhostNet.class);
+        Path<Long> spatialKey = ghostNet.get("spatialKey");
+        Path<Double> latitude = ghostNet.get("latitude");
+        Path<Double> longitude = ghostNet.get("longitude");
+
+        // Grobe Auswahl über den Index auf (status, spatial_key)
+        List<Predicate> keyRanges = new ArrayList<>();
+        for (long[] range : SpatialKey.coveringRanges(minLatitude, minLongitude, maxLatitude, maxLongitude, MAX_KEY_RANGES)) {
+            keyRanges.add(cb.between(spatialKey, range[0], range[1]));
+        }
+
+        // Exakter Filter, da die Schlüsselbereiche über die Box hinausragen können
+        Predicate longitudeFilter = minLongitude <= maxLongitude
+                ? cb.between(longitude, minLongitude, maxLongitude)
+                : cb.or(cb.greaterThanOrEqualTo(longitude, minLongitude), cb.lessThanOrEqualTo(longitude, maxLongitude));
+
+        query.select(ghostNet)
+                .where(ghostNet.get("status").in(statuses),
+                        cb.or(keyRanges.toArray(new Predicate[0])),
+                        cb.between(latitude, minLatitude, maxLatitude),
+                        longitudeFilter)
+                .orderBy(cb.desc(ghostNet.get("createdAt")), cb.desc(ghostNet.get("id")));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    @Override
+    public int assignSalvors(Map<Long, Long> salvorByGhostNet, LocalDateTime now) {
+        if (salvorByGhostNet.isEmpty()) {
+            return 0;
+        }
+        // Die IDs werden als Zahlen eingesetzt, damit auch große Zuteilungen unter der Platzhaltergrenze bleiben
+        StringBuilder cases = new StringBuilder(salvorByGhostNet.size() * 24);
+        StringBuilder ids = new StringBuilder(salvorByGhostNet.size() * 8);
+        for (Map.Entry<Long, Long> entry : salvorByGhostNet.entrySet()) {
+            long ghostNetId = entry.getKey();
+            long salvorUserId = entry.getValue();
+            cases.append(" when ").append(ghostNetId).append(" then ").append(salvorUserId);
+            ids.append(ids.isEmpty() ? "" : ",").append(ghostNetId);
+        }
+        // Native Abfrage, daher Status als Code; Ausgangsstatus laut Übergangstabelle
+        GhostNetStatus assigned = GhostNetStatus.BERGUNG_BEVORSTEHEND;
+        return entityManager.createNativeQuery("update ghost_net set salvor_user_id = case id" + cases + " end, "
+                        + "status = :status, version = version + 1, updated_at = :now "
+                        + "where status in (:from) and id in (" + ids + ")")
+                .setParameter("status", assigned.getCode())
+                .setParameter("from", assigned.sources().stream().map(GhostNetStatus::getCode).toList())
+                .setParameter("now", now)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,36 @@
+package com.ghostnet.store.repository;
+
+import com.ghostnet.store.domain.GhostNetTombstone;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository Interface für GhostNetTombstone-Entity
+ * Stellt Datenbankzugriffe für Löschmarker gelöschter Geisternetze bereit
+ */
+@Repository
+public interface GhostNetTombstoneRepository extends JpaRepository<GhostNetTombstone, Long> {
+
+    /**
+     * Delta-Synchronisation: Löschungen nach der Cursor-Position (deletedAt, ghostNetId) und
+     * spätestens bis zum angegebenen Zeitpunkt, sortiert nach (deletedAt, ghostNetId)
+     */
+    @Query("select t from GhostNetTombstone t where (t.deletedAt > :deletedAt or (t.deletedAt = :deletedAt and t.ghostNetId > :id)) "
+            + "and t.deletedAt <= :until order by t.deletedAt, t.ghostNetId")
+    List<GhostNetTombstone> findDeletedAfter(@Param("deletedAt") LocalDateTime deletedAt, @Param("id") Long id,
+                                             @Param("until") LocalDateTime until, Limit limit);
+
+    /** Entfernt Löschmarker, die älter als der angegebene Zeitpunkt sind */
+    @Modifying
+    @Transactional
+    @Query("delete from GhostNetTombstone t where t.deletedAt < :before")
+    int deleteOlderThan(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,25 @@
+package com.ghostnet.store.repository;
+
+import com.ghostnet.store.domain.IngestReceipt;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Repository Interface für IngestReceipt-Entity
+ * Stellt Datenbankzugriffe für Quittungen der Schreibwarteschlange bereit
+ */
+@Repository
+public interface IngestReceiptRepository extends JpaRepository<IngestReceipt, String> {
+
+    /** Entfernt Quittungen, die älter als der angegebene Zeitpunkt sind */
+    @Modifying
+    @Transactional
+    @Query("delete from IngestReceipt r where r.processedAt < :before")
+    int deleteOlderThan(@Param("before") LocalDateTime before);
+}
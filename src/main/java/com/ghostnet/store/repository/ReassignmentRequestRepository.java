@@ -1,9 +1,15 @@
 package com.ghostnet.store.repository;
 
 import com.ghostnet.store.domain.ReassignmentRequest;
+import com.ghostnet.store.domain.ReassignmentStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -12,16 +18,109 @@ import java.util.List;
  */
 @Repository
 public interface ReassignmentRequestRepository extends JpaRepository<ReassignmentRequest, Long> {
-    /** Findet Anfragen für einen Berger mit bestimmtem Status, sortiert nach Erstellungsdatum */
-    List<ReassignmentRequest> findByCurrentSalvorIdAndStatusOrderByCreatedAtDesc(Long salvorId, String status);
+    
+    /**
+     * Gesendete Anfrage mit Position und Größe des Geisternetzes
+     * @param id ID der Anfrage
+     * @param ghostNetId ID des Geisternetzes
+     * @param status Status der Anfrage
+     * @param createdAt Zeitpunkt der Anfrage
+     * @param ghostNetLocation Koordinaten als "lat, lon" oder Ortsbeschreibung, null wenn das Netz gelöscht ist
+     * @param ghostNetSize Geschätzte Größe des Netzes
+     */
+    record SentRequest(Long id, Long ghostNetId, ReassignmentStatus status, LocalDateTime createdAt,
+                       String ghostNetLocation, String ghostNetSize) {
+        
+        /** Konstruktor für die Abfrage, setzt die Position wie in der Netzliste zusammen */
+        public SentRequest(Long id, Long ghostNetId, ReassignmentStatus status, LocalDateTime createdAt,
+                           Double latitude, Double longitude, String location, String ghostNetSize) {
+            this(id, ghostNetId, status, createdAt, formatLocation(latitude, longitude, location), ghostNetSize);
+        }
+    }
+    
+    /**
+     * Eingehende Anfrage mit Antragsteller, Position und Größe des Geisternetzes
+     * @param id ID der Anfrage
+     * @param ghostNetId ID des Geisternetzes
+     * @param requesterId ID des Antragstellers
+     * @param createdAt Zeitpunkt der Anfrage
+     * @param requesterUsername Benutzername des Antragstellers
+     * @param requesterName Name des Antragstellers, leer wenn nicht angegeben
+     * @param ghostNetLocation Koordinaten als "lat, lon" oder Ortsbeschreibung, null wenn das Netz gelöscht ist
+     * @param ghostNetSize Geschätzte Größe des Netzes
+     */
+    record IncomingRequest(Long id, Long ghostNetId, Long requesterId, LocalDateTime createdAt,
+                           String requesterUsername, String requesterName,
+                           String ghostNetLocation, String ghostNetSize) {
+        
+        /** Konstruktor für die Abfrage, setzt die Position wie in der Netzliste zusammen */
+        public IncomingRequest(Long id, Long ghostNetId, Long requesterId, LocalDateTime createdAt,
+                               String requesterUsername, String requesterName,
+                               Double latitude, Double longitude, String location, String ghostNetSize) {
+            this(id, ghostNetId, requesterId, createdAt, requesterUsername, requesterName,
+                    formatLocation(latitude, longitude, location), ghostNetSize);
+        }
+    }
+    
+    /** Koordinaten als "lat, lon", sonst die Ortsbeschreibung */
+    private static String formatLocation(Double latitude, Double longitude, String location) {
+        return latitude != null && longitude != null ? latitude + ", " + longitude : location;
+    }
     
     /** Findet Anfragen eines Antragstellers mit bestimmtem Status, sortiert nach Erstellungsdatum */
-    List<ReassignmentRequest> findByRequesterIdAndStatusOrderByCreatedAtDesc(Long requesterId, String status);
+    List<ReassignmentRequest> findByRequesterIdAndStatusOrderByCreatedAtDesc(Long requesterId, ReassignmentStatus status);
+    
+    /** Gesendete Anfragen eines Antragstellers mit Netzdaten in einer Abfrage, neueste zuerst */
+    @Query("select new com.ghostnet.store.repository.ReassignmentRequestRepository$SentRequest("
+            + "r.id, r.ghostNetId, r.status, r.createdAt, g.latitude, g.longitude, g.location, g.estimatedSize) "
+            + "from ReassignmentRequest r left join GhostNet g on g.id = r.ghostNetId "
+            + "where r.requesterId = :requesterId order by r.createdAt desc")
+    List<SentRequest> findSentByRequesterId(@Param("requesterId") Long requesterId);
+    
+    /** Eingehende Anfragen eines Bergers mit Antragsteller- und Netzdaten in einer Abfrage, neueste zuerst */
+    @Query("select new com.ghostnet.store.repository.ReassignmentRequestRepository$IncomingRequest("
+            + "r.id, r.ghostNetId, r.requesterId, r.createdAt, u.username, coalesce(u.name, ''), "
+            + "g.latitude, g.longitude, g.location, g.estimatedSize) "
+            + "from ReassignmentRequest r left join User u on u.id = r.requesterId "
+            + "left join GhostNet g on g.id = r.ghostNetId "
+            + "where r.currentSalvorId = :salvorId and r.status = :status order by r.createdAt desc")
+    List<IncomingRequest> findIncomingBySalvorId(@Param("salvorId") Long salvorId, @Param("status") ReassignmentStatus status);
+    
+    /**
+     * Setzt eine Anfrage vom Ausgangsstatus (PENDING) auf ACCEPTED oder REJECTED
+     * @return Anzahl der geänderten Zeilen, 0 wenn die Anfrage nicht mehr im Ausgangsstatus ist
+     */
+    @Modifying
+    @Query("update ReassignmentRequest r set r.status = :status, r.version = r.version + 1, r.updatedAt = :now "
+            + "where r.id = :id and r.status = :from")
+    int decide(@Param("id") Long id, @Param("from") ReassignmentStatus from, @Param("status") ReassignmentStatus status,
+               @Param("now") LocalDateTime now);
+    
+    /**
+     * Setzt alle übrigen Anfragen für ein Geisternetz vom Ausgangsstatus (PENDING) auf den Zielstatus (REJECTED)
+     * @return Anzahl der geänderten Anfragen
+     */
+    @Modifying
+    @Query("update ReassignmentRequest r set r.status = :status, r.version = r.version + 1, r.updatedAt = :now "
+            + "where r.ghostNetId = :ghostNetId and r.status = :from and r.id <> :acceptedId")
+    int rejectOthers(@Param("ghostNetId") Long ghostNetId, @Param("acceptedId") Long acceptedId,
+                     @Param("from") ReassignmentStatus from, @Param("status") ReassignmentStatus status,
+                     @Param("now") LocalDateTime now);
     
-    /** Findet alle Anfragen eines Antragstellers, sortiert nach Erstellungsdatum */
-    List<ReassignmentRequest> findByRequesterIdOrderByCreatedAtDesc(Long requesterId);
+    /**
+     * Delta-Synchronisation: Anfragen eines Users als Antragsteller oder Berger, die nach der
+     * Cursor-Position (updatedAt, id) und spätestens bis zum angegebenen Zeitpunkt geändert wurden
+     */
+    @Query("select r from ReassignmentRequest r where (r.requesterId = :userId or r.currentSalvorId = :userId) "
+            + "and (r.updatedAt > :updatedAt or (r.updatedAt = :updatedAt and r.id > :id)) "
+            + "and r.updatedAt <= :until order by r.updatedAt, r.id")
+    List<ReassignmentRequest> findChangedAfter(@Param("userId") Long userId,
+                                               @Param("updatedAt") LocalDateTime updatedAt, @Param("id") Long id,
+                                               @Param("until") LocalDateTime until, Limit limit);
     
-    /** Findet Anfragen für ein Geisternetz mit bestimmtem Status */
-    List<ReassignmentRequest> findByGhostNetIdAndStatus(Long ghostNetId, String status);
+    /** Setzt den Änderungszeitpunkt für Anfragen, die vor Einführung der Spalte gespeichert wurden */
+    @Modifying
+    @Query("update ReassignmentRequest r set r.updatedAt = coalesce(r.createdAt, :now) where r.updatedAt is null")
+    int backfillUpdatedAt(@Param("now") LocalDateTime now);
 }
 
@@ -0,0 +1,42 @@
+package com.ghostnet.store.repository;
+
+import com.ghostnet.store.domain.UserStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository Interface für UserStats-Entity
+ * Stellt Datenbankzugriffe für vorberechnete User-Statistiken bereit
+ */
+@Repository
+public interface UserStatsRepository extends JpaRepository<UserStats, Long> {
+
+    /** Addiert Differenzen auf die Zähler eines Users und legt die Zeile bei Bedarf an */
+    @Modifying
+    @Query(nativeQuery = true, value = "insert into user_stats (user_id, reported, recovered) "
+            + "values (:userId, :reported, :recovered) "
+            + "on duplicate key update reported = reported + values(reported), recovered = recovered + values(recovered)")
+    void addDelta(@Param("userId") Long userId, @Param("reported") long reported, @Param("recovered") long recovered);
+
+    /**
+     * Zählt gemeldete Geisternetze je Melder, Zeilen bestehen aus User-ID und Anzahl
+     * Sperrt die gelesenen Zeilen gegen gleichzeitige Änderungen bis zum Ende der Transaktion
+     */
+    @Query(nativeQuery = true, value = "select reporter_id, count(*) from ghost_net "
+            + "where reporter_id is not null group by reporter_id lock in share mode")
+    List<Object[]> countReportedForRepair();
+
+    /**
+     * Zählt geborgene Geisternetze je Berger, Zeilen bestehen aus User-ID und Anzahl
+     * Sperrt die gelesenen Zeilen gegen gleichzeitige Änderungen bis zum Ende der Transaktion
+     * @param recovered Code des Status GEBORGEN
+     */
+    @Query(nativeQuery = true, value = "select salvor_user_id, count(*) from ghost_net "
+            + "where status = :recovered and salvor_user_id is not null group by salvor_user_id lock in share mode")
+    List<Object[]> countRecoveredForRepair(@Param("recovered") int recovered);
+}
@@ -0,0 +1,125 @@
+package com.ghostnet.store.security;
+
+import com.ghostnet.store.domain.User;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Angemeldeter User als Spring Security Principal
+ * Trägt neben Benutzername und Passwort auch ID, Name und Telefonnummer, damit Handler den
+ * aktuellen User nicht bei jedem Request erneut aus der Datenbank laden müssen.
+ * Wird in der Session gespeichert; nach einer Profiländerung muss der Principal ersetzt werden
+ */
+public final class AuthenticatedUser implements UserDetails, CredentialsContainer {
+
+    /** Berechtigung für die Sammelzuweisung von Netzen an beliebige Bergende (netpatrol.dispatchers) */
+    public static final String DISPATCH = "DISPATCH";
+
+    private final Long id;
+
+    private final String username;
+
+    private String password;
+
+    private final String name;
+
+    private final String phone;
+
+    private final List<GrantedAuthority> authorities;
+
+    private AuthenticatedUser(Long id, String username, String password, String name, String phone,
+                              List<GrantedAuthority> authorities) {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.name = name;
+        this.phone = phone;
+        this.authorities = authorities;
+    }
+
+    /**
+     * Erstellt den Principal aus einem geladenen User ohne besondere Berechtigungen
+     * @param user User-Entity
+     * @return Principal mit den aktuellen Profildaten
+     */
+    public static AuthenticatedUser of(User user) {
+        return of(user, List.of());
+    }
+
+    /**
+     * Erstellt den Principal aus einem geladenen User
+     * @param user User-Entity
+     * @param authorities Berechtigungen, z.B. {@link #DISPATCH}
+     * @return Principal mit den aktuellen Profildaten
+     */
+    public static AuthenticatedUser of(User user, Collection<String> authorities) {
+        return new AuthenticatedUser(user.getId(), user.getUsername(), user.getPassword(), user.getName(), user.getPhone(),
+                authorities.stream().<GrantedAuthority>map(SimpleGrantedAuthority::new).toList());
+    }
+
+    /** ID des Users */
+    public Long getId() {
+        return id;
+    }
+
+    /** Vollständiger Name, kann null sein */
+    public String getName() {
+        return name;
+    }
+
+    /** Telefonnummer, kann null sein */
+    public String getPhone() {
+        return phone;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    /**
+     * Prüft, ob der User eine Berechtigung besitzt
+     * @param authority Name der Berechtigung, z.B. {@link #DISPATCH}
+     * @return true wenn vorhanden
+     */
+    public boolean hasAuthority(String authority) {
+        return authorities.stream().anyMatch(granted -> authority.equals(granted.getAuthority()));
+    }
+
+    /** Entfernt das Passwort nach der Anmeldung, damit es nicht in der Session liegt */
+    @Override
+    public void eraseCredentials() {
+        password = null;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof AuthenticatedUser user && Objects.equals(username, user.username);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(username);
+    }
+
+    @Override
+    public String toString() {
+        return "AuthenticatedUser[id=" + id + ", username=" + username + "]";
+    }
+}
@@ -0,0 +1,138 @@
+package com.ghostnet.store.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt Password Encoder mit eigenem, begrenztem Thread-Pool
+ * Hashen und Prüfen laufen auf höchstens so vielen Threads wie konfiguriert, damit viele gleichzeitige
+ * Logins nicht alle Tomcat-Worker mit BCrypt belegen. Ist die Warteschlange voll oder wird die maximale
+ * Wartezeit überschritten, wird sofort mit {@link PasswordHashingBusyException} abgelehnt.
+ * Hashes mit abweichendem Work-Factor (höher oder niedriger) gelten als veraltet und werden von Spring
+ * Security nach erfolgreichem Login über den UserDetailsPasswordService neu gespeichert.
+ * Metriken: executor.* mit name=password-hashing (executor.idle ist die Wartezeit in der Queue) und
+ * netpatrol.security.password.rejected
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    /** Work-Factor aus einem BCrypt-Hash, z.B. $2a$10$... */
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[abyx]?\\$(\\d\\d)\\$");
+
+    private final BCryptPasswordEncoder delegate;
+
+    private final int strength;
+
+    private final Duration maxWait;
+
+    private final ThreadPoolExecutor pool;
+
+    private final ExecutorService executor;
+
+    private final Counter rejected;
+
+    /**
+     * Erstellt den Encoder und seinen Thread-Pool
+     * @param strength BCrypt Work-Factor für neue Hashes (4 bis 31)
+     * @param threads Anzahl der Hash-Threads, 0 für alle Prozessorkerne
+     * @param queueCapacity Maximale Anzahl wartender Hash-Aufträge
+     * @param maxWait Maximale Zeit in Queue und Berechnung, bevor abgelehnt wird
+     * @param meterRegistry Registry für die Pool-Metriken
+     */
+    public BoundedPasswordEncoder(int strength, int threads, int queueCapacity, Duration maxWait, MeterRegistry meterRegistry) {
+        this.delegate = new BCryptPasswordEncoder(strength);
+        this.strength = strength;
+        this.maxWait = maxWait;
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.pool = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), threadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "password-hashing");
+        this.rejected = Counter.builder("netpatrol.security.password.rejected")
+                .description("Password hashing requests rejected because the pool was saturated")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Ein Hash ist veraltet, wenn sein Work-Factor vom konfigurierten abweicht
+     * So kann der Work-Factor erhöht und auch wieder gesenkt werden, ohne Passwörter zurückzusetzen
+     * @param encodedPassword Gespeicherter Hash
+     * @return true, wenn der Hash mit dem konfigurierten Work-Factor neu berechnet werden soll
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != strength;
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    /** Führt eine BCrypt-Operation auf dem Pool aus und wartet höchstens maxWait */
+    private <T> T run(Callable<T> operation) {
+        Future<T> future;
+        try {
+            future = executor.submit(operation);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingBusyException("Password hashing queue is full", e);
+        }
+        try {
+            return future.get(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new PasswordHashingBusyException("Password hashing took longer than " + maxWait, e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingBusyException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,14 @@
+package com.ghostnet.store.security;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+/**
+ * Wird geworfen, wenn der Password-Hashing-Pool ausgelastet ist
+ * Der Login wird dann sofort mit 503 abgelehnt statt auf einen freien Thread zu warten
+ */
+public class PasswordHashingBusyException extends AuthenticationServiceException {
+
+    public PasswordHashingBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -10,11 +10,23 @@ import org.springframework.beans.factory.annotation.Autowired;
 import com.ghostnet.store.service.UserService;
 import lombok.AllArgsConstructor;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.beans.factory.annotation.Value;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
+import org.springframework.security.web.context.DelegatingSecurityContextRepository;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
 
 /**
  * Security Konfiguration für Spring Security
@@ -39,40 +51,88 @@ public class SecurityConfig {
 
     /**
      * Konfiguriert den Password Encoder
-     * @return BCryptPasswordEncoder für Passwort-Verschlüsselung
+     * BCrypt läuft auf einem eigenen, begrenzten Thread-Pool, damit Login-Spitzen die API nicht blockieren
+     * @param strength BCrypt Work-Factor; abweichende Hashes werden beim nächsten Login neu berechnet
+     * @param threads Anzahl der Hash-Threads, 0 für alle Prozessorkerne
+     * @param queueCapacity Maximale Anzahl wartender Logins
+     * @param maxWait Maximale Wartezeit eines Logins auf den Hash
+     * @param meterRegistry Registry für die Pool-Metriken
+     * @return BoundedPasswordEncoder für Passwort-Verschlüsselung
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${netpatrol.security.password.strength:10}") int strength,
+                                           @Value("${netpatrol.security.password.threads:0}") int threads,
+                                           @Value("${netpatrol.security.password.queue-capacity:64}") int queueCapacity,
+                                           @Value("${netpatrol.security.password.max-wait:PT5S}") Duration maxWait,
+                                           MeterRegistry meterRegistry) {
+        return new BoundedPasswordEncoder(strength, threads, queueCapacity, maxWait, meterRegistry);
+    }
+
+    /**
+     * Behandelt fehlgeschlagene Logins
+     * Ist der Hash-Pool ausgelastet, wird mit 503 und Retry-After geantwortet, sonst zur Login-Seite umgeleitet
+     * @return AuthenticationFailureHandler für das Login-Formular
+     */
+    private AuthenticationFailureHandler loginFailureHandler() {
+        AuthenticationFailureHandler loginPage = new SimpleUrlAuthenticationFailureHandler("/login.html?error=true");
+        return (request, response, exception) -> {
+            if (exception instanceof PasswordHashingBusyException) {
+                response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+                response.getWriter().write("Login is busy, please retry");
+                return;
+            }
+            loginPage.onAuthenticationFailure(request, response, exception);
+        };
     }
 
     /**
      * Konfiguriert den Authentication Manager
-     * @param config Authentication Configuration
+     * Ohne übergeordneten Manager: ein fehlgeschlagener Login wird nicht an einen weiteren Manager
+     * weitergereicht (vorher delegierte der globale Manager an sich selbst bis zum StackOverflowError).
+     * Der UserService speichert Hashes mit veraltetem Work-Factor nach erfolgreichem Login neu
+     * @param passwordEncoder Password Encoder
      * @return Authentication Manager
      */
     @Bean
-    public AuthenticationManager authenticationManager(AuthenticationConfiguration config) throws Exception {
-        return config.getAuthenticationManager();
+    public AuthenticationManager authenticationManager(PasswordEncoder passwordEncoder) {
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(appUserService);
+        provider.setPasswordEncoder(passwordEncoder);
+        provider.setUserDetailsPasswordService(appUserService);
+        return new ProviderManager(provider);
+    }
+
+    /**
+     * Speicherort des Security Context zwischen Requests (wie Spring Security Standard: Request und Session)
+     * Als Bean verfügbar, damit der Principal nach einer Profiländerung in der Session ersetzt werden kann
+     * @return SecurityContextRepository für Request-Attribut und HTTP-Session
+     */
+    @Bean
+    public SecurityContextRepository securityContextRepository() {
+        return new DelegatingSecurityContextRepository(
+                new RequestAttributeSecurityContextRepository(), new HttpSessionSecurityContextRepository());
     }
 
     /**
      * Konfiguriert die Security Filter Chain
      * Definiert welche Routes öffentlich sind und welche Authentication benötigen
      * @param httpSecurity HttpSecurity Builder
+     * @param authenticationManager Authentication Manager für das Login-Formular
      * @return Konfigurierte Security Filter Chain
      */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity httpSecurity) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity httpSecurity, AuthenticationManager authenticationManager) throws Exception {
         return httpSecurity
         .csrf(AbstractHttpConfigurer::disable)
-            .userDetailsService(userDetailsService())
+            .authenticationManager(authenticationManager)
+            .securityContext(context -> context.securityContextRepository(securityContextRepository()))
             .formLogin(httpForm -> {
                 // Login-Konfiguration
                 httpForm.loginPage("/login.html")
                         .loginProcessingUrl("/login")
                         .defaultSuccessUrl("/dashboard", true)
-                        .failureUrl("/login.html?error=true")
+                        .failureHandler(loginFailureHandler())
                         .permitAll();
             })
             .logout(logout -> {
@@ -86,12 +146,14 @@ public class SecurityConfig {
                 registry.requestMatchers("/", "/index.html", "/login.html", "/signup.html", "/req/signup", "/assets/**", "/styles.css", "/error", "/impressum", "/datenschutz", "/agb").permitAll();
                 // Anonyme Geisternetz-Meldungen erlauben
                 registry.requestMatchers(HttpMethod.POST, "/api/ghostnets").permitAll();
+                // Status anonymer Meldungen aus der Schreibwarteschlange
+                registry.requestMatchers(HttpMethod.GET, "/api/ghostnets/ingest/*").permitAll();
                 // Geschützte Routes (benötigen Authentication)
                 registry.requestMatchers("/dashboard", "/dashboard/**", "/dashboard.html", 
                                           "/meine-netze", "/meine-netze/**", "/meine-netze.html", 
                                           "/meldungen", "/meldungen/**", "/meldungen.html", 
                                           "/bergungen", "/bergungen/**", "/bergungen.html", 
-                                          "/api/user/**", "/api/ghostnets/**", "/api/config/**", "/api/reassignment-requests/**").authenticated();
+                                          "/api/user/**", "/api/ghostnets/**", "/api/config/**", "/api/reassignment-requests/**", "/api/sync/**", "/api/analytics/**").authenticated();
                 // Alle anderen Requests benötigen Authentication
                 registry.anyRequest().authenticated();
             })
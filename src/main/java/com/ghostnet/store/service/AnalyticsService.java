@@ -0,0 +1,265 @@
+package com.ghostnet.store.service;
+
+import com.ghostnet.store.domain.DailyStatusRollup;
+import com.ghostnet.store.domain.GhostNetStatus;
+import com.ghostnet.store.repository.DailyStatusRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Organisationsweite Auswertungen auf Basis der täglichen Status-Aggregate
+ * Statusänderungen werden gesammelt und vor dem Commit derselben Transaktion in daily_status_rollup verbucht. Abfragen über
+ * Zeiträume fassen nur die Tageszeilen zusammen und lesen ghost_net nicht
+ */
+@Service
+public class AnalyticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsService.class);
+
+    private static final GhostNetStatus REPORTED = GhostNetStatus.GEMELDET;
+
+    private static final GhostNetStatus RECOVERED = GhostNetStatus.GEBORGEN;
+
+    private final DailyStatusRollupRepository rollupRepository;
+
+    private final GhostNetSnapshotLoader snapshotLoader;
+
+    private final TransactionTemplate transaction;
+
+    /** Differenzen je Tag und Status: erreicht, verlassen, Bergungssekunden, Bergungen */
+    private final CounterDeltas<DailyStatusRollup.Key> deltas;
+
+    /** Gesetzt, sobald die Aggregate aus dem Bestand befüllt sind, davor zählt die Befüllung jede Änderung mit */
+    private volatile boolean seeded;
+
+    /** Zeitraster der Auswertung */
+    public enum Granularity {
+        DAY,
+        WEEK
+    }
+
+    /**
+     * Zusammengefasste Werte eines Zeitabschnitts
+     * @param start Erster Tag des Abschnitts
+     * @param reported Anzahl neuer Meldungen
+     * @param entered Anzahl der Wechsel in jeden Status
+     * @param meanRecoveryHours Mittlere Dauer von der Meldung bis zur Bergung in Stunden (null ohne Bergungen)
+     */
+    public record Bucket(LocalDate start, long reported, Map<String, Long> entered, Double meanRecoveryHours) {
+    }
+
+    /**
+     * Auswertung eines Zeitraums
+     * @param from Erster Tag
+     * @param to Letzter Tag
+     * @param granularity Zeitraster
+     * @param statusCounts Anzahl der Netze je Status am Ende des Zeitraums
+     * @param buckets Werte je Zeitabschnitt
+     * @param meanRecoveryHours Mittlere Bergungsdauer im gesamten Zeitraum in Stunden (null ohne Bergungen)
+     */
+    public record Report(LocalDate from, LocalDate to, Granularity granularity,
+                         Map<String, Long> statusCounts, List<Bucket> buckets, Double meanRecoveryHours) {
+    }
+
+    public AnalyticsService(DailyStatusRollupRepository rollupRepository,
+                            GhostNetSnapshotLoader snapshotLoader,
+                            PlatformTransactionManager transactionManager) {
+        this.rollupRepository = rollupRepository;
+        this.snapshotLoader = snapshotLoader;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.deltas = new CounterDeltas<>(4,
+                (key, delta) -> {
+                    if (isSeeded()) {
+                        rollupRepository.addDelta(key.getDay(), key.getStatus(), delta[0], delta[1], delta[2], delta[3]);
+                    }
+                },
+                transactionManager);
+    }
+
+    /**
+     * Merkt eine Statusänderung für das Aggregat des aktuellen Tages vor
+     * Geschrieben wird beim Commit der umgebenden Transaktion
+     * @param event Änderungsereignis
+     */
+    @EventListener
+    public void onGhostNetChanged(GhostNetChangedEvent event) {
+        GhostNetSnapshot before = event.before();
+        GhostNetSnapshot after = event.after();
+        GhostNetStatus from = before != null ? before.status() : null;
+        GhostNetStatus to = after != null ? after.status() : null;
+        if (from == to) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+        if (from != null) {
+            deltas.add(new DailyStatusRollup.Key(today, from.name()), 0, 1, 0, 0);
+        }
+        if (to != null) {
+            long seconds = 0;
+            long recoveries = 0;
+            if (to == RECOVERED && after.createdAt() != null) {
+                seconds = Math.max(0, Duration.between(after.createdAt(), now).toSeconds());
+                recoveries = 1;
+            }
+            deltas.add(new DailyStatusRollup.Key(today, to.name()), 1, 0, seconds, recoveries);
+        }
+    }
+
+    /**
+     * Füllt die Aggregate beim ersten Start aus dem aktuellen Bestand
+     * Da keine Statushistorie existiert, wird jedes Netz am Tag seiner Erstellung als GEMELDET
+     * und ein abweichender aktueller Status am Tag der letzten Änderung gezählt. Zwischenschritte
+     * gehen dabei verloren, ab dann werden alle Änderungen exakt verbucht. Ob schon befüllt wurde,
+     * entscheidet die Markierung in daily_status_rollup_seed, nicht der Inhalt der Aggregate: ein
+     * Massenimport vor dem Start verbucht nichts, seine Netze zählt diese Befüllung mit
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        Map<DailyStatusRollup.Key, DailyStatusRollup> rollups = new HashMap<>();
+        Long loaded = transaction.execute(status -> {
+            // Die Markierung sperrt gleichzeitig startende Instanzen bis zum Commit aus
+            if (rollupRepository.markSeeded(LocalDateTime.now()) == 0) {
+                return null;
+            }
+            long count = snapshotLoader.forEach(ghostNet -> count(rollups, ghostNet));
+            rollups.values().forEach(this::addDelta);
+            return count;
+        });
+        seeded = true;
+        if (loaded != null && loaded > 0) {
+            logger.info("Seeded {} daily status rollups from {} ghost nets", rollups.size(), loaded);
+        }
+    }
+
+    /**
+     * Verbucht importierte Netze mit ihren historischen Tagen in den Aggregaten
+     * Muss in der Transaktion aufgerufen werden, die die Netze speichert. Vor der ersten Befüllung
+     * wird nichts verbucht, da die Befüllung die Netze aus ghost_net zählt
+     * @param ghostNets Importierte Geisternetze
+     */
+    public void recordImported(List<GhostNetSnapshot> ghostNets) {
+        if (!isSeeded()) {
+            return;
+        }
+        Map<DailyStatusRollup.Key, DailyStatusRollup> rollups = new HashMap<>();
+        ghostNets.forEach(ghostNet -> count(rollups, ghostNet));
+        rollups.values().forEach(this::addDelta);
+    }
+
+    /**
+     * Zählt ein Netz am Tag seiner Erstellung als GEMELDET und einen abweichenden Status am Tag der letzten Änderung
+     */
+    private static void count(Map<DailyStatusRollup.Key, DailyStatusRollup> rollups, GhostNetSnapshot ghostNet) {
+        if (ghostNet.createdAt() == null || ghostNet.status() == null) {
+            return;
+        }
+        LocalDate created = ghostNet.createdAt().toLocalDate();
+        DailyStatusRollup reported = rollup(rollups, created, REPORTED);
+        reported.setEntered(reported.getEntered() + 1);
+        if (ghostNet.status() == REPORTED) {
+            return;
+        }
+        LocalDateTime changedAt = ghostNet.updatedAt() != null ? ghostNet.updatedAt() : ghostNet.createdAt();
+        LocalDate changed = changedAt.toLocalDate();
+        DailyStatusRollup left = rollup(rollups, changed, REPORTED);
+        left.setLeft(left.getLeft() + 1);
+        DailyStatusRollup entered = rollup(rollups, changed, ghostNet.status());
+        entered.setEntered(entered.getEntered() + 1);
+        if (ghostNet.status() == RECOVERED) {
+            entered.setRecoverySeconds(entered.getRecoverySeconds()
+                    + Math.max(0, Duration.between(ghostNet.createdAt(), changedAt).toSeconds()));
+            entered.setRecoveryCount(entered.getRecoveryCount() + 1);
+        }
+    }
+
+    private static DailyStatusRollup rollup(Map<DailyStatusRollup.Key, DailyStatusRollup> rollups, LocalDate day, GhostNetStatus status) {
+        // Die Aggregate führen den Status unter seinem Namen, wie er auch in der Auswertung erscheint
+        return rollups.computeIfAbsent(new DailyStatusRollup.Key(day, status.name()), key -> {
+            DailyStatusRollup rollup = new DailyStatusRollup();
+            rollup.setDay(day);
+            rollup.setStatus(status.name());
+            return rollup;
+        });
+    }
+
+    private void addDelta(DailyStatusRollup rollup) {
+        rollupRepository.addDelta(rollup.getDay(), rollup.getStatus(),
+                rollup.getEntered(), rollup.getLeft(), rollup.getRecoverySeconds(), rollup.getRecoveryCount());
+    }
+
+    private boolean isSeeded() {
+        if (!seeded) {
+            seeded = rollupRepository.countSeedMarkers() > 0;
+        }
+        return seeded;
+    }
+
+    /**
+     * Erstellt die Auswertung eines Zeitraums
+     * @param from Erster Tag (inklusive)
+     * @param to Letzter Tag (inklusive)
+     * @param granularity Zeitraster
+     * @return Statusverteilung am Ende des Zeitraums und Werte je Zeitabschnitt
+     */
+    public Report report(LocalDate from, LocalDate to, Granularity granularity) {
+        Map<String, Long> statusCounts = new LinkedHashMap<>();
+        for (Object[] row : rollupRepository.countStatusesAt(to)) {
+            statusCounts.put((String) row[0], ((Number) row[1]).longValue());
+        }
+
+        TreeMap<LocalDate, List<DailyStatusRollup>> byBucket = new TreeMap<>();
+        for (LocalDate day = bucketStart(from, granularity); !day.isAfter(to); day = next(day, granularity)) {
+            byBucket.put(day, new ArrayList<>());
+        }
+        long totalSeconds = 0;
+        long totalRecoveries = 0;
+        for (DailyStatusRollup rollup : rollupRepository.findByDayBetweenOrderByDay(from, to)) {
+            byBucket.get(bucketStart(rollup.getDay(), granularity)).add(rollup);
+            totalSeconds += rollup.getRecoverySeconds();
+            totalRecoveries += rollup.getRecoveryCount();
+        }
+
+        List<Bucket> buckets = new ArrayList<>(byBucket.size());
+        byBucket.forEach((start, rollups) -> {
+            Map<String, Long> entered = new LinkedHashMap<>();
+            long seconds = 0;
+            long recoveries = 0;
+            for (DailyStatusRollup rollup : rollups) {
+                entered.merge(rollup.getStatus(), rollup.getEntered(), Long::sum);
+                seconds += rollup.getRecoverySeconds();
+                recoveries += rollup.getRecoveryCount();
+            }
+            buckets.add(new Bucket(start, entered.getOrDefault(REPORTED.name(), 0L), entered, meanHours(seconds, recoveries)));
+        });
+        return new Report(from, to, granularity, statusCounts, buckets, meanHours(totalSeconds, totalRecoveries));
+    }
+
+    private static LocalDate bucketStart(LocalDate day, Granularity granularity) {
+        return granularity == Granularity.WEEK ? day.with(DayOfWeek.MONDAY) : day;
+    }
+
+    private static LocalDate next(LocalDate start, Granularity granularity) {
+        return granularity == Granularity.WEEK ? start.plusWeeks(1) : start.plusDays(1);
+    }
+
+    private static Double meanHours(long seconds, long count) {
+        return count > 0 ? seconds / 3600.0 / count : null;
+    }
+}
@@ -0,0 +1,312 @@
+package com.ghostnet.store.service;
+
+import java.util.Arrays;
+
+/**
+ * Auktionsalgorithmus (Bertsekas) für die Zuordnung von Netzen zu Bergenden mit Kapazitätsgrenzen
+ * Jeder Bergende bietet so viele gleichwertige Plätze wie seine Kapazität, jedes Netz hat zusätzlich
+ * einen eigenen Platz "nicht zugewiesen" zu festen Kosten. Je Bergenden-Platz bietet außerdem eine
+ * kostenlose Platzhalter-Person mit, die jeden Bergenden-Platz und jeden Nicht-zugewiesen-Platz nehmen
+ * kann. So gibt es gleich viele Personen wie Plätze, jede Person bekommt am Ende einen Platz und
+ * ε-Skalierung ist zulässig. Bei ganzzahligen Kosten und ε unter 1/(Anzahl Personen) ist das Ergebnis
+ * exakt minimal
+ */
+final class AssignmentAuction {
+
+    /** Netz bleibt ohne Bergenden */
+    static final int UNASSIGNED = -1;
+
+    private static final int NONE = -1;
+
+    private static final int DUMMY = -2;
+
+    /** Faktor, um den ε zwischen zwei Phasen verkleinert wird */
+    private static final double EPSILON_FACTOR = 5;
+
+    private final double[] costs;
+
+    private final int nets;
+
+    private final int salvors;
+
+    private final double unassignedCost;
+
+    /** Erster Platz je Bergendem; die Plätze eines Bergenden liegen zusammenhängend */
+    private final int[] firstSlot;
+
+    private final int[] capacity;
+
+    private final int slots;
+
+    /** Plätze je Bergendem als Min-Heap über dem Preis, Wurzel ist der günstigste Platz */
+    private final int[] heap;
+
+    private final double[] slotPrice;
+
+    /** Preis des günstigsten und des zweitgünstigsten Platzes je Bergendem, zusammenhängend für die Gebotsschleife */
+    private final double[] lowestPrice;
+
+    private final double[] secondLowestPrice;
+
+    private final int[] slotHolder;
+
+    private final double[] dummyPrice;
+
+    private final int[] dummyHolder;
+
+    /** Nicht-zugewiesen-Plätze als Min-Heap über dem Preis, für die Gebote der Platzhalter */
+    private final int[] dummyHeap;
+
+    /** Position je Nicht-zugewiesen-Platz in dummyHeap */
+    private final int[] dummyPosition;
+
+    /** Personen ohne Platz (Netze 0..nets-1, danach Platzhalter) */
+    private final int[] pending;
+
+    private int pendingSize;
+
+    private double epsilon;
+
+    private AssignmentAuction(double[] costs, int nets, int[] capacities, double unassignedCost) {
+        this.costs = costs;
+        this.nets = nets;
+        this.salvors = capacities.length;
+        this.unassignedCost = unassignedCost;
+        this.firstSlot = new int[salvors];
+        this.capacity = new int[salvors];
+        int total = 0;
+        for (int j = 0; j < salvors; j++) {
+            firstSlot[j] = total;
+            // Mehr Plätze als Netze kann ein Bergender nie belegen
+            capacity[j] = Math.min(Math.max(0, capacities[j]), nets);
+            total += capacity[j];
+        }
+        this.slots = total;
+        this.heap = new int[slots];
+        this.slotPrice = new double[slots];
+        this.slotHolder = new int[slots];
+        this.lowestPrice = new double[salvors];
+        this.secondLowestPrice = new double[salvors];
+        for (int s = 0; s < slots; s++) {
+            heap[s] = s;
+        }
+        for (int j = 0; j < salvors; j++) {
+            updateLowestPrices(j);
+        }
+        this.dummyPrice = new double[nets];
+        this.dummyHolder = new int[nets];
+        this.dummyHeap = new int[nets];
+        this.dummyPosition = new int[nets];
+        for (int i = 0; i < nets; i++) {
+            dummyHeap[i] = i;
+            dummyPosition[i] = i;
+        }
+        this.pending = new int[nets + slots];
+    }
+
+    /**
+     * Ordnet die Netze den Bergenden mit minimalen Gesamtkosten zu
+     * Ein Netz bleibt nur dann ohne Bergenden, wenn keine Kapazität frei ist oder jede Zuordnung
+     * teurer als unassignedCost wäre
+     * @param costs Kosten je Netz und Bergendem, zeilenweise (nets x capacities.length), ganzzahlig
+     * @param nets Anzahl der Netze
+     * @param capacities Höchstzahl an Netzen je Bergendem
+     * @param unassignedCost Kosten, wenn ein Netz ohne Bergenden bleibt
+     * @return Index des Bergenden je Netz oder UNASSIGNED
+     */
+    static int[] solve(double[] costs, int nets, int[] capacities, double unassignedCost) {
+        return new AssignmentAuction(costs, nets, capacities, unassignedCost).run();
+    }
+
+    private int[] run() {
+        int persons = nets + slots;
+        double maxCost = unassignedCost;
+        for (double cost : costs) {
+            maxCost = Math.max(maxCost, cost);
+        }
+        double finalEpsilon = 1.0 / (persons + 1);
+        epsilon = Math.max(finalEpsilon, maxCost / EPSILON_FACTOR);
+        while (true) {
+            phase();
+            if (epsilon <= finalEpsilon) {
+                break;
+            }
+            epsilon = Math.max(finalEpsilon, epsilon / EPSILON_FACTOR);
+        }
+
+        int[] result = new int[nets];
+        Arrays.fill(result, UNASSIGNED);
+        for (int j = 0; j < salvors; j++) {
+            for (int s = firstSlot[j]; s < firstSlot[j] + capacity[j]; s++) {
+                int holder = slotHolder[s];
+                if (holder >= 0 && holder < nets) {
+                    result[holder] = j;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Eine Auktionsphase: alle Zuordnungen werden verworfen, die Preise der vorigen Phase bleiben */
+    private void phase() {
+        Arrays.fill(slotHolder, NONE);
+        Arrays.fill(dummyHolder, NONE);
+        pendingSize = 0;
+        for (int person = nets + slots - 1; person >= 0; person--) {
+            pending[pendingSize++] = person;
+        }
+        while (pendingSize > 0) {
+            int person = pending[--pendingSize];
+            if (person < nets) {
+                bidForNet(person);
+            } else {
+                bidForPlaceholder(person);
+            }
+        }
+    }
+
+    /** Gebot eines Netzes auf den Platz mit dem höchsten Wert (negative Kosten minus Preis) */
+    private void bidForNet(int net) {
+        double best = -unassignedCost - dummyPrice[net];
+        double second = Double.NEGATIVE_INFINITY;
+        int target = DUMMY;
+        int row = net * salvors;
+        // Bergende ohne Kapazität haben unendliche Preise und werden nie gewählt
+        for (int j = 0; j < salvors; j++) {
+            double cost = costs[row + j];
+            double value = -cost - lowestPrice[j];
+            if (value > best) {
+                second = best;
+                best = value;
+                target = j;
+            } else if (value > second) {
+                second = value;
+            }
+            // Der zweitgünstigste Platz desselben Bergenden ist ein eigenes Objekt
+            second = Math.max(second, -cost - secondLowestPrice[j]);
+        }
+        if (target == DUMMY) {
+            awardDummy(net, net, increment(best, second));
+        } else {
+            award(net, target, increment(best, second));
+        }
+    }
+
+    /** Gebot eines Platzhalters: er kostet nichts und nimmt den günstigsten Platz */
+    private void bidForPlaceholder(int person) {
+        double best = Double.NEGATIVE_INFINITY;
+        double second = Double.NEGATIVE_INFINITY;
+        int target = DUMMY;
+        if (nets > 0) {
+            best = -dummyPrice[dummyHeap[0]];
+            second = -secondDummyPrice();
+        }
+        for (int j = 0; j < salvors; j++) {
+            double value = -lowestPrice[j];
+            if (value > best) {
+                second = best;
+                best = value;
+                target = j;
+            } else if (value > second) {
+                second = value;
+            }
+            second = Math.max(second, -secondLowestPrice[j]);
+        }
+        if (target == DUMMY) {
+            awardDummy(person, dummyHeap[0], increment(best, second));
+        } else {
+            award(person, target, increment(best, second));
+        }
+    }
+
+    private double increment(double best, double second) {
+        return second == Double.NEGATIVE_INFINITY ? epsilon : best - second + epsilon;
+    }
+
+    /** Gibt den günstigsten Platz eines Bergenden an die bietende Person; der bisherige Inhaber bietet erneut */
+    private void award(int person, int salvor, double increment) {
+        int slot = heap[firstSlot[salvor]];
+        int previous = slotHolder[slot];
+        slotHolder[slot] = person;
+        slotPrice[slot] += increment;
+        siftDown(salvor);
+        updateLowestPrices(salvor);
+        if (previous != NONE) {
+            pending[pendingSize++] = previous;
+        }
+    }
+
+    /** Gibt den Nicht-zugewiesen-Platz eines Netzes an die bietende Person */
+    private void awardDummy(int person, int net, double increment) {
+        int previous = dummyHolder[net];
+        dummyHolder[net] = person;
+        dummyPrice[net] += increment;
+        siftDownDummy(dummyPosition[net]);
+        if (previous != NONE) {
+            pending[pendingSize++] = previous;
+        }
+    }
+
+    private double secondDummyPrice() {
+        if (nets < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double price = dummyPrice[dummyHeap[1]];
+        return nets > 2 ? Math.min(price, dummyPrice[dummyHeap[2]]) : price;
+    }
+
+    private void siftDownDummy(int index) {
+        while (true) {
+            int left = 2 * index + 1;
+            int smallest = index;
+            if (left < nets && dummyPrice[dummyHeap[left]] < dummyPrice[dummyHeap[smallest]]) {
+                smallest = left;
+            }
+            if (left + 1 < nets && dummyPrice[dummyHeap[left + 1]] < dummyPrice[dummyHeap[smallest]]) {
+                smallest = left + 1;
+            }
+            if (smallest == index) {
+                return;
+            }
+            int net = dummyHeap[index];
+            dummyHeap[index] = dummyHeap[smallest];
+            dummyHeap[smallest] = net;
+            dummyPosition[dummyHeap[index]] = index;
+            dummyPosition[net] = smallest;
+            index = smallest;
+        }
+    }
+
+    /** Übernimmt die Preise der beiden günstigsten Plätze eines Bergenden, unendlich wenn es sie nicht gibt */
+    private void updateLowestPrices(int salvor) {
+        int first = firstSlot[salvor];
+        int size = capacity[salvor];
+        lowestPrice[salvor] = size > 0 ? slotPrice[heap[first]] : Double.POSITIVE_INFINITY;
+        double second = size > 1 ? slotPrice[heap[first + 1]] : Double.POSITIVE_INFINITY;
+        secondLowestPrice[salvor] = size > 2 ? Math.min(second, slotPrice[heap[first + 2]]) : second;
+    }
+
+    /** Stellt die Heap-Eigenschaft wieder her, nachdem der Preis der Wurzel gestiegen ist */
+    private void siftDown(int salvor) {
+        int first = firstSlot[salvor];
+        int size = capacity[salvor];
+        int index = 0;
+        while (true) {
+            int left = 2 * index + 1;
+            int smallest = index;
+            if (left < size && slotPrice[heap[first + left]] < slotPrice[heap[first + smallest]]) {
+                smallest = left;
+            }
+            if (left + 1 < size && slotPrice[heap[first + left + 1]] < slotPrice[heap[first + smallest]]) {
+                smallest = left + 1;
+            }
+            if (smallest == index) {
+                return;
+            }
+            int slot = heap[first + index];
+            heap[first + index] = heap[first + smallest];
+            heap[first + smallest] = slot;
+            index = smallest;
+        }
+    }
+}
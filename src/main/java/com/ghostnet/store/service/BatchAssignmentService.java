@@ -0,0 +1,227 @@
+package com.ghostnet.store.service;
+
+import com.ghostnet.store.domain.GhostNet;
+import com.ghostnet.store.domain.GhostNetStatus;
+import com.ghostnet.store.repository.GhostNetRepository;
+import com.ghostnet.store.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Verteilt alle gemeldeten Netze auf einmal an verfügbare Bergende, z.B. an Koordinationstagen
+ * Die Entfernungen zwischen Netzen und Bergenden werden parallel berechnet, die Zuordnung mit minimaler
+ * Gesamtentfernung unter Einhaltung der Kapazitäten liefert {@link AssignmentAuction}. Das Ergebnis wird
+ * mit einem einzigen UPDATE gespeichert; Netze, die inzwischen anderweitig zugewiesen wurden, werden
+ * übersprungen
+ */
+@Service
+public class BatchAssignmentService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchAssignmentService.class);
+
+    /** Maximale Anzahl an IDs je Sperrabfrage, bleibt unter der Platzhaltergrenze von MySQL */
+    private static final int LOCK_CHUNK_SIZE = 10_000;
+
+    /**
+     * Verfügbarer Bergender
+     * @param userId ID des Users
+     * @param latitude Breitengrad des Standorts
+     * @param longitude Längengrad des Standorts
+     * @param capacity Höchstzahl an Netzen, die er übernimmt
+     */
+    public record Salvor(Long userId, Double latitude, Double longitude, Integer capacity) {
+    }
+
+    /**
+     * Anfrage für eine Verteilung
+     * @param salvors Verfügbare Bergende
+     * @param maxDistanceMeters Netze, die weiter von jedem freien Bergenden entfernt sind, bleiben gemeldet (optional)
+     */
+    public record Request(List<Salvor> salvors, Double maxDistanceMeters) {
+    }
+
+    /**
+     * Zuweisung eines Netzes
+     * @param ghostNetId ID des Geisternetzes
+     * @param salvorUserId ID des Bergenden
+     * @param distanceMeters Großkreisentfernung zwischen Bergendem und Netz in Metern
+     */
+    public record Assignment(Long ghostNetId, Long salvorUserId, long distanceMeters) {
+    }
+
+    /**
+     * Ergebnis einer Verteilung
+     * @param assignments Gespeicherte Zuweisungen
+     * @param unassigned IDs der Netze, die keinem Bergenden zugeordnet werden konnten
+     * @param skipped IDs der Netze, die während der Berechnung anderweitig geändert wurden
+     * @param totalDistanceMeters Summe der Entfernungen aller gespeicherten Zuweisungen
+     */
+    public record Result(List<Assignment> assignments, List<Long> unassigned, List<Long> skipped, long totalDistanceMeters) {
+    }
+
+    private final GhostNetRepository ghostNetRepository;
+
+    private final UserRepository userRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final TransactionTemplate transaction;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public BatchAssignmentService(GhostNetRepository ghostNetRepository,
+                                  UserRepository userRepository,
+                                  ApplicationEventPublisher eventPublisher,
+                                  PlatformTransactionManager transactionManager) {
+        this.ghostNetRepository = ghostNetRepository;
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Verteilt alle gemeldeten Netze mit Position an die angegebenen Bergenden
+     * @param request Bergende mit Standort und Kapazität, optional maximale Entfernung
+     * @return Gespeicherte Zuweisungen, nicht zugeordnete und übersprungene Netze
+     * @throws IllegalArgumentException bei ungültigen oder unbekannten Bergenden
+     */
+    public Result assignAll(Request request) {
+        List<Salvor> salvors = validate(request);
+        Double maxDistance = request.maxDistanceMeters();
+        long started = System.nanoTime();
+
+        List<GhostNetSnapshot> ghostNets = ghostNetRepository.findByStatusOrderByIdAsc(GhostNetStatus.GEMELDET).stream()
+                .map(GhostNetSnapshot::of)
+                .filter(GhostNetSnapshot::hasPosition)
+                .toList();
+        int nets = ghostNets.size();
+        int count = salvors.size();
+        double[] costs = distances(ghostNets, salvors);
+        int[] capacities = salvors.stream().mapToInt(Salvor::capacity).toArray();
+
+        // Eine Zuordnung muss günstiger sein als keine: ohne Grenze wird jedes Netz zugewiesen, solange Kapazität frei ist
+        double unassignedCost = maxDistance != null
+                ? Math.floor(maxDistance) + 1
+                : Arrays.stream(costs).max().orElse(0) + 1;
+        int[] matching = AssignmentAuction.solve(costs, nets, capacities, unassignedCost);
+
+        Map<Long, Long> planned = new LinkedHashMap<>();
+        Map<Long, Long> plannedDistance = new HashMap<>();
+        List<Long> unassigned = new ArrayList<>();
+        for (int i = 0; i < nets; i++) {
+            int salvor = matching[i];
+            Long ghostNetId = ghostNets.get(i).id();
+            if (salvor == AssignmentAuction.UNASSIGNED || (maxDistance != null && costs[i * count + salvor] > maxDistance)) {
+                unassigned.add(ghostNetId);
+                continue;
+            }
+            planned.put(ghostNetId, salvors.get(salvor).userId());
+            plannedDistance.put(ghostNetId, (long) costs[i * count + salvor]);
+        }
+        logger.info("Matched {} of {} reported ghost nets to {} salvors in {} ms",
+                planned.size(), nets, count, (System.nanoTime() - started) / 1_000_000);
+
+        return transaction.execute(status -> {
+            Map<Long, GhostNetSnapshot> before = new HashMap<>();
+            List<Long> ids = new ArrayList<>(planned.keySet());
+            for (int from = 0; from < ids.size(); from += LOCK_CHUNK_SIZE) {
+                for (GhostNet ghostNet : ghostNetRepository.lockReported(ids.subList(from, Math.min(ids.size(), from + LOCK_CHUNK_SIZE)),
+                        GhostNetStatus.GEMELDET)) {
+                    before.put(ghostNet.getId(), GhostNetSnapshot.of(ghostNet));
+                }
+            }
+            List<Long> skipped = new ArrayList<>();
+            Map<Long, Long> salvorByGhostNet = new LinkedHashMap<>();
+            planned.forEach((ghostNetId, salvorUserId) -> {
+                if (before.containsKey(ghostNetId)) {
+                    salvorByGhostNet.put(ghostNetId, salvorUserId);
+                } else {
+                    skipped.add(ghostNetId);
+                }
+            });
+
+            ghostNetRepository.assignSalvors(salvorByGhostNet, LocalDateTime.now());
+            // Die gesperrten Entities sind nach dem UPDATE veraltet und werden für das Ereignis neu geladen
+            entityManager.clear();
+            List<Assignment> assignments = new ArrayList<>(salvorByGhostNet.size());
+            long total = 0;
+            List<Long> assignedIds = new ArrayList<>(salvorByGhostNet.keySet());
+            for (int from = 0; from < assignedIds.size(); from += LOCK_CHUNK_SIZE) {
+                for (GhostNet ghostNet : ghostNetRepository.findAllById(assignedIds.subList(from, Math.min(assignedIds.size(), from + LOCK_CHUNK_SIZE)))) {
+                    eventPublisher.publishEvent(new GhostNetChangedEvent(GhostNetChangedEvent.Type.ASSIGNED,
+                            before.get(ghostNet.getId()), GhostNetSnapshot.of(ghostNet)));
+                    long distance = plannedDistance.get(ghostNet.getId());
+                    assignments.add(new Assignment(ghostNet.getId(), ghostNet.getSalvorUserId(), distance));
+                    total += distance;
+                }
+            }
+            return new Result(assignments, unassigned, skipped, total);
+        });
+    }
+
+    /** Prüft die Bergenden und liefert sie in der angegebenen Reihenfolge */
+    private List<Salvor> validate(Request request) {
+        if (request == null || request.salvors() == null || request.salvors().isEmpty()) {
+            throw new IllegalArgumentException("At least one salvor is required");
+        }
+        if (request.maxDistanceMeters() != null && !(request.maxDistanceMeters() > 0)) {
+            throw new IllegalArgumentException("maxDistanceMeters must be positive");
+        }
+        Set<Long> userIds = new HashSet<>();
+        for (Salvor salvor : request.salvors()) {
+            if (salvor == null || salvor.userId() == null || salvor.capacity() == null || salvor.capacity() < 0) {
+                throw new IllegalArgumentException("Each salvor needs a userId and a non-negative capacity");
+            }
+            if (salvor.latitude() == null || salvor.longitude() == null
+                    || !(Math.abs(salvor.latitude()) <= 90) || !(Math.abs(salvor.longitude()) <= 180)) {
+                throw new IllegalArgumentException("Invalid position for salvor " + salvor.userId());
+            }
+            if (!userIds.add(salvor.userId())) {
+                throw new IllegalArgumentException("Duplicate salvor " + salvor.userId());
+            }
+        }
+        if (userRepository.findAllById(userIds).size() != userIds.size()) {
+            throw new IllegalArgumentException("Unknown salvor");
+        }
+        return request.salvors();
+    }
+
+    /** Großkreisentfernungen in ganzen Metern, zeilenweise je Netz, parallel berechnet */
+    private static double[] distances(List<GhostNetSnapshot> ghostNets, List<Salvor> salvors) {
+        int count = salvors.size();
+        double[] salvorVectors = new double[count * 3];
+        for (int j = 0; j < count; j++) {
+            KdTree.toUnitVector(salvors.get(j).latitude(), salvors.get(j).longitude(), salvorVectors, j * 3);
+        }
+        double[] costs = new double[ghostNets.size() * count];
+        IntStream.range(0, ghostNets.size()).parallel().forEach(i -> {
+            double[] net = new double[3];
+            KdTree.toUnitVector(ghostNets.get(i).latitude(), ghostNets.get(i).longitude(), net, 0);
+            for (int j = 0; j < count; j++) {
+                double dx = net[0] - salvorVectors[j * 3];
+                double dy = net[1] - salvorVectors[j * 3 + 1];
+                double dz = net[2] - salvorVectors[j * 3 + 2];
+                costs[i * count + j] = Math.rint(KdTree.toMeters(dx * dx + dy * dy + dz * dz));
+            }
+        });
+        return costs;
+    }
+}
@@ -0,0 +1,116 @@
+package com.ghostnet.store.service;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Globale, monoton steigende Änderungsversion der Geisternetz-Daten
+ * Wird bei jeder Änderung an Geisternetzen oder Umverteilungsanfragen erhöht und als schwaches ETag
+ * ausgegeben, damit Collection-Endpoints unveränderte Daten mit 304 beantworten können, ohne die
+ * Datenbank abzufragen. Die Startkennung im ETag verhindert, dass ETags aus einem früheren
+ * Prozess nach einem Neustart fälschlich als aktuell gelten
+ */
+@Component
+public class ChangeVersion {
+
+    private final String generation = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Erhöht die Version nach einer Änderung an einem Geisternetz
+     * Läuft nach allen anderen Listenern, damit In-Memory-Modelle bereits aktualisiert sind,
+     * bevor ein neues ETag ausgegeben wird
+     * @param event Änderungsereignis
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGhostNetChanged(GhostNetChangedEvent event) {
+        increment();
+    }
+
+    /**
+     * Erhöht die Version nach einem gespeicherten Importbatch
+     * @param event Importereignis
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGhostNetsImported(GhostNetsImportedEvent event) {
+        increment();
+    }
+
+    /**
+     * Erhöht die Version nach einer Änderung an einer Umverteilungsanfrage
+     * @param event Änderungsereignis
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReassignmentRequestChanged(ReassignmentRequestChangedEvent event) {
+        increment();
+    }
+
+    /**
+     * Erhöht die Version für Änderungen, die nicht über Ereignisse gemeldet werden
+     */
+    public void increment() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Liefert die aktuelle Version
+     * @return Anzahl der Änderungen seit dem Start
+     */
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * ETag für Daten, die für alle Benutzer gleich sind
+     * @return Schwaches ETag der aktuellen Version
+     */
+    public String etag() {
+        return "W/\"" + generation + "-" + version.get() + "\"";
+    }
+
+    /**
+     * ETag für benutzerbezogene Daten
+     * Enthält einen Hash des Benutzernamens, damit ein Browser nach einem Benutzerwechsel
+     * keine zwischengespeicherte Antwort eines anderen Benutzers bestätigt bekommt
+     * @param username Benutzername
+     * @return Schwaches ETag der aktuellen Version für diesen Benutzer
+     */
+    public String etag(String username) {
+        String user = DigestUtils.md5DigestAsHex(username.getBytes(StandardCharsets.UTF_8));
+        return "W/\"" + generation + "-" + version.get() + "-" + user + "\"";
+    }
+
+    /**
+     * Prüft ob ein If-None-Match Header das ETag enthält (schwacher Vergleich)
+     * @param ifNoneMatch Wert des If-None-Match Headers (kann null sein)
+     * @param etag Aktuelles ETag
+     * @return true wenn der Client die aktuelle Version bereits besitzt
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        String opaque = opaque(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*") || opaque(value).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaque(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
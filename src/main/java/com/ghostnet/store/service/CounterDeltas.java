@@ -0,0 +1,87 @@
+package com.ghostnet.store.service;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Sammelt Zählerdifferenzen innerhalb einer Transaktion und schreibt sie einmal vor dem Commit
+ * Mehrere Änderungen an denselben Zählern (z.B. beim Import vieler Meldungen eines Users)
+ * ergeben so eine einzige Schreiboperation je Schlüssel statt einer pro Änderung.
+ * Ohne aktive Transaktion wird jede Differenz sofort in einer eigenen Transaktion geschrieben
+ * @param <K> Schlüssel der Zählerzeile
+ */
+final class CounterDeltas<K> {
+
+    private final Object resourceKey = new Object();
+
+    private final int width;
+
+    private final BiConsumer<K, long[]> writer;
+
+    private final TransactionTemplate transaction;
+
+    /**
+     * @param width Anzahl der Zähler je Schlüssel
+     * @param writer Schreibt die Differenzen eines Schlüssels, wird innerhalb der Transaktion aufgerufen
+     * @param transactionManager Für Differenzen außerhalb einer Transaktion
+     */
+    CounterDeltas(int width, BiConsumer<K, long[]> writer, PlatformTransactionManager transactionManager) {
+        this.width = width;
+        this.writer = writer;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Merkt eine Differenz für einen Schlüssel vor
+     * @param key Schlüssel der Zählerzeile
+     * @param delta Differenzen je Zähler
+     */
+    void add(K key, long... delta) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            transaction.executeWithoutResult(status -> writer.accept(key, delta));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Map<K, long[]> pending = (Map<K, long[]>) TransactionSynchronizationManager.getResource(resourceKey);
+        if (pending == null) {
+            Map<K, long[]> created = new LinkedHashMap<>();
+            TransactionSynchronizationManager.bindResource(resourceKey, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    created.forEach((k, d) -> {
+                        if (!isZero(d)) {
+                            writer.accept(k, d);
+                        }
+                    });
+                    created.clear();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(resourceKey);
+                }
+            });
+            pending = created;
+        }
+        long[] sum = pending.computeIfAbsent(key, k -> new long[width]);
+        for (int i = 0; i < width; i++) {
+            sum[i] += delta[i];
+        }
+    }
+
+    private static boolean isZero(long[] delta) {
+        for (long value : delta) {
+            if (value != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,155 @@
+package com.ghostnet.store.service;
+
+import com.ghostnet.store.domain.GhostNet;
+import com.ghostnet.store.domain.GhostNetTombstone;
+import com.ghostnet.store.domain.ReassignmentRequest;
+import com.ghostnet.store.repository.GhostNetRepository;
+import com.ghostnet.store.repository.GhostNetTombstoneRepository;
+import com.ghostnet.store.repository.ReassignmentRequestRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Delta-Synchronisation für Clients mit schmalbandiger Verbindung
+ * Liefert nur Geisternetze, Löschungen und Umverteilungsanfragen, die sich seit dem übergebenen
+ * Cursor geändert haben. Änderungen werden erst nach einer kurzen Verzögerung ausgeliefert:
+ * Der Änderungszeitpunkt wird vor dem Commit gesetzt, eine noch laufende Transaktion könnte sonst
+ * einen Zeitpunkt hinter dem bereits ausgegebenen Cursor festschreiben und ginge verloren
+ */
+@Service
+public class DeltaSyncService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeltaSyncService.class);
+
+    private final GhostNetRepository ghostNetRepository;
+
+    private final GhostNetTombstoneRepository tombstoneRepository;
+
+    private final ReassignmentRequestRepository requestRepository;
+
+    private final Duration settleDelay;
+
+    private final Duration tombstoneRetention;
+
+    private final int pageSize;
+
+    /**
+     * Ergebnis einer Synchronisation
+     * @param ghostNets Geänderte oder neue Geisternetze
+     * @param deletedGhostNetIds IDs gelöschter Geisternetze
+     * @param reassignmentRequests Geänderte oder neue Anfragen des Users
+     * @param cursor Cursor für die nächste Synchronisation
+     * @param hasMore true wenn weitere Änderungen sofort abgeholt werden können
+     * @param fullResync true wenn der Client seinen lokalen Bestand verwerfen muss
+     */
+    public record SyncPage(List<GhostNet> ghostNets,
+                           List<Long> deletedGhostNetIds,
+                           List<ReassignmentRequest> reassignmentRequests,
+                           String cursor,
+                           boolean hasMore,
+                           boolean fullResync) {
+    }
+
+    public DeltaSyncService(GhostNetRepository ghostNetRepository,
+                            GhostNetTombstoneRepository tombstoneRepository,
+                            ReassignmentRequestRepository requestRepository,
+                            @Value("${netpatrol.sync.settle-delay:PT5S}") Duration settleDelay,
+                            @Value("${netpatrol.sync.tombstone-retention:P30D}") Duration tombstoneRetention,
+                            @Value("${netpatrol.sync.page-size:500}") int pageSize) {
+        this.ghostNetRepository = ghostNetRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.requestRepository = requestRepository;
+        this.settleDelay = settleDelay;
+        this.tombstoneRetention = tombstoneRetention;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Liefert alle Änderungen seit dem Cursor
+     * Ohne Cursor oder mit einem Cursor, dessen Löschungen nicht mehr vorgehalten werden, wird der
+     * vollständige Bestand übertragen und fullResync gesetzt
+     * @param cursor Cursor der letzten Synchronisation (optional)
+     * @param userId ID des Users, dessen Umverteilungsanfragen übertragen werden
+     * @return Änderungen und neuer Cursor
+     */
+    @Transactional(readOnly = true)
+    public SyncPage changesSince(SyncCursor cursor, Long userId) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.minus(settleDelay);
+
+        boolean fullResync = cursor == null || cursor.tombstones().at().isBefore(now.minus(tombstoneRetention));
+        if (fullResync) {
+            // Beim vollständigen Abgleich sind ältere Löschungen irrelevant
+            cursor = new SyncCursor(SyncCursor.START, new SyncCursor.Position(until, Long.MAX_VALUE), SyncCursor.START);
+        }
+
+        SyncCursor.Position settled = new SyncCursor.Position(until, Long.MAX_VALUE);
+        boolean hasMore = false;
+
+        SyncCursor.Position ghostNetPosition = cursor.ghostNets();
+        List<GhostNet> ghostNets = ghostNetRepository.findChangedAfter(
+                ghostNetPosition.at(), ghostNetPosition.id(), until, Limit.of(pageSize + 1));
+        if (ghostNets.size() > pageSize) {
+            ghostNets = ghostNets.subList(0, pageSize);
+            GhostNet last = ghostNets.get(pageSize - 1);
+            ghostNetPosition = new SyncCursor.Position(last.getUpdatedAt(), last.getId());
+            hasMore = true;
+        } else {
+            ghostNetPosition = ghostNetPosition.max(settled);
+        }
+
+        SyncCursor.Position tombstonePosition = cursor.tombstones();
+        List<GhostNetTombstone> tombstones = tombstoneRepository.findDeletedAfter(
+                tombstonePosition.at(), tombstonePosition.id(), until, Limit.of(pageSize + 1));
+        if (tombstones.size() > pageSize) {
+            tombstones = tombstones.subList(0, pageSize);
+            GhostNetTombstone last = tombstones.get(pageSize - 1);
+            tombstonePosition = new SyncCursor.Position(last.getDeletedAt(), last.getGhostNetId());
+            hasMore = true;
+        } else {
+            tombstonePosition = tombstonePosition.max(settled);
+        }
+
+        SyncCursor.Position requestPosition = cursor.requests();
+        List<ReassignmentRequest> requests = requestRepository.findChangedAfter(
+                userId, requestPosition.at(), requestPosition.id(), until, Limit.of(pageSize + 1));
+        if (requests.size() > pageSize) {
+            requests = requests.subList(0, pageSize);
+            ReassignmentRequest last = requests.get(pageSize - 1);
+            requestPosition = new SyncCursor.Position(last.getUpdatedAt(), last.getId());
+            hasMore = true;
+        } else {
+            requestPosition = requestPosition.max(settled);
+        }
+
+        SyncCursor next = new SyncCursor(ghostNetPosition, tombstonePosition, requestPosition);
+        return new SyncPage(
+                ghostNets,
+                tombstones.stream().map(GhostNetTombstone::getGhostNetId).toList(),
+                requests,
+                next.encode(),
+                hasMore,
+                fullResync);
+    }
+
+    /**
+     * Entfernt Löschmarker, die älter als die Aufbewahrungsdauer sind
+     * Clients mit einem älteren Cursor erhalten danach einen vollständigen Abgleich
+     */
+    @Scheduled(cron = "${netpatrol.sync.tombstone-purge-cron:0 30 3 * * *}")
+    public void purgeTombstones() {
+        int purged = tombstoneRepository.deleteOlderThan(LocalDateTime.now().minus(tombstoneRetention));
+        if (purged > 0) {
+            logger.info("Purged {} ghost net tombstones", purged);
+        }
+    }
+}
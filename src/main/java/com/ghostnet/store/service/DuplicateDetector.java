@@ -0,0 +1,284 @@
+package com.ghostnet.store.service;
+
+import com.ghostnet.store.domain.GhostNetStatus;
+import com.ghostnet.store.repository.GhostNetRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Erkennt Meldungen, die vermutlich dasselbe Netz wie eine kürzlich eingegangene Meldung beschreiben
+ * Hält die offenen Meldungen des Zeitfensters in einem räumlichen Hash mit Zellen von der Größe des
+ * Suchradius. Eine Abfrage prüft nur die Nachbarzellen und ist damit unabhängig von der Tabellengröße.
+ * Der Hash wird beim Start aus ghost_net aufgebaut, über Änderungsereignisse aktuell gehalten und
+ * regelmäßig um Meldungen außerhalb des Zeitfensters bereinigt
+ */
+@Service
+public class DuplicateDetector {
+
+    private static final Logger logger = LoggerFactory.getLogger(DuplicateDetector.class);
+
+    /** Meter pro Breitengrad */
+    private static final double METERS_PER_DEGREE = 111_320;
+
+    /** Mittlerer Erdradius in Metern */
+    private static final double EARTH_RADIUS = 6_371_000;
+
+    /** Status, in denen ein Netz noch im Meer treibt und erneut gemeldet werden kann */
+    private static final Set<GhostNetStatus> OPEN_STATUSES = EnumSet.of(GhostNetStatus.GEMELDET, GhostNetStatus.BERGUNG_BEVORSTEHEND);
+
+    /** Umgang mit vermutlichen Duplikaten */
+    public enum Mode {
+        /** Keine Prüfung */
+        OFF,
+        /** Meldung speichern und mit duplicateOfId auf die ursprüngliche Meldung verweisen */
+        FLAG,
+        /** Meldung nicht speichern, stattdessen die ursprüngliche Meldung liefern */
+        MERGE
+    }
+
+    private final GhostNetRepository ghostNetRepository;
+
+    private final Mode mode;
+
+    private final double radius;
+
+    private final Duration window;
+
+    /** Kantenlänge einer Zelle in Grad */
+    private final double cellSize;
+
+    /** Zellen pro Breitenkreis */
+    private final long columns;
+
+    /** Meldungen je Zelle, Schlüssel kodiert Zeile und Spalte */
+    private final Map<Long, List<GhostNetSnapshot>> cells = new HashMap<>();
+
+    /** Enthaltene Meldungen nach ID, damit Aktualisierungen idempotent sind */
+    private final Map<Long, GhostNetSnapshot> members = new HashMap<>();
+
+    /** Zuletzt übernommene Version je Netz, verspätete ältere Ereignisse werden verworfen */
+    private final SnapshotVersions versions = new SnapshotVersions();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public DuplicateDetector(GhostNetRepository ghostNetRepository,
+                             @Value("${netpatrol.duplicates.mode:flag}") Mode mode,
+                             @Value("${netpatrol.duplicates.radius:500}") double radius,
+                             @Value("${netpatrol.duplicates.window:PT6H}") Duration window) {
+        this.ghostNetRepository = ghostNetRepository;
+        this.mode = mode;
+        this.radius = radius;
+        this.window = window;
+        this.cellSize = radius / METERS_PER_DEGREE;
+        this.columns = (long) Math.ceil(360 / cellSize);
+    }
+
+    /**
+     * Liefert den konfigurierten Umgang mit Duplikaten
+     * @return OFF, FLAG oder MERGE
+     */
+    public Mode mode() {
+        return mode;
+    }
+
+    /**
+     * Lädt die offenen Meldungen des Zeitfensters nach dem Start
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (mode == Mode.OFF) {
+            return;
+        }
+        List<GhostNetSnapshot> recent = ghostNetRepository
+            .findByCreatedAtGreaterThanEqualAndStatusIn(LocalDateTime.now().minus(window), OPEN_STATUSES)
+            .stream().map(GhostNetSnapshot::of).toList();
+        lock.writeLock().lock();
+        try {
+            recent.forEach(ghostNet -> {
+                upsert(ghostNet);
+                if (members.containsKey(ghostNet.id())) {
+                    versions.loaded(ghostNet);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Duplicate index built from {} recent reports", members.size());
+    }
+
+    /**
+     * Übernimmt eine Änderung an einem Geisternetz in den Hash
+     * @param event Änderungsereignis
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGhostNetChanged(GhostNetChangedEvent event) {
+        if (mode == Mode.OFF) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!versions.accept(event)) {
+                return;
+            }
+            if (event.after() == null) {
+                remove(event.ghostNetId());
+            } else {
+                upsert(event.after());
+            }
+            if (!members.containsKey(event.ghostNetId())) {
+                versions.release(event.ghostNetId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Übernimmt die Netze eines Importbatches
+     * @param event Importereignis
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGhostNetsImported(GhostNetsImportedEvent event) {
+        event.changes().forEach(this::onGhostNetChanged);
+    }
+
+    /**
+     * Entfernt Meldungen, die älter als das Zeitfenster sind
+     */
+    @Scheduled(fixedDelayString = "${netpatrol.duplicates.prune-interval:PT10M}")
+    public void prune() {
+        if (mode == Mode.OFF) {
+            return;
+        }
+        LocalDateTime oldest = LocalDateTime.now().minus(window);
+        lock.writeLock().lock();
+        try {
+            Iterator<GhostNetSnapshot> iterator = members.values().iterator();
+            while (iterator.hasNext()) {
+                GhostNetSnapshot ghostNet = iterator.next();
+                if (ghostNet.createdAt().isBefore(oldest)) {
+                    removeFromCell(ghostNet);
+                    iterator.remove();
+                    versions.release(ghostNet.id());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sucht die nächstgelegene offene Meldung innerhalb von Radius und Zeitfenster
+     * @param latitude Breitengrad der neuen Meldung
+     * @param longitude Längengrad der neuen Meldung
+     * @return Ursprüngliche Meldung oder leer, wenn keine in der Nähe liegt oder die Prüfung ausgeschaltet ist
+     */
+    public Optional<GhostNetSnapshot> findDuplicate(Double latitude, Double longitude) {
+        if (mode == Mode.OFF || latitude == null || longitude == null) {
+            return Optional.empty();
+        }
+        LocalDateTime oldest = LocalDateTime.now().minus(window);
+        long row = row(latitude);
+        // Längengrade werden zu den Polen hin kürzer, dort sind mehr Spalten zu prüfen
+        double spread = cellSize / Math.max(0.01, Math.cos(Math.toRadians(Math.min(89.9, Math.abs(latitude) + cellSize))));
+        long firstColumn = (long) Math.floor((longitude + 180 - spread) / cellSize);
+        long lastColumn = Math.min(firstColumn + columns - 1, (long) Math.floor((longitude + 180 + spread) / cellSize));
+
+        GhostNetSnapshot nearest = null;
+        double nearestDistance = radius;
+        lock.readLock().lock();
+        try {
+            for (long r = row - 1; r <= row + 1; r++) {
+                for (long c = firstColumn; c <= lastColumn; c++) {
+                    List<GhostNetSnapshot> cell = cells.get(key(r, c));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (GhostNetSnapshot candidate : cell) {
+                        if (candidate.createdAt().isBefore(oldest)) {
+                            continue;
+                        }
+                        double distance = distance(latitude, longitude, candidate.latitude(), candidate.longitude());
+                        if (distance <= nearestDistance) {
+                            nearest = candidate;
+                            nearestDistance = distance;
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return Optional.ofNullable(nearest);
+    }
+
+    /** Nimmt eine Meldung auf oder entfernt sie, wenn sie nicht mehr als Original in Frage kommt */
+    private void upsert(GhostNetSnapshot ghostNet) {
+        remove(ghostNet.id());
+        if (!ghostNet.hasPosition() || ghostNet.createdAt() == null || ghostNet.duplicateOfId() != null
+                || !OPEN_STATUSES.contains(ghostNet.status())
+                || ghostNet.createdAt().isBefore(LocalDateTime.now().minus(window))) {
+            return;
+        }
+        members.put(ghostNet.id(), ghostNet);
+        cells.computeIfAbsent(key(row(ghostNet.latitude()), column(ghostNet.longitude())), k -> new ArrayList<>(2)).add(ghostNet);
+    }
+
+    private void remove(Long id) {
+        GhostNetSnapshot existing = members.remove(id);
+        if (existing != null) {
+            removeFromCell(existing);
+        }
+    }
+
+    private void removeFromCell(GhostNetSnapshot ghostNet) {
+        long key = key(row(ghostNet.latitude()), column(ghostNet.longitude()));
+        List<GhostNetSnapshot> cell = cells.get(key);
+        if (cell != null) {
+            cell.removeIf(member -> member.id().equals(ghostNet.id()));
+            if (cell.isEmpty()) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    private long row(double latitude) {
+        return (long) Math.floor((latitude + 90) / cellSize);
+    }
+
+    private long column(double longitude) {
+        return (long) Math.floor((longitude + 180) / cellSize);
+    }
+
+    /** Kodiert Zeile und Spalte, Spalten jenseits der Datumsgrenze werden umgebrochen */
+    private long key(long row, long column) {
+        return row * columns + Math.floorMod(column, columns);
+    }
+
+    /** Großkreisentfernung in Metern (Haversine) */
+    private static double distance(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS * Math.asin(Math.sqrt(Math.min(1, a)));
+    }
+}
@@ -0,0 +1,625 @@
+package com.ghostnet.store.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ghostnet.store.domain.GhostNet;
+import com.ghostnet.store.domain.GhostNetStatus;
+import com.ghostnet.store.domain.ImportCheckpoint;
+import com.ghostnet.store.repository.GhostNetRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+/**
+ * Massenimport von Geisternetzen aus CSV- oder GeoJSON-Dateien über die Kommandozeile
+ * Wird mit --netpatrol.import.file=<Datei> gestartet. Die Datei wird per Memory-Mapping in Abschnitte
+ * an Zeilengrenzen geteilt, die parallel auf einem Fork/Join-Pool geparst und geprüft werden. Gespeichert
+ * wird in Abschnittsreihenfolge über JDBC-Batches, mit einem Commit alle commit-interval Zeilen. Der
+ * Fortschritt wird in derselben Transaktion in import_checkpoint gespeichert, ein abgebrochener Import setzt
+ * beim nächsten Aufruf dort fort, ohne Zeilen doppelt zu übernehmen. Jeder gespeicherte Batch wird als
+ * GhostNetsImportedEvent veröffentlicht, damit eine weiterlaufende Anwendung (exit-after=false) ihn in ihre
+ * Indizes übernimmt. Abgelehnte Zeilen landen in einer Rejects-Datei, am Ende wird ein Bericht mit dem
+ * Durchsatz geschrieben
+ */
+@Component
+public class GhostNetBulkImport implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(GhostNetBulkImport.class);
+
+    /** Spalten bzw. GeoJSON-Properties, die übernommen werden; IDs aus Fremdsystemen werden ignoriert */
+    private static final Map<String, String> GEOJSON_PROPERTIES = Map.of(
+        "status", "status",
+        "location", "location",
+        "estimatedSize", "estimated_size",
+        "description", "description",
+        "createdAt", "created_at",
+        "reportedAt", "reported_at",
+        "reporterName", "reporter_name",
+        "reportedBy", "reported_by",
+        "missingReporterName", "missing_reporter_name",
+        "missingReporterPhone", "missing_reporter_phone");
+
+    /**
+     * Geparste Zeile
+     * @param line Zeile innerhalb des Abschnitts (ab 0)
+     * @param ghostNet Geisternetz, null wenn die Zeile abgelehnt wurde
+     * @param error Ablehnungsgrund
+     */
+    private record Row(int line, GhostNet ghostNet, String error) {
+    }
+
+    /**
+     * Ergebnis eines Abschnitts
+     * @param start Byte-Position des Abschnittsbeginns
+     * @param end Byte-Position nach dem Abschnitt
+     * @param rows Datensätze in Dateireihenfolge
+     * @param lines Anzahl der Zeilen im Abschnitt
+     */
+    private record Chunk(long start, long end, List<Row> rows, int lines) {
+    }
+
+    /**
+     * Fortschritt eines Imports
+     * @param offset Byte-Position des Abschnitts, in dem fortgesetzt wird
+     * @param skip Anzahl bereits verarbeiteter Datensätze ab offset, unabhängig von der Abschnittsgröße
+     * @param lines Anzahl der Zeilen vor dem Abschnitt
+     * @param imported Bisher gespeicherte Netze
+     * @param rejected Bisher abgelehnte Zeilen
+     */
+    private record Checkpoint(long offset, int skip, long lines, long imported, long rejected) {
+    }
+
+    private final GhostNetRepository ghostNetRepository;
+
+    private final AnalyticsService analyticsService;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ObjectMapper objectMapper;
+
+    private final TransactionTemplate transaction;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ConfigurableApplicationContext context;
+
+    private final Path file;
+
+    private final String format;
+
+    private final DataSize chunkSize;
+
+    private final int parallelism;
+
+    private final int commitInterval;
+
+    private final boolean exitAfter;
+
+    public GhostNetBulkImport(GhostNetRepository ghostNetRepository,
+                              AnalyticsService analyticsService,
+                              ApplicationEventPublisher eventPublisher,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              ConfigurableApplicationContext context,
+                              @Value("${netpatrol.import.file:}") Path file,
+                              @Value("${netpatrol.import.format:auto}") String format,
+                              @Value("${netpatrol.import.chunk-size:4MB}") DataSize chunkSize,
+                              @Value("${netpatrol.import.parallelism:0}") int parallelism,
+                              @Value("${netpatrol.import.commit-interval:5000}") int commitInterval,
+                              @Value("${netpatrol.import.exit-after:true}") boolean exitAfter) {
+        this.ghostNetRepository = ghostNetRepository;
+        this.analyticsService = analyticsService;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.context = context;
+        this.file = file;
+        this.format = format;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.commitInterval = commitInterval;
+        this.exitAfter = exitAfter;
+    }
+
+    /**
+     * Führt den Import aus, wenn eine Datei angegeben ist, und beendet danach die Anwendung
+     * @param args Anwendungsargumente
+     */
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (file == null || file.toString().isBlank()) {
+            return;
+        }
+        int exitCode = 0;
+        try {
+            importFile();
+        } catch (RuntimeException | IOException e) {
+            logger.error("Import of {} failed, rerun to resume from the last checkpoint", file, e);
+            exitCode = 1;
+        }
+        if (exitAfter) {
+            int code = exitCode;
+            System.exit(SpringApplication.exit(context, () -> code));
+        }
+    }
+
+    private void importFile() throws IOException {
+        GhostNetExportService.Format fileFormat = detectFormat();
+        String checkpointKey = file.toAbsolutePath().normalize().toString();
+        Path rejectsFile = sibling(".rejects.csv");
+        long started = System.nanoTime();
+        Checkpoint resumed = readCheckpoint(checkpointKey, Files.size(file));
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             Writer rejects = Files.newBufferedWriter(rejectsFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                 resumed != null ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = channel.size();
+            Map<String, Integer> columns = null;
+            long dataStart = 0;
+            if (fileFormat == GhostNetExportService.Format.CSV) {
+                dataStart = nextLineStart(channel, 0, size);
+                columns = header(channel, dataStart);
+                if (!columns.containsKey("latitude") || !columns.containsKey("longitude")) {
+                    throw new IllegalArgumentException("CSV header must contain latitude and longitude columns");
+                }
+            }
+
+            Checkpoint checkpoint = resumed;
+            if (checkpoint == null) {
+                checkpoint = new Checkpoint(dataStart, 0, dataStart > 0 ? 1 : 0, 0, 0);
+                rejects.write("line,error\r\n");
+            } else {
+                logger.info("Resuming import of {} at byte {} ({} rows imported so far)", file, checkpoint.offset(), checkpoint.imported());
+            }
+            long resumedRows = checkpoint.imported() + checkpoint.rejected();
+
+            List<GhostNet> pending = new ArrayList<>(commitInterval);
+            StringBuilder pendingRejects = new StringBuilder();
+            long imported = checkpoint.imported();
+            long rejected = checkpoint.rejected();
+            long lines = checkpoint.lines();
+            int skip = checkpoint.skip();
+            Checkpoint position = checkpoint;
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                Deque<ForkJoinTask<Chunk>> window = new ArrayDeque<>();
+                Map<String, Integer> csvColumns = columns;
+                long next = checkpoint.offset();
+                while (next < size || !window.isEmpty()) {
+                    // Mehrere Abschnitte im Voraus parsen, gespeichert wird in Dateireihenfolge
+                    while (next < size && window.size() < parallelism * 2) {
+                        long start = next;
+                        long end = fileFormat == GhostNetExportService.Format.CSV
+                            ? nextRecordStart(channel, start, start + chunkSize.toBytes(), size)
+                            : nextLineStart(channel, Math.min(size, start + chunkSize.toBytes()), size);
+                        window.add(pool.submit(() -> parse(channel, start, end, fileFormat, csvColumns)));
+                        next = end;
+                    }
+                    Chunk chunk = window.poll().join();
+                    List<Row> rows = chunk.rows();
+                    // Nach dem Fortsetzen mit kleinerer chunk-size können die übersprungenen Datensätze mehrere Abschnitte füllen
+                    int first = Math.min(skip, rows.size());
+                    skip -= first;
+                    for (int i = first; i < rows.size(); i++) {
+                        Row row = rows.get(i);
+                        if (row.ghostNet() != null) {
+                            pending.add(row.ghostNet());
+                            imported++;
+                        } else {
+                            pendingRejects.append(lines + row.line() + 1).append(',').append(csv(row.error())).append("\r\n");
+                            rejected++;
+                        }
+                        if (pending.size() >= commitInterval) {
+                            position = new Checkpoint(chunk.start(), i + 1, lines, imported, rejected);
+                            commit(pending, pendingRejects, rejects, position, checkpointKey, size);
+                            progress(imported - checkpoint.imported(), rejected, started);
+                        }
+                    }
+                    lines += chunk.lines();
+                    position = new Checkpoint(chunk.end(), skip, lines, imported, rejected);
+                }
+                commit(pending, pendingRejects, rejects, position, checkpointKey, size);
+            } finally {
+                pool.shutdownNow();
+            }
+
+            transaction.executeWithoutResult(status -> entityManager
+                .createQuery("delete from ImportCheckpoint c where c.importFile = :file")
+                .setParameter("file", checkpointKey)
+                .executeUpdate());
+            report(fileFormat, size, imported, rejected, imported + rejected - resumedRows, started);
+        }
+    }
+
+    /**
+     * Speichert die gesammelten Netze zusammen mit dem Checkpoint in einer Transaktion
+     * Die Rejects werden vorher geschrieben: nach einem Absturz kann eine abgelehnte Zeile doppelt in der
+     * Rejects-Datei stehen, aber kein Netz doppelt in der Datenbank
+     */
+    private void commit(List<GhostNet> pending, StringBuilder pendingRejects, Writer rejects,
+                        Checkpoint position, String checkpointKey, long size) throws IOException {
+        rejects.append(pendingRejects);
+        rejects.flush();
+        pendingRejects.setLength(0);
+        transaction.executeWithoutResult(status -> {
+            if (!pending.isEmpty()) {
+                ghostNetRepository.saveAll(pending);
+                ghostNetRepository.flush();
+                List<GhostNetSnapshot> imported = pending.stream().map(GhostNetSnapshot::of).toList();
+                entityManager.clear(); // Sonst prüft jede folgende Abfrage alle Netze des Batches auf Änderungen
+                analyticsService.recordImported(imported);
+                // Indizes und ETags einer laufenden Anwendung übernehmen den Batch nach dem Commit
+                eventPublisher.publishEvent(new GhostNetsImportedEvent(imported));
+            }
+            entityManager.merge(toEntity(checkpointKey, position, size));
+        });
+        pending.clear();
+    }
+
+    /** Parst einen Abschnitt der Datei */
+    private Chunk parse(FileChannel channel, long start, long end, GhostNetExportService.Format fileFormat,
+                        Map<String, Integer> columns) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        CharBuffer text = StandardCharsets.UTF_8.decode(buffer);
+        List<Row> rows = new ArrayList<>();
+        int lines = fileFormat == GhostNetExportService.Format.CSV
+            ? parseCsv(text, columns, rows)
+            : parseGeoJson(text, rows);
+        return new Chunk(start, end, rows, lines);
+    }
+
+    /**
+     * Parst CSV-Datensätze nach RFC 4180, Felder in Anführungszeichen dürfen Zeilenumbrüche enthalten
+     * @return Anzahl der gelesenen Zeilen
+     */
+    private static int parseCsv(CharBuffer text, Map<String, Integer> columns, List<Row> rows) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int line = 0;
+        int recordLine = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < length && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                fields.add(field.toString());
+                field.setLength(0);
+                addCsvRow(recordLine, fields, columns, rows);
+                line++;
+                recordLine = line;
+            } else if (c != '\r') {
+                field.append(c);
+            }
+        }
+        if (field.length() > 0 || !fields.isEmpty()) {
+            fields.add(field.toString()); // Letzte Zeile ohne Zeilenumbruch
+            addCsvRow(recordLine, fields, columns, rows);
+        }
+        return line;
+    }
+
+    private static void addCsvRow(int line, List<String> fields, Map<String, Integer> columns, List<Row> rows) {
+        if (fields.size() > 1 || !fields.get(0).isBlank()) {
+            List<String> values = List.copyOf(fields);
+            rows.add(toRow(line, name -> {
+                Integer index = columns.get(name);
+                return index != null && index < values.size() ? values.get(index) : null;
+            }));
+        }
+        fields.clear();
+    }
+
+    /**
+     * Parst GeoJSON mit einem Feature je Zeile
+     * Kopf- und Endzeile einer FeatureCollection, wie sie der Export schreibt, werden übersprungen
+     * @return Anzahl der gelesenen Zeilen
+     */
+    private int parseGeoJson(CharBuffer text, List<Row> rows) {
+        int line = 0;
+        int lineStart = 0;
+        int length = text.length();
+        for (int i = 0; i <= length; i++) {
+            if (i < length && text.charAt(i) != '\n') {
+                continue;
+            }
+            String feature = stripSeparators(text.subSequence(lineStart, i).toString());
+            if (!feature.isEmpty() && !feature.startsWith("{\"type\":\"FeatureCollection\"") && !feature.startsWith("]")) {
+                rows.add(parseFeature(line, feature));
+            }
+            if (i < length) {
+                line++;
+            }
+            lineStart = i + 1;
+        }
+        return line;
+    }
+
+    private Row parseFeature(int line, String feature) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(feature);
+        } catch (IOException e) {
+            return new Row(line, null, "Invalid JSON");
+        }
+        if (!"Feature".equals(node.path("type").asText())) {
+            return new Row(line, null, "Not a GeoJSON Feature");
+        }
+        Map<String, String> values = new HashMap<>();
+        JsonNode geometry = node.path("geometry");
+        if ("Point".equals(geometry.path("type").asText()) && geometry.path("coordinates").size() >= 2) {
+            values.put("longitude", geometry.path("coordinates").get(0).asText());
+            values.put("latitude", geometry.path("coordinates").get(1).asText());
+        }
+        JsonNode properties = node.path("properties");
+        GEOJSON_PROPERTIES.forEach((property, column) -> {
+            JsonNode value = properties.get(property);
+            if (value != null && !value.isNull()) {
+                values.put(column, value.asText());
+            }
+        });
+        return toRow(line, values::get);
+    }
+
+    /** Entfernt Leerraum, Record Separator (RFC 8142) und Kommas zwischen Features */
+    private static String stripSeparators(String line) {
+        int from = 0;
+        int to = line.length();
+        while (from < to && (Character.isWhitespace(line.charAt(from)) || line.charAt(from) == ',' || line.charAt(from) == '\u001e')) {
+            from++;
+        }
+        while (to > from && (Character.isWhitespace(line.charAt(to - 1)) || line.charAt(to - 1) == ',')) {
+            to--;
+        }
+        return line.substring(from, to);
+    }
+
+    /**
+     * Erstellt ein Geisternetz aus den Feldern eines Datensatzes und prüft es
+     * @param line Zeile innerhalb des Abschnitts
+     * @param field Liefert den Wert einer Spalte oder null
+     * @return Zeile mit Geisternetz oder Ablehnungsgrund
+     */
+    private static Row toRow(int line, Function<String, String> field) {
+        GhostNet ghostNet = new GhostNet();
+        try {
+            ghostNet.setLatitude(number(field.apply("latitude")));
+            ghostNet.setLongitude(number(field.apply("longitude")));
+        } catch (NumberFormatException e) {
+            return new Row(line, null, "Invalid coordinates");
+        }
+        String statusText = text(field.apply("status"));
+        GhostNetStatus status = statusText != null ? GhostNetStatus.parse(statusText) : GhostNetStatus.GEMELDET;
+        if (status == null) {
+            return new Row(line, null, "Unknown status " + statusText.toUpperCase(Locale.ROOT));
+        }
+        if (status == GhostNetStatus.BERGUNG_BEVORSTEHEND) {
+            return new Row(line, null, "BERGUNG_BEVORSTEHEND requires an assigned salvor");
+        }
+        ghostNet.setStatus(status);
+        ghostNet.setLocation(text(field.apply("location")));
+        ghostNet.setEstimatedSize(text(field.apply("estimated_size")));
+        ghostNet.setDescription(text(field.apply("description")));
+        ghostNet.setReporterName(text(field.apply("reporter_name")));
+        ghostNet.setReportedBy(text(field.apply("reported_by")));
+        ghostNet.setMissingReporterName(text(field.apply("missing_reporter_name")));
+        ghostNet.setMissingReporterPhone(text(field.apply("missing_reporter_phone")));
+        if (status == GhostNetStatus.VERSCHOLLEN && (ghostNet.getMissingReporterName() == null || ghostNet.getMissingReporterPhone() == null)) {
+            return new Row(line, null, "VERSCHOLLEN requires missing_reporter_name and missing_reporter_phone");
+        }
+        try {
+            LocalDateTime createdAt = timestamp(field.apply("created_at"));
+            LocalDateTime reportedAt = timestamp(field.apply("reported_at"));
+            ghostNet.setCreatedAt(createdAt != null ? createdAt : LocalDateTime.now());
+            ghostNet.setReportedAt(reportedAt != null ? reportedAt : ghostNet.getCreatedAt());
+        } catch (DateTimeParseException e) {
+            return new Row(line, null, "Invalid timestamp");
+        }
+        String error = GhostNetIngestService.validate(ghostNet);
+        return error != null ? new Row(line, null, error) : new Row(line, ghostNet, null);
+    }
+
+    private static Double number(String value) {
+        String text = text(value);
+        if (text == null) {
+            return null;
+        }
+        double number = Double.parseDouble(text);
+        if (!Double.isFinite(number)) {
+            throw new NumberFormatException(text);
+        }
+        return number;
+    }
+
+    private static String text(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static LocalDateTime timestamp(String value) {
+        String text = text(value);
+        if (text == null) {
+            return null;
+        }
+        return text.length() == 10 ? LocalDate.parse(text).atStartOfDay() : LocalDateTime.parse(text);
+    }
+
+    /** Liest die CSV-Kopfzeile und ordnet jedem Spaltennamen seinen Index zu */
+    private static Map<String, Integer> header(FileChannel channel, long end) throws IOException {
+        String line = StandardCharsets.UTF_8.decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, end)).toString();
+        if (line.startsWith("\uFEFF")) {
+            line = line.substring(1); // Byte Order Mark
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        String[] names = line.strip().split(",");
+        for (int i = 0; i < names.length; i++) {
+            columns.put(names[i].strip().replace("\"", "").toLowerCase(Locale.ROOT), i);
+        }
+        return columns;
+    }
+
+    /**
+     * Sucht den Beginn der nächsten Zeile ab einer Byte-Position
+     * @return Position nach dem nächsten Zeilenumbruch oder das Dateiende
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        if (position == 0 && size == 0) {
+            return 0;
+        }
+        long window = 64 * 1024;
+        for (long from = Math.max(0, position - 1); from < size; from += window) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(window, size - from));
+            while (buffer.hasRemaining()) {
+                if (buffer.get() == '\n') {
+                    return from + buffer.position();
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Sucht ab einer Mindestposition den Beginn des nächsten CSV-Datensatzes
+     * Zeilenumbrüche in Anführungszeichen werden übersprungen; dafür wird ab dem Abschnittsbeginn, der
+     * immer ein Datensatzbeginn ist, die Anzahl der Anführungszeichen mitgezählt
+     * @return Position nach dem Datensatzende oder das Dateiende
+     */
+    private static long nextRecordStart(FileChannel channel, long start, long minimum, long size) throws IOException {
+        long window = 1024 * 1024;
+        boolean quoted = false;
+        for (long from = start; from < size; from += window) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(window, size - from));
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\n' && !quoted && from + buffer.position() >= minimum) {
+                    return from + buffer.position();
+                }
+            }
+        }
+        return size;
+    }
+
+    private GhostNetExportService.Format detectFormat() {
+        if (!"auto".equalsIgnoreCase(format)) {
+            return GhostNetExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        }
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".csv") ? GhostNetExportService.Format.CSV : GhostNetExportService.Format.GEOJSON;
+    }
+
+    private Path sibling(String suffix) {
+        return file.resolveSibling(file.getFileName() + suffix);
+    }
+
+    /** Liest den Checkpoint, sofern er zur aktuellen Datei passt */
+    private Checkpoint readCheckpoint(String checkpointKey, long size) {
+        ImportCheckpoint stored = entityManager.find(ImportCheckpoint.class, checkpointKey);
+        if (stored == null) {
+            return null;
+        }
+        if (stored.getFileSize() != size) {
+            logger.warn("Ignoring checkpoint for {}, the file size changed", checkpointKey);
+            return null;
+        }
+        return new Checkpoint(stored.getByteOffset(), stored.getSkipRows(), stored.getLineCount(),
+            stored.getImported(), stored.getRejected());
+    }
+
+    private static ImportCheckpoint toEntity(String checkpointKey, Checkpoint checkpoint, long size) {
+        ImportCheckpoint entity = new ImportCheckpoint();
+        entity.setImportFile(checkpointKey);
+        entity.setFileSize(size);
+        entity.setByteOffset(checkpoint.offset());
+        entity.setSkipRows(checkpoint.skip());
+        entity.setLineCount(checkpoint.lines());
+        entity.setImported(checkpoint.imported());
+        entity.setRejected(checkpoint.rejected());
+        entity.setUpdatedAt(LocalDateTime.now());
+        return entity;
+    }
+
+    private static void progress(long imported, long rejected, long started) {
+        double seconds = Math.max(1e-3, (System.nanoTime() - started) / 1e9);
+        logger.info("Imported {} ghost nets ({} rejected) at {} rows/s", imported, rejected, Math.round(imported / seconds));
+    }
+
+    /** Schreibt den Abschlussbericht in eine Datei neben der Importdatei und ins Log */
+    private void report(GhostNetExportService.Format fileFormat, long bytes, long imported, long rejected,
+                        long processedNow, long started) throws IOException {
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+        double seconds = Math.max(1e-3, elapsed.toNanos() / 1e9);
+        List<String> report = List.of(
+            "file: " + file.toAbsolutePath(),
+            "format: " + fileFormat.extension(),
+            "bytes: " + bytes,
+            "imported: " + imported,
+            "rejected: " + rejected,
+            "rows processed in this run: " + processedNow,
+            "elapsed: " + elapsed,
+            String.format(Locale.ROOT, "rows/s: %.0f", processedNow / seconds),
+            String.format(Locale.ROOT, "MB/s: %.1f", bytes / seconds / (1024 * 1024)),
+            "parallelism: " + parallelism,
+            "rejects: " + sibling(".rejects.csv").toAbsolutePath());
+        Files.write(sibling(".report"), report, StandardCharsets.UTF_8);
+        logger.info("Import finished: {}", String.join(", ", report));
+    }
+
+    private static String csv(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,30 @@
+package com.ghostnet.store.service;
+
+/**
+ * Ereignis für jede Änderung an einem Geisternetz
+ * Wird von den schreibenden Endpoints veröffentlicht, damit In-Memory-Strukturen
+ * inkrementell aktualisiert werden können statt sie pro Request neu aufzubauen
+ * @param type Art der Änderung
+ * @param before Zustand vor der Änderung (null bei CREATED)
+ * @param after Zustand nach der Änderung (null bei DELETED)
+ */
+public record GhostNetChangedEvent(Type type, GhostNetSnapshot before, GhostNetSnapshot after) {
+
+    /** Art der Änderung */
+    public enum Type {
+        CREATED,
+        ASSIGNED,
+        RECOVERED,
+        MARKED_MISSING,
+        DELETED,
+        REASSIGNED
+    }
+
+    /**
+     * Liefert die ID des betroffenen Geisternetzes
+     * @return ID aus dem aktuellen oder vorherigen Zustand
+     */
+    public Long ghostNetId() {
+        return after != null ? after.id() : before.id();
+    }
+}
@@ -0,0 +1,264 @@
+package com.ghostnet.store.service;
+
+import com.ghostnet.store.domain.GhostNetStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Cluster-Pyramide der Geisternetze für die Kartenansicht
+ * Hält pro Zoomstufe ein Raster aus Zellen (4x4 Zellen pro 256px-Kachel in Web-Mercator)
+ * mit Anzahl, Schwerpunkt und Statusverteilung der enthaltenen Netze.
+ * Die Pyramide wird beim Start einmal aufgebaut und danach über Änderungsereignisse
+ * inkrementell aktualisiert
+ */
+@Service
+public class GhostNetClusterIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(GhostNetClusterIndex.class);
+
+    /** Zellen pro Kachelkante als Zweierpotenz (2^2 = 4 Zellen zu je 64px) */
+    private static final int CELL_BITS = 2;
+
+    /** Grenze der Web-Mercator-Projektion */
+    private static final double MAX_MERCATOR_LATITUDE = 85.05112878;
+
+    private final GhostNetSnapshotLoader snapshotLoader;
+
+    private final int maxZoom;
+
+    /** Zellen pro Zoomstufe, Schlüssel kodiert Spalte und Zeile */
+    private final List<Map<Long, Cell>> levels = new ArrayList<>();
+
+    /** Aktuell in der Pyramide enthaltene Netze, damit Aktualisierungen idempotent sind */
+    private final Map<Long, Member> members = new HashMap<>();
+
+    /** Zuletzt übernommene Version je Netz, verspätete ältere Ereignisse werden verworfen */
+    private final SnapshotVersions versions = new SnapshotVersions();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public GhostNetClusterIndex(GhostNetSnapshotLoader snapshotLoader,
+                                @Value("${netpatrol.clusters.max-zoom:16}") int maxZoom) {
+        this.snapshotLoader = snapshotLoader;
+        this.maxZoom = maxZoom;
+        for (int zoom = 0; zoom <= maxZoom; zoom++) {
+            levels.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Baut die Pyramide nach dem Start aus allen Geisternetzen auf
+     * Änderungsereignisse warten währenddessen auf die Sperre
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        lock.writeLock().lock();
+        try {
+            long loaded = snapshotLoader.forEach(ghostNet -> {
+                upsert(ghostNet);
+                if (members.containsKey(ghostNet.id())) {
+                    versions.loaded(ghostNet);
+                }
+            });
+            logger.info("Cluster pyramid built from {} ghost nets (zoom 0-{})", loaded, maxZoom);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Übernimmt eine Änderung an einem Geisternetz in die Pyramide
+     * @param event Änderungsereignis
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGhostNetChanged(GhostNetChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!versions.accept(event)) {
+                return;
+            }
+            if (event.after() == null) {
+                remove(event.ghostNetId());
+            } else {
+                upsert(event.after());
+            }
+            if (!members.containsKey(event.ghostNetId())) {
+                versions.release(event.ghostNetId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Übernimmt die Netze eines Importbatches
+     * @param event Importereignis
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGhostNetsImported(GhostNetsImportedEvent event) {
+        event.changes().forEach(this::onGhostNetChanged);
+    }
+
+    /**
+     * Liefert die Cluster einer Zoomstufe innerhalb eines Kartenausschnitts
+     * Zoomstufen über der maximalen Stufe werden mit der feinsten Stufe beantwortet
+     * @param zoom Zoomstufe der Karte
+     * @param minLatitude Südliche Grenze
+     * @param minLongitude Westliche Grenze
+     * @param maxLatitude Nördliche Grenze
+     * @param maxLongitude Östliche Grenze (kleiner als minLongitude bei Ausschnitten über die Datumsgrenze)
+     * @return Cluster im Ausschnitt
+     */
+    public List<Cluster> clusters(int zoom, double minLatitude, double minLongitude,
+                                  double maxLatitude, double maxLongitude) {
+        int level = Math.max(0, Math.min(maxZoom, zoom));
+        long yMin = cellY(level, maxLatitude);
+        long yMax = cellY(level, minLatitude);
+        List<long[]> columns = new ArrayList<>();
+        if (minLongitude > maxLongitude) {
+            columns.add(new long[] {cellX(level, minLongitude), cellX(level, 180.0)});
+            columns.add(new long[] {cellX(level, -180.0), cellX(level, maxLongitude)});
+        } else {
+            columns.add(new long[] {cellX(level, minLongitude), cellX(level, maxLongitude)});
+        }
+
+        List<Cluster> clusters = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Map<Long, Cell> cells = levels.get(level);
+            for (long[] column : columns) {
+                long area = (column[1] - column[0] + 1) * (yMax - yMin + 1);
+                if (area <= cells.size()) {
+                    // Kleiner Ausschnitt: Zellen direkt nachschlagen
+                    for (long x = column[0]; x <= column[1]; x++) {
+                        for (long y = yMin; y <= yMax; y++) {
+                            Cell cell = cells.get(cellKey(x, y));
+                            if (cell != null) {
+                                clusters.add(cell.toCluster());
+                            }
+                        }
+                    }
+                } else {
+                    // Großer Ausschnitt: nur belegte Zellen durchsuchen
+                    for (Map.Entry<Long, Cell> entry : cells.entrySet()) {
+                        long x = entry.getKey() >>> 32;
+                        long y = entry.getKey() & 0xFFFFFFFFL;
+                        if (x >= column[0] && x <= column[1] && y >= yMin && y <= yMax) {
+                            clusters.add(entry.getValue().toCluster());
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return clusters;
+    }
+
+    /** Fügt ein Netz hinzu oder ersetzt dessen bisherigen Beitrag (Aufruf nur unter Schreibsperre) */
+    private void upsert(GhostNetSnapshot ghostNet) {
+        if (!ghostNet.hasPosition() || ghostNet.status() == null) {
+            remove(ghostNet.id());
+            return;
+        }
+        Member member = new Member(ghostNet.latitude(), ghostNet.longitude(), ghostNet.status().ordinal());
+        Member previous = members.put(ghostNet.id(), member);
+        if (member.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            apply(previous, -1);
+        }
+        apply(member, 1);
+    }
+
+    /** Entfernt den Beitrag eines Netzes (Aufruf nur unter Schreibsperre) */
+    private void remove(Long id) {
+        Member previous = members.remove(id);
+        if (previous != null) {
+            apply(previous, -1);
+        }
+    }
+
+    /** Addiert oder subtrahiert ein Netz in der zugehörigen Zelle jeder Zoomstufe */
+    private void apply(Member member, int delta) {
+        for (int zoom = 0; zoom <= maxZoom; zoom++) {
+            long key = cellKey(cellX(zoom, member.longitude()), cellY(zoom, member.latitude()));
+            Map<Long, Cell> cells = levels.get(zoom);
+            Cell cell = cells.computeIfAbsent(key, k -> new Cell());
+            cell.count += delta;
+            cell.latitudeSum += delta * member.latitude();
+            cell.longitudeSum += delta * member.longitude();
+            cell.statusCounts[member.statusIndex()] += delta;
+            if (cell.count <= 0) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    private static long cellKey(long x, long y) {
+        return (x << 32) | y;
+    }
+
+    private static long cellX(int zoom, double longitude) {
+        long side = 1L << (zoom + CELL_BITS);
+        long x = (long) Math.floor((longitude + 180.0) / 360.0 * side);
+        return Math.max(0, Math.min(side - 1, x));
+    }
+
+    private static long cellY(int zoom, double latitude) {
+        long side = 1L << (zoom + CELL_BITS);
+        double clamped = Math.max(-MAX_MERCATOR_LATITUDE, Math.min(MAX_MERCATOR_LATITUDE, latitude));
+        double radians = Math.toRadians(clamped);
+        double mercator = Math.log(Math.tan(radians) + 1.0 / Math.cos(radians));
+        long y = (long) Math.floor((1.0 - mercator / Math.PI) / 2.0 * side);
+        return Math.max(0, Math.min(side - 1, y));
+    }
+
+    /** Alle Status, Index ist die Ordinalzahl */
+    private static final GhostNetStatus[] STATUSES = GhostNetStatus.values();
+
+    /** Position und Status (Ordinalzahl) eines Netzes in der Pyramide */
+    private record Member(double latitude, double longitude, int statusIndex) {
+    }
+
+    /** Aggregat einer Rasterzelle */
+    private static final class Cell {
+        private int count;
+        private double latitudeSum;
+        private double longitudeSum;
+        private final int[] statusCounts = new int[STATUSES.length];
+
+        private Cluster toCluster() {
+            Map<String, Integer> byStatus = new LinkedHashMap<>();
+            for (int i = 0; i < statusCounts.length; i++) {
+                if (statusCounts[i] > 0) {
+                    byStatus.put(STATUSES[i].name(), statusCounts[i]);
+                }
+            }
+            return new Cluster(latitudeSum / count, longitudeSum / count, count, byStatus);
+        }
+    }
+
+    /**
+     * Cluster einer Zoomstufe
+     * @param latitude Breitengrad des Schwerpunkts
+     * @param longitude Längengrad des Schwerpunkts
+     * @param count Anzahl der Netze im Cluster
+     * @param statusCounts Anzahl der Netze je Status
+     */
+    public record Cluster(double latitude, double longitude, int count, Map<String, Integer> statusCounts) {
+    }
+}
@@ -0,0 +1,57 @@
+package com.ghostnet.store.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaker Cursor für die Keyset-Pagination über Geisternetze
+ * Kodiert die Position (createdAt, id) des letzten gelieferten Eintrags als URL-sicheren String
+ * @param createdAt Erstellungszeitpunkt des letzten Eintrags
+ * @param id ID des letzten Eintrags
+ */
+public record GhostNetCursor(LocalDateTime createdAt, Long id) {
+
+    private static final char SEPARATOR = '|';
+
+    /**
+     * Erzeugt den Cursor für den übergebenen Eintrag
+     * @param createdAt Erstellungszeitpunkt
+     * @param id ID des Geisternetzes
+     * @return Cursor auf diese Position
+     */
+    public static GhostNetCursor of(LocalDateTime createdAt, Long id) {
+        return new GhostNetCursor(createdAt, id);
+    }
+
+    /**
+     * Kodiert den Cursor für die Übergabe an den Client
+     * @return Base64url-kodierter Cursor ohne Padding
+     */
+    public String encode() {
+        String raw = createdAt + String.valueOf(SEPARATOR) + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Dekodiert einen vom Client übergebenen Cursor
+     * @param token Kodierter Cursor
+     * @return Dekodierter Cursor
+     * @throws IllegalArgumentException wenn der Cursor ungültig ist
+     */
+    public static GhostNetCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            LocalDateTime createdAt = LocalDateTime.parse(raw.substring(0, separator));
+            Long id = Long.valueOf(raw.substring(separator + 1));
+            return new GhostNetCursor(createdAt, id);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
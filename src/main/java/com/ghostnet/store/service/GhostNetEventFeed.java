@@ -0,0 +1,199 @@
+package com.ghostnet.store.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Änderungs-Feed der Geisternetze als Server-Sent Events
+ * Die letzten Ereignisse liegen in einem Ringpuffer fester Größe, sodass Clients nach einem
+ * Verbindungsabbruch über Last-Event-ID fortsetzen können. Liegt die letzte bekannte ID nicht
+ * mehr im Puffer (oder stammt sie aus einem früheren Prozess), erhält der Client ein
+ * "reset"-Ereignis und muss seine Listen neu laden.
+ * Jede Verbindung wird von einem eigenen virtuellen Thread bedient, der beim Warten auf neue
+ * Ereignisse keinen Plattform-Thread belegt
+ */
+@Service
+public class GhostNetEventFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(GhostNetEventFeed.class);
+
+    private final String generation = Long.toString(System.currentTimeMillis(), 36);
+
+    private final GhostNetFeedEvent[] buffer;
+
+    /** Laufende Nummer des zuletzt angehängten Ereignisses (0 = noch keines) */
+    private long latest;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition appended = lock.newCondition();
+
+    private final Duration heartbeat;
+
+    private final Duration timeout;
+
+    public GhostNetEventFeed(@Value("${netpatrol.events.buffer-size:1024}") int bufferSize,
+                             @Value("${netpatrol.events.heartbeat:PT25S}") Duration heartbeat,
+                             @Value("${netpatrol.events.timeout:PT30M}") Duration timeout) {
+        this.buffer = new GhostNetFeedEvent[bufferSize];
+        this.heartbeat = heartbeat;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Hängt eine Änderung an den Feed an und weckt alle wartenden Verbindungen
+     * @param event Änderungsereignis
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGhostNetChanged(GhostNetChangedEvent event) {
+        lock.lock();
+        try {
+            long sequence = latest + 1;
+            buffer[(int) (sequence % buffer.length)] = GhostNetFeedEvent.of(generation + "-" + sequence, event);
+            latest = sequence;
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Öffnet eine neue SSE-Verbindung
+     * @param lastEventId Zuletzt empfangene Ereignis-ID (optional, ohne ID beginnt der Feed beim nächsten Ereignis)
+     * @param userId Nur Ereignisse liefern, an denen dieser User als Melder oder Berger beteiligt ist (optional)
+     * @return Emitter der Verbindung
+     */
+    public SseEmitter subscribe(String lastEventId, Long userId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        AtomicBoolean open = new AtomicBoolean(true);
+        emitter.onCompletion(() -> open.set(false));
+        emitter.onTimeout(() -> {
+            open.set(false);
+            emitter.complete();
+        });
+        emitter.onError(e -> open.set(false));
+
+        long position = resumePosition(lastEventId);
+        Thread.ofVirtual()
+            .name("ghostnet-events")
+            .start(() -> stream(emitter, open, position, userId));
+        return emitter;
+    }
+
+    /**
+     * Sendet Ereignisse an eine Verbindung, bis diese geschlossen wird
+     * @param emitter Emitter der Verbindung
+     * @param open Wird beim Schließen der Verbindung zurückgesetzt
+     * @param position Laufende Nummer des zuletzt gesendeten Ereignisses, -1 wenn ein Reset nötig ist
+     * @param userId Optionaler User-Filter
+     */
+    private void stream(SseEmitter emitter, AtomicBoolean open, long position, Long userId) {
+        try {
+            while (open.get()) {
+                if (position < 0 || position < oldestAvailable() - 1) {
+                    emitter.send(SseEmitter.event().name("reset").id(generation + "-" + latest()).data("reset"));
+                    position = latest();
+                    continue;
+                }
+                List<GhostNetFeedEvent> events = awaitAfter(position);
+                if (events == null) {
+                    continue; // Ereignisse wurden inzwischen überschrieben
+                }
+                if (events.isEmpty()) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                    continue;
+                }
+                for (GhostNetFeedEvent event : events) {
+                    position++;
+                    if (userId == null || event.concerns(userId)) {
+                        emitter.send(SseEmitter.event()
+                            .id(event.id())
+                            .name(event.type().name())
+                            .data(event, MediaType.APPLICATION_JSON));
+                    }
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Ghost net event stream closed: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            emitter.complete();
+        }
+    }
+
+    /**
+     * Wartet bis Ereignisse nach der angegebenen Position vorliegen oder das Heartbeat-Intervall abläuft
+     * @param position Laufende Nummer des zuletzt gesendeten Ereignisses
+     * @return Neue Ereignisse, leer nach Ablauf des Intervalls, null wenn die Position nicht mehr im Puffer liegt
+     */
+    private List<GhostNetFeedEvent> awaitAfter(long position) throws InterruptedException {
+        lock.lock();
+        try {
+            long nanos = heartbeat.toNanos();
+            while (latest <= position) {
+                if (nanos <= 0) {
+                    return List.of();
+                }
+                nanos = appended.awaitNanos(nanos);
+            }
+            if (position < latest - buffer.length) {
+                return null;
+            }
+            List<GhostNetFeedEvent> events = new ArrayList<>((int) (latest - position));
+            for (long sequence = position + 1; sequence <= latest; sequence++) {
+                events.add(buffer[(int) (sequence % buffer.length)]);
+            }
+            return events;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Bestimmt die Startposition aus einer Last-Event-ID
+     * @param lastEventId ID im Format "generation-nummer" (optional)
+     * @return Laufende Nummer, ab der fortgesetzt wird, oder -1 wenn ein Reset nötig ist
+     */
+    private long resumePosition(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return latest();
+        }
+        int separator = lastEventId.lastIndexOf('-');
+        if (separator < 0 || !lastEventId.substring(0, separator).equals(generation)) {
+            return -1;
+        }
+        try {
+            long sequence = Long.parseLong(lastEventId.substring(separator + 1));
+            return sequence <= latest() ? sequence : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private long latest() {
+        lock.lock();
+        try {
+            return latest;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long oldestAvailable() {
+        return Math.max(1, latest() - buffer.length + 1);
+    }
+}
@@ -0,0 +1,276 @@
+package com.ghostnet.store.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ghostnet.store.domain.GhostNet;
+import com.ghostnet.store.domain.GhostNetStatus;
+import com.ghostnet.store.repository.GhostNetRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Export aller Geisternetze als CSV oder GeoJSON
+ * Die Zeilen werden abschnittsweise nach ID gelesen; jeder Abschnitt wird in einer eigenen kurzen
+ * Lesetransaktion vom Treiber gestreamt und jede Zeile nach dem Schreiben aus dem Persistence Context
+ * entfernt. Der Speicherbedarf bleibt so unabhängig von der Tabellengröße, und keine Transaktion bleibt
+ * über den ganzen Download offen
+ */
+@Service
+public class GhostNetExportService {
+
+    /** Exportformat */
+    public enum Format {
+        CSV("text/csv", "csv"),
+        GEOJSON("application/geo+json", "geojson");
+
+        private final String mediaType;
+
+        private final String extension;
+
+        Format(String mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        public String mediaType() {
+            return mediaType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    /**
+     * Filter für den Export, null-Werte werden ignoriert
+     * @param status Status der Geisternetze
+     * @param from Erstellt ab (einschließlich)
+     * @param to Erstellt vor (ausschließlich)
+     */
+    public record Filter(GhostNetStatus status, LocalDateTime from, LocalDateTime to) {
+    }
+
+    private static final String[] CSV_HEADER = {
+        "id", "status", "latitude", "longitude", "location", "estimated_size", "description",
+        "created_at", "reported_at", "reporter_name", "reported_by", "reporter_id", "salvor_user_id", "updated_at"
+    };
+
+    private final GhostNetRepository ghostNetRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final TransactionTemplate readOnly;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final int chunkSize;
+
+    public GhostNetExportService(GhostNetRepository ghostNetRepository,
+                                 ObjectMapper objectMapper,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${netpatrol.export.chunk-size:10000}") int chunkSize) {
+        this.ghostNetRepository = ghostNetRepository;
+        this.objectMapper = objectMapper;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Schreibt alle passenden Geisternetze sortiert nach ID in den Ausgabestrom
+     * Der Ausgabestrom wird nach jedem Abschnitt geflusht, aber nicht geschlossen
+     * @param format Exportformat
+     * @param filter Filter
+     * @param out Ausgabestrom
+     */
+    public void export(Format format, Filter filter, OutputStream out) throws IOException {
+        RowWriter writer = format == Format.CSV ? new CsvWriter(out) : new GeoJsonWriter(out);
+        writer.begin();
+        long afterId = 0;
+        while (true) {
+            long start = afterId;
+            long[] last = {afterId, 0};
+            try {
+                readOnly.executeWithoutResult(status -> {
+                    try (Stream<GhostNet> ghostNets = ghostNetRepository.streamForExport(
+                            start, filter.status(), filter.from(), filter.to(), Limit.of(chunkSize))) {
+                        Iterator<GhostNet> rows = ghostNets.iterator();
+                        while (rows.hasNext()) {
+                            GhostNet ghostNet = rows.next();
+                            writer.write(ghostNet);
+                            entityManager.detach(ghostNet);
+                            last[0] = ghostNet.getId();
+                            last[1]++;
+                        }
+                        writer.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause(); // Meist ein abgebrochener Download
+            }
+            if (last[1] < chunkSize) {
+                break;
+            }
+            afterId = last[0];
+        }
+        writer.end();
+    }
+
+    /** Schreibt Geisternetze in einem Exportformat */
+    private interface RowWriter {
+        void begin() throws IOException;
+
+        void write(GhostNet ghostNet) throws IOException;
+
+        void flush() throws IOException;
+
+        void end() throws IOException;
+    }
+
+    /** CSV nach RFC 4180 mit Kopfzeile */
+    private static class CsvWriter implements RowWriter {
+
+        private final Writer out;
+
+        CsvWriter(OutputStream out) {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        }
+
+        @Override
+        public void begin() throws IOException {
+            line((Object[]) CSV_HEADER);
+        }
+
+        @Override
+        public void write(GhostNet g) throws IOException {
+            line(g.getId(), g.getStatus(), g.getLatitude(), g.getLongitude(), g.getLocation(), g.getEstimatedSize(),
+                g.getDescription(), g.getCreatedAt(), g.getReportedAt(), g.getReporterName(), g.getReportedBy(),
+                g.getReporterId(), g.getSalvorUserId(), g.getUpdatedAt());
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void end() throws IOException {
+            out.flush();
+        }
+
+        private void line(Object... values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                if (values[i] != null) {
+                    field(values[i].toString());
+                }
+            }
+            out.write("\r\n");
+        }
+
+        private void field(String value) throws IOException {
+            boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+            if (!quote) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+    }
+
+    /**
+     * GeoJSON FeatureCollection mit einem Point-Feature je Geisternetz
+     * Jedes Feature steht in einer eigenen Zeile, damit die Datei wieder zeilenweise importiert werden kann
+     */
+    private class GeoJsonWriter implements RowWriter {
+
+        private final JsonGenerator json;
+
+        GeoJsonWriter(OutputStream out) throws IOException {
+            this.json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void begin() throws IOException {
+            json.writeStartObject();
+            json.writeStringField("type", "FeatureCollection");
+            json.writeArrayFieldStart("features");
+            json.writeRaw('\n');
+        }
+
+        @Override
+        public void write(GhostNet g) throws IOException {
+            json.writeStartObject();
+            json.writeStringField("type", "Feature");
+            json.writeNumberField("id", g.getId());
+            if (g.getLatitude() != null && g.getLongitude() != null) {
+                json.writeObjectFieldStart("geometry");
+                json.writeStringField("type", "Point");
+                json.writeArrayFieldStart("coordinates");
+                json.writeNumber(g.getLongitude()); // GeoJSON: Länge vor Breite
+                json.writeNumber(g.getLatitude());
+                json.writeEndArray();
+                json.writeEndObject();
+            } else {
+                json.writeNullField("geometry");
+            }
+            json.writeObjectFieldStart("properties");
+            json.writeStringField("status", g.getStatus() != null ? g.getStatus().name() : null);
+            json.writeStringField("location", g.getLocation());
+            json.writeStringField("estimatedSize", g.getEstimatedSize());
+            json.writeStringField("description", g.getDescription());
+            timestamp("createdAt", g.getCreatedAt());
+            timestamp("reportedAt", g.getReportedAt());
+            json.writeStringField("reporterName", g.getReporterName());
+            json.writeStringField("reportedBy", g.getReportedBy());
+            json.writeObjectField("reporterId", g.getReporterId());
+            json.writeObjectField("salvorUserId", g.getSalvorUserId());
+            timestamp("updatedAt", g.getUpdatedAt());
+            json.writeEndObject();
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            json.flush();
+        }
+
+        @Override
+        public void end() throws IOException {
+            json.writeEndArray();
+            json.writeEndObject();
+            json.close();
+        }
+
+        private void timestamp(String name, LocalDateTime value) throws IOException {
+            json.writeStringField(name, value != null ? value.toString() : null);
+        }
+    }
+}
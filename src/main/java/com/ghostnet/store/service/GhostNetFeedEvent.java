@@ -0,0 +1,66 @@
+package com.ghostnet.store.service;
+
+import com.ghostnet.store.domain.GhostNetStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Kompakter Eintrag im Änderungs-Feed der Geisternetze
+ * Enthält nur die für Liste und Karte nötigen Felder, keine Kontaktinformationen
+ * @param id Ereignis-ID für Last-Event-ID
+ * @param type Art der Änderung
+ * @param ghostNetId ID des Geisternetzes
+ * @param status Status nach der Änderung (null bei DELETED)
+ * @param previousStatus Status vor der Änderung (null bei CREATED)
+ * @param latitude Breitengrad
+ * @param longitude Längengrad
+ * @param reporterId ID des Melders
+ * @param salvorUserId ID des Bergers nach der Änderung
+ * @param previousSalvorUserId ID des Bergers vor der Änderung
+ * @param occurredAt Zeitpunkt der Änderung
+ */
+public record GhostNetFeedEvent(String id,
+                                GhostNetChangedEvent.Type type,
+                                Long ghostNetId,
+                                GhostNetStatus status,
+                                GhostNetStatus previousStatus,
+                                Double latitude,
+                                Double longitude,
+                                Long reporterId,
+                                Long salvorUserId,
+                                Long previousSalvorUserId,
+                                LocalDateTime occurredAt) {
+
+    /**
+     * Erzeugt einen Feed-Eintrag aus einem Änderungsereignis
+     * @param id Ereignis-ID
+     * @param event Änderungsereignis
+     * @return Feed-Eintrag
+     */
+    static GhostNetFeedEvent of(String id, GhostNetChangedEvent event) {
+        GhostNetSnapshot before = event.before();
+        GhostNetSnapshot after = event.after();
+        GhostNetSnapshot current = after != null ? after : before;
+        return new GhostNetFeedEvent(
+            id,
+            event.type(),
+            event.ghostNetId(),
+            after != null ? after.status() : null,
+            before != null ? before.status() : null,
+            current.latitude(),
+            current.longitude(),
+            current.reporterId(),
+            after != null ? after.salvorUserId() : null,
+            before != null ? before.salvorUserId() : null,
+            LocalDateTime.now());
+    }
+
+    /**
+     * Prüft ob das Ereignis einen User als Melder oder Berger betrifft
+     * @param userId ID des Users
+     * @return true wenn der User vor oder nach der Änderung beteiligt ist
+     */
+    public boolean concerns(Long userId) {
+        return userId.equals(reporterId) || userId.equals(salvorUserId) || userId.equals(previousSalvorUserId);
+    }
+}
@@ -0,0 +1,159 @@
+package com.ghostnet.store.service;
+
+import com.ghostnet.store.domain.GhostNet;
+import com.ghostnet.store.domain.GhostNetStatus;
+import com.ghostnet.store.repository.GhostNetRepository;
+import com.ghostnet.store.security.AuthenticatedUser;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Nimmt viele Meldungen auf einmal entgegen, z.B. nach einem Erkundungsflug einer Partnerorganisation
+ * Alle Meldungen werden in einem Durchlauf geprüft und die gültigen in einer Transaktion gespeichert.
+ * IDs kommen blockweise aus ghost_net_seq und die Inserts werden als JDBC-Batch gesendet
+ */
+@Service
+public class GhostNetIngestService {
+
+    /** Maximale Länge der Textspalten */
+    private static final int MAX_TEXT_LENGTH = 255;
+
+    private final GhostNetRepository ghostNetRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final TransactionTemplate transaction;
+
+    private final DuplicateDetector duplicateDetector;
+
+    /**
+     * Ergebnis für eine einzelne Meldung
+     * @param index Position in der übergebenen Liste
+     * @param id ID des gespeicherten Geisternetzes (null wenn abgelehnt)
+     * @param status CREATED, DUPLICATE (id ist dann die ursprüngliche Meldung) oder REJECTED
+     * @param error Grund der Ablehnung (null wenn gespeichert)
+     */
+    public record ItemResult(int index, Long id, String status, String error) {
+
+        static ItemResult created(int index, Long id) {
+            return new ItemResult(index, id, "CREATED", null);
+        }
+
+        static ItemResult duplicate(int index, Long originalId) {
+            return new ItemResult(index, originalId, "DUPLICATE", null);
+        }
+
+        static ItemResult rejected(int index, String error) {
+            return new ItemResult(index, null, "REJECTED", error);
+        }
+    }
+
+    public GhostNetIngestService(GhostNetRepository ghostNetRepository,
+                                 ApplicationEventPublisher eventPublisher,
+                                 PlatformTransactionManager transactionManager,
+                                 DuplicateDetector duplicateDetector) {
+        this.ghostNetRepository = ghostNetRepository;
+        this.eventPublisher = eventPublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.duplicateDetector = duplicateDetector;
+    }
+
+    /**
+     * Prüft und speichert eine Liste von Meldungen
+     * Ungültige Meldungen werden übersprungen, die übrigen gemeinsam gespeichert. Vermutliche Duplikate
+     * kürzlich eingegangener Meldungen werden je nach Einstellung markiert oder nicht gespeichert
+     * @param reports Gemeldete Geisternetze
+     * @param reporter Meldender User (optional)
+     * @return Ergebnis je Meldung in der Reihenfolge der Eingabe
+     */
+    public List<ItemResult> ingest(List<GhostNet> reports, AuthenticatedUser reporter) {
+        ItemResult[] results = new ItemResult[reports.size()];
+        List<GhostNet> accepted = new ArrayList<>(reports.size());
+        List<Integer> positions = new ArrayList<>(reports.size());
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < reports.size(); i++) {
+            GhostNet ghostNet = reports.get(i);
+            String error = validate(ghostNet);
+            if (error != null) {
+                results[i] = ItemResult.rejected(i, error);
+                continue;
+            }
+            ghostNet.setId(null);
+            ghostNet.setStatus(GhostNetStatus.GEMELDET);
+            ghostNet.setCreatedAt(now);
+            ghostNet.setReportedAt(now);
+            ghostNet.setSalvorUserId(null);
+            ghostNet.setMissingReporterName(null);
+            ghostNet.setMissingReporterPhone(null);
+            ghostNet.setDuplicateOfId(null);
+            Optional<GhostNetSnapshot> original = duplicateDetector.findDuplicate(ghostNet.getLatitude(), ghostNet.getLongitude());
+            if (original.isPresent()) {
+                if (duplicateDetector.mode() == DuplicateDetector.Mode.MERGE) {
+                    results[i] = ItemResult.duplicate(i, original.get().id());
+                    continue;
+                }
+                ghostNet.setDuplicateOfId(original.get().id());
+            }
+            if (reporter != null) {
+                ghostNet.setReporterName(reporter.getName() != null ? reporter.getName() : "");
+                ghostNet.setReportedBy(reporter.getUsername());
+                ghostNet.setReporterId(reporter.getId());
+            }
+            accepted.add(ghostNet);
+            positions.add(i);
+        }
+
+        if (!accepted.isEmpty()) {
+            transaction.executeWithoutResult(status -> {
+                List<GhostNet> saved = ghostNetRepository.saveAll(accepted);
+                ghostNetRepository.flush();
+                for (int i = 0; i < saved.size(); i++) {
+                    GhostNet ghostNet = saved.get(i);
+                    eventPublisher.publishEvent(new GhostNetChangedEvent(
+                        GhostNetChangedEvent.Type.CREATED, null, GhostNetSnapshot.of(ghostNet)));
+                    results[positions.get(i)] = ItemResult.created(positions.get(i), ghostNet.getId());
+                }
+            });
+        }
+        return List.of(results);
+    }
+
+    /**
+     * Prüft eine einzelne Meldung
+     * @param ghostNet Gemeldetes Geisternetz
+     * @return Fehlerbeschreibung oder null wenn gültig
+     */
+    public static String validate(GhostNet ghostNet) {
+        if (ghostNet == null) {
+            return "Missing report";
+        }
+        if (ghostNet.getLatitude() == null || ghostNet.getLongitude() == null) {
+            return "Latitude and longitude are required";
+        }
+        // Negiert geprüft, damit auch NaN abgelehnt wird ("NaN" kann MySQL nicht speichern)
+        if (!(ghostNet.getLatitude() >= -90 && ghostNet.getLatitude() <= 90)) {
+            return "Latitude out of range";
+        }
+        if (!(ghostNet.getLongitude() >= -180 && ghostNet.getLongitude() <= 180)) {
+            return "Longitude out of range";
+        }
+        if (tooLong(ghostNet.getLocation()) || tooLong(ghostNet.getDescription()) || tooLong(ghostNet.getEstimatedSize())
+                || tooLong(ghostNet.getReporterName()) || tooLong(ghostNet.getReportedBy())
+                || tooLong(ghostNet.getMissingReporterName()) || tooLong(ghostNet.getMissingReporterPhone())) {
+            return "Text fields must not exceed " + MAX_TEXT_LENGTH + " characters";
+        }
+        return null;
+    }
+
+    private static boolean tooLong(String value) {
+        return value != null && value.length() > MAX_TEXT_LENGTH;
+    }
+}
@@ -0,0 +1,317 @@
+package com.ghostnet.store.service;
+
+import com.ghostnet.store.domain.GhostNetStatus;
+import com.ghostnet.store.repository.GhostNetRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-Memory-Lesemodell aller Geisternetze
+ * Hält Snapshots aller Netze, indiziert nach ID, Melder, Berger und Status, jeweils
+ * sortiert nach (createdAt, id) mit den neuesten zuerst. Wird beim Start geladen,
+ * über Änderungsereignisse aktualisiert und regelmäßig gegen die Datenbank geprüft.
+ * Solange das Modell nicht bereit ist, müssen Aufrufer auf die Datenbank ausweichen
+ */
+@Service
+public class GhostNetReadModel {
+
+    private static final Logger logger = LoggerFactory.getLogger(GhostNetReadModel.class);
+
+    /** Reihenfolge wie ORDER BY created_at DESC, id DESC in MySQL (NULL zuletzt) */
+    private static final Comparator<GhostNetSnapshot> NEWEST_FIRST = Comparator
+            .comparing(GhostNetSnapshot::createdAt, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+            .thenComparing(GhostNetSnapshot::id, Comparator.nullsFirst(Comparator.<Long>naturalOrder()))
+            .reversed();
+
+    private final GhostNetSnapshotLoader snapshotLoader;
+
+    private final GhostNetRepository ghostNetRepository;
+
+    private final ChangeVersion changeVersion;
+
+    private final boolean enabled;
+
+    private final Map<Long, GhostNetSnapshot> byId = new HashMap<>();
+
+    /** Zuletzt übernommene Version je Netz, verspätete ältere Ereignisse werden verworfen */
+    private final SnapshotVersions versions = new SnapshotVersions();
+
+    private final NavigableSet<GhostNetSnapshot> newestFirst = new TreeSet<>(NEWEST_FIRST);
+
+    private final Map<Long, NavigableSet<GhostNetSnapshot>> byReporter = new HashMap<>();
+
+    private final Map<Long, NavigableSet<GhostNetSnapshot>> bySalvor = new HashMap<>();
+
+    private final Map<GhostNetStatus, NavigableSet<GhostNetSnapshot>> byStatus = new EnumMap<>(GhostNetStatus.class);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+
+    public GhostNetReadModel(GhostNetSnapshotLoader snapshotLoader,
+                             GhostNetRepository ghostNetRepository,
+                             ChangeVersion changeVersion,
+                             @Value("${netpatrol.read-model.enabled:true}") boolean enabled) {
+        this.snapshotLoader = snapshotLoader;
+        this.ghostNetRepository = ghostNetRepository;
+        this.changeVersion = changeVersion;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Prüft ob das Modell geladen ist und Anfragen beantworten kann
+     * @return true wenn Lesezugriffe ohne Datenbank möglich sind
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Lädt das Modell nach dem Start aus der Datenbank
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Übernimmt eine Änderung an einem Geisternetz
+     * Läuft vor dem Erhöhen der Änderungsversion, damit kein neues ETag für veraltete Daten ausgegeben wird
+     * @param event Änderungsereignis
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGhostNetChanged(GhostNetChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!versions.accept(event)) {
+                return;
+            }
+            remove(event.ghostNetId());
+            if (event.after() != null) {
+                add(event.after());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Übernimmt die Netze eines Importbatches
+     * @param event Importereignis
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGhostNetsImported(GhostNetsImportedEvent event) {
+        event.changes().forEach(this::onGhostNetChanged);
+    }
+
+    /**
+     * Vergleicht die Anzahl der Netze je Status mit der Datenbank und lädt das Modell bei Abweichungen neu
+     * Eine Abweichung wird erst nach einer zweiten Prüfung als Inkonsistenz gewertet, da Änderungen
+     * erst nach dem Commit in das Modell übernommen werden
+     */
+    @Scheduled(fixedDelayString = "${netpatrol.read-model.check-interval:PT5M}",
+               initialDelayString = "${netpatrol.read-model.check-interval:PT5M}")
+    public void checkConsistency() {
+        if (!ready) {
+            return;
+        }
+        if (isConsistent()) {
+            return;
+        }
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (!isConsistent()) {
+            logger.warn("Ghost net read model diverged from database, rebuilding");
+            rebuild();
+            changeVersion.increment(); // Zwischengespeicherte Antworten können veraltet sein
+        }
+    }
+
+    /**
+     * Liefert alle Netze, neueste zuerst
+     * @return Kopie der sortierten Liste
+     */
+    public List<GhostNetSnapshot> findAll() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(newestFirst);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Liefert eine Seite von Netzen strikt hinter der Cursor-Position
+     * @param cursor Position des letzten Eintrags der vorherigen Seite (null für die erste Seite)
+     * @param limit Maximale Anzahl an Einträgen
+     * @return Netze der Seite, neueste zuerst
+     */
+    public List<GhostNetSnapshot> findPage(GhostNetCursor cursor, int limit) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<GhostNetSnapshot> tail = cursor == null
+                    ? newestFirst
+                    : newestFirst.tailSet(probe(cursor.createdAt(), cursor.id()), false);
+            return tail.stream().limit(limit).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Liefert alle Netze eines Melders, neueste zuerst
+     * @param reporterId ID des Melders
+     * @return Netze des Melders
+     */
+    public List<GhostNetSnapshot> findByReporterId(Long reporterId) {
+        return copy(byReporter, reporterId);
+    }
+
+    /**
+     * Liefert alle Netze eines Bergers, neueste zuerst
+     * @param salvorUserId ID des Bergers
+     * @return Zugewiesene Netze
+     */
+    public List<GhostNetSnapshot> findBySalvorUserId(Long salvorUserId) {
+        return copy(bySalvor, salvorUserId);
+    }
+
+    /**
+     * Liefert alle Netze mit einem Status, neueste zuerst
+     * @param status Status
+     * @return Netze mit diesem Status
+     */
+    public List<GhostNetSnapshot> findByStatus(GhostNetStatus status) {
+        return copy(byStatus, status);
+    }
+
+    /** Lädt alle Netze neu; während des Ladens ist das Modell nicht bereit */
+    private void rebuild() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            byId.clear();
+            versions.clear();
+            newestFirst.clear();
+            byReporter.clear();
+            bySalvor.clear();
+            byStatus.clear();
+            long loaded = snapshotLoader.forEach(ghostNet -> {
+                versions.loaded(ghostNet);
+                add(ghostNet);
+            });
+            ready = true;
+            logger.info("Ghost net read model loaded with {} ghost nets", loaded);
+        } catch (RuntimeException e) {
+            logger.error("Failed to load ghost net read model", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Vergleicht die Anzahl je Status mit der Datenbank */
+    private boolean isConsistent() {
+        Map<GhostNetStatus, Long> database = new HashMap<>();
+        for (Object[] row : ghostNetRepository.countGroupedByStatus()) {
+            database.put((GhostNetStatus) row[0], (Long) row[1]);
+        }
+        lock.readLock().lock();
+        try {
+            Map<GhostNetStatus, Long> memory = new HashMap<>();
+            byStatus.forEach((status, nets) -> memory.put(status, (long) nets.size()));
+            long withoutStatus = byId.size() - memory.values().stream().mapToLong(Long::longValue).sum();
+            if (withoutStatus > 0) {
+                memory.put(null, withoutStatus);
+            }
+            return database.equals(memory);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Fügt einen Snapshot in alle Indizes ein (Aufruf nur unter Schreibsperre) */
+    private void add(GhostNetSnapshot ghostNet) {
+        byId.put(ghostNet.id(), ghostNet);
+        newestFirst.add(ghostNet);
+        if (ghostNet.reporterId() != null) {
+            byReporter.computeIfAbsent(ghostNet.reporterId(), k -> new TreeSet<>(NEWEST_FIRST)).add(ghostNet);
+        }
+        if (ghostNet.salvorUserId() != null) {
+            bySalvor.computeIfAbsent(ghostNet.salvorUserId(), k -> new TreeSet<>(NEWEST_FIRST)).add(ghostNet);
+        }
+        if (ghostNet.status() != null) {
+            byStatus.computeIfAbsent(ghostNet.status(), k -> new TreeSet<>(NEWEST_FIRST)).add(ghostNet);
+        }
+    }
+
+    /** Entfernt einen Snapshot aus allen Indizes (Aufruf nur unter Schreibsperre) */
+    private void remove(Long id) {
+        GhostNetSnapshot previous = byId.remove(id);
+        if (previous == null) {
+            return;
+        }
+        newestFirst.remove(previous);
+        removeFrom(byReporter, previous.reporterId(), previous);
+        removeFrom(bySalvor, previous.salvorUserId(), previous);
+        removeFrom(byStatus, previous.status(), previous);
+    }
+
+    private static <K> void removeFrom(Map<K, NavigableSet<GhostNetSnapshot>> index, K key, GhostNetSnapshot ghostNet) {
+        if (key == null) {
+            return;
+        }
+        NavigableSet<GhostNetSnapshot> nets = index.get(key);
+        if (nets != null) {
+            nets.remove(ghostNet);
+            if (nets.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private <K> List<GhostNetSnapshot> copy(Map<K, NavigableSet<GhostNetSnapshot>> index, K key) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<GhostNetSnapshot> nets = index.get(key);
+            return nets != null ? new ArrayList<>(nets) : List.of();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Vergleichsobjekt für eine Cursor-Position */
+    private static GhostNetSnapshot probe(LocalDateTime createdAt, Long id) {
+        return new GhostNetSnapshot(id, null, null, null, null, null, null, createdAt,
+                null, null, null, null, null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,67 @@
+package com.ghostnet.store.service;
+
+import com.ghostnet.store.domain.GhostNet;
+import com.ghostnet.store.domain.GhostNetStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Unveränderliche Kopie eines Geisternetzes zu einem bestimmten Zeitpunkt
+ * Wird in Änderungsereignissen und In-Memory-Strukturen verwendet, damit diese nicht
+ * von veränderlichen, an den Persistence Context gebundenen Entities abhängen
+ */
+public record GhostNetSnapshot(
+        Long id,
+        String location,
+        Double latitude,
+        Double longitude,
+        GhostNetStatus status,
+        String estimatedSize,
+        String description,
+        LocalDateTime createdAt,
+        String reporterName,
+        LocalDateTime reportedAt,
+        String reportedBy,
+        Long salvorUserId,
+        Long reporterId,
+        String missingReporterName,
+        String missingReporterPhone,
+        Long duplicateOfId,
+        LocalDateTime updatedAt,
+        Long version) {
+
+    /**
+     * Erstellt eine Kopie des aktuellen Zustands eines Geisternetzes
+     * @param ghostNet Geisternetz-Entity
+     * @return Snapshot des Geisternetzes
+     */
+    public static GhostNetSnapshot of(GhostNet ghostNet) {
+        return new GhostNetSnapshot(
+                ghostNet.getId(),
+                ghostNet.getLocation(),
+                ghostNet.getLatitude(),
+                ghostNet.getLongitude(),
+                ghostNet.getStatus(),
+                ghostNet.getEstimatedSize(),
+                ghostNet.getDescription(),
+                ghostNet.getCreatedAt(),
+                ghostNet.getReporterName(),
+                ghostNet.getReportedAt(),
+                ghostNet.getReportedBy(),
+                ghostNet.getSalvorUserId(),
+                ghostNet.getReporterId(),
+                ghostNet.getMissingReporterName(),
+                ghostNet.getMissingReporterPhone(),
+                ghostNet.getDuplicateOfId(),
+                ghostNet.getUpdatedAt(),
+                ghostNet.getVersion());
+    }
+
+    /**
+     * Prüft ob Koordinaten vorhanden sind
+     * @return true wenn Breiten- und Längengrad gesetzt sind
+     */
+    public boolean hasPosition() {
+        return latitude != null && longitude != null;
+    }
+}
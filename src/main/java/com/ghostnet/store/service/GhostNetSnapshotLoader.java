@@ -0,0 +1,54 @@
+package com.ghostnet.store.service;
+
+import com.ghostnet.store.domain.GhostNet;
+import com.ghostnet.store.repository.GhostNetRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Lädt alle Geisternetze als Snapshots für den Aufbau von In-Memory-Strukturen
+ * Die Tabelle wird gestreamt und jede Entity sofort wieder aus dem Persistence Context entfernt
+ */
+@Component
+public class GhostNetSnapshotLoader {
+
+    @Autowired
+    private GhostNetRepository ghostNetRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Übergibt jedes Geisternetz als Snapshot an den Consumer
+     * @param consumer Empfänger der Snapshots
+     * @return Anzahl der geladenen Geisternetze
+     */
+    public long forEach(Consumer<GhostNetSnapshot> consumer) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> {
+            long count = 0;
+            try (Stream<GhostNet> ghostNets = ghostNetRepository.streamAllNewestFirst()) {
+                Iterator<GhostNet> rows = ghostNets.iterator();
+                while (rows.hasNext()) {
+                    GhostNet ghostNet = rows.next();
+                    consumer.accept(GhostNetSnapshot.of(ghostNet));
+                    entityManager.detach(ghostNet);
+                    count++;
+                }
+            }
+            return count;
+        });
+    }
+}
@@ -0,0 +1,179 @@
+package com.ghostnet.store.service;
+
+import com.ghostnet.store.domain.GhostNet;
+import com.ghostnet.store.domain.GhostNetStatus;
+import com.ghostnet.store.repository.GhostNetRepository;
+import com.ghostnet.store.security.AuthenticatedUser;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Statusübergänge eines einzelnen Geisternetzes (zuweisen, bergen, als verschollen markieren)
+ * Jeder Übergang wird gegen die Übergangstabelle von {@link GhostNetStatus} geprüft und ist ein einziges
+ * bedingtes UPDATE auf ID, gelesener Version und den laut Tabelle zulässigen Ausgangsstatus, ohne Sperren und ohne Merge der Entity. Hat ein anderer Request das Netz
+ * zwischenzeitlich geändert, trifft das UPDATE keine Zeile und der Übergang endet mit CONFLICT
+ * statt die andere Änderung zu überschreiben. Das Änderungsereignis wird in derselben Transaktion
+ * veröffentlicht
+ */
+@Service
+public class GhostNetTransitionService {
+
+    /** Ausgang eines Übergangs */
+    public enum Status {
+        OK,
+        NOT_FOUND,
+        FORBIDDEN,
+        INVALID_STATE,
+        CONFLICT
+    }
+
+    /**
+     * Ergebnis eines Übergangs
+     * @param status Ausgang
+     * @param ghostNet Geändertes Geisternetz (nur bei OK)
+     */
+    public record Result(Status status, GhostNet ghostNet) {
+
+        static Result of(Status status) {
+            return new Result(status, null);
+        }
+    }
+
+    private final GhostNetRepository ghostNetRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final TransactionTemplate transaction;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public GhostNetTransitionService(GhostNetRepository ghostNetRepository,
+                                     ApplicationEventPublisher eventPublisher,
+                                     PlatformTransactionManager transactionManager) {
+        this.ghostNetRepository = ghostNetRepository;
+        this.eventPublisher = eventPublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Weist ein gemeldetes Geisternetz dem User zur Bergung zu (GEMELDET → BERGUNG_BEVORSTEHEND)
+     * @param id ID des Geisternetzes
+     * @param user Angemeldeter User
+     * @return OK, NOT_FOUND, INVALID_STATE wenn das Netz nicht gemeldet ist, oder CONFLICT
+     */
+    public Result assign(Long id, AuthenticatedUser user) {
+        return transaction.execute(tx -> {
+            GhostNet ghostNet = ghostNetRepository.findById(id).orElse(null);
+            if (ghostNet == null) {
+                return Result.of(Status.NOT_FOUND);
+            }
+            GhostNetStatus target = GhostNetStatus.BERGUNG_BEVORSTEHEND;
+            if (!canTransition(ghostNet, target)) {
+                return Result.of(Status.INVALID_STATE);
+            }
+            GhostNetSnapshot before = GhostNetSnapshot.of(ghostNet);
+            LocalDateTime now = LocalDateTime.now();
+            if (ghostNetRepository.assign(id, ghostNet.getVersion(), user.getId(), target, target.sources(), now) == 0) {
+                return Result.of(Status.CONFLICT);
+            }
+            entityManager.detach(ghostNet);
+            ghostNet.setSalvorUserId(user.getId());
+            ghostNet.setStatus(target);
+            return applied(ghostNet, now, GhostNetChangedEvent.Type.ASSIGNED, before);
+        });
+    }
+
+    /**
+     * Markiert ein Geisternetz als geborgen; nur der zugewiesene Berger darf bergen
+     * @param id ID des Geisternetzes
+     * @param user Angemeldeter User
+     * @return OK, NOT_FOUND, FORBIDDEN, INVALID_STATE wenn es bereits geborgen ist, oder CONFLICT
+     */
+    public Result recover(Long id, AuthenticatedUser user) {
+        return transaction.execute(tx -> {
+            GhostNet ghostNet = ghostNetRepository.findById(id).orElse(null);
+            if (ghostNet == null) {
+                return Result.of(Status.NOT_FOUND);
+            }
+            if (ghostNet.getSalvorUserId() == null || !ghostNet.getSalvorUserId().equals(user.getId())) {
+                return Result.of(Status.FORBIDDEN);
+            }
+            GhostNetStatus target = GhostNetStatus.GEBORGEN;
+            if (!canTransition(ghostNet, target)) {
+                return Result.of(Status.INVALID_STATE);
+            }
+            GhostNetSnapshot before = GhostNetSnapshot.of(ghostNet);
+            LocalDateTime now = LocalDateTime.now();
+            if (ghostNetRepository.recover(id, ghostNet.getVersion(), user.getId(), target, target.sources(), now) == 0) {
+                return Result.of(Status.CONFLICT);
+            }
+            entityManager.detach(ghostNet);
+            ghostNet.setStatus(target);
+            return applied(ghostNet, now, GhostNetChangedEvent.Type.RECOVERED, before);
+        });
+    }
+
+    /**
+     * Markiert ein Geisternetz als verschollen und hinterlegt die Kontaktdaten des Users
+     * Fehlende Melderangaben werden mit den Daten des Users ergänzt (Constraint chk_missing_contact)
+     * @param id ID des Geisternetzes
+     * @param user Angemeldeter User
+     * @return OK, NOT_FOUND, INVALID_STATE wenn es bereits geborgen ist, oder CONFLICT
+     */
+    public Result markMissing(Long id, AuthenticatedUser user) {
+        return transaction.execute(tx -> {
+            GhostNet ghostNet = ghostNetRepository.findById(id).orElse(null);
+            if (ghostNet == null) {
+                return Result.of(Status.NOT_FOUND);
+            }
+            GhostNetStatus target = GhostNetStatus.VERSCHOLLEN;
+            if (!canTransition(ghostNet, target)) {
+                return Result.of(Status.INVALID_STATE);
+            }
+            GhostNetSnapshot before = GhostNetSnapshot.of(ghostNet);
+            String contactName = isBlank(user.getName()) ? user.getUsername() : user.getName();
+            String reporterName = isBlank(ghostNet.getReporterName()) ? contactName : ghostNet.getReporterName();
+            String reportedBy = isBlank(ghostNet.getReportedBy()) ? user.getUsername() : ghostNet.getReportedBy();
+            Long reporterId = ghostNet.getReporterId() != null ? ghostNet.getReporterId() : user.getId();
+            // Der Constraint verlangt eine Telefonnummer, ohne Angabe wird "N/A" gespeichert
+            String contactPhone = isBlank(user.getPhone()) ? "N/A" : user.getPhone();
+            LocalDateTime now = LocalDateTime.now();
+            if (ghostNetRepository.markMissing(id, ghostNet.getVersion(), reporterName, reportedBy, reporterId,
+                    contactName, contactPhone, target, target.sources(), now) == 0) {
+                return Result.of(Status.CONFLICT);
+            }
+            entityManager.detach(ghostNet);
+            ghostNet.setReporterName(reporterName);
+            ghostNet.setReportedBy(reportedBy);
+            ghostNet.setReporterId(reporterId);
+            ghostNet.setMissingReporterName(contactName);
+            ghostNet.setMissingReporterPhone(contactPhone);
+            ghostNet.setStatus(target);
+            return applied(ghostNet, now, GhostNetChangedEvent.Type.MARKED_MISSING, before);
+        });
+    }
+
+    /** Übernimmt Version und Änderungszeitpunkt des UPDATE in die abgekoppelte Entity und veröffentlicht das Ereignis */
+    private Result applied(GhostNet ghostNet, LocalDateTime now, GhostNetChangedEvent.Type type, GhostNetSnapshot before) {
+        ghostNet.setVersion(ghostNet.getVersion() + 1);
+        ghostNet.setUpdatedAt(now);
+        eventPublisher.publishEvent(new GhostNetChangedEvent(type, before, GhostNetSnapshot.of(ghostNet)));
+        return new Result(Status.OK, ghostNet);
+    }
+
+    /** Prüft den Übergang vom aktuellen Status des Netzes gegen die Übergangstabelle */
+    private static boolean canTransition(GhostNet ghostNet, GhostNetStatus target) {
+        return ghostNet.getStatus() != null && ghostNet.getStatus().canTransitionTo(target);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
@@ -0,0 +1,23 @@
+package com.ghostnet.store.service;
+
+import java.util.List;
+
+/**
+ * Ereignis für einen gespeicherten Batch des Massenimports
+ * Ersetzt einzelne GhostNetChangedEvents: die Statistik verbucht Importe selbst mit ihren historischen
+ * Tagen, und der Live-Feed soll nicht mit Importzeilen geflutet werden. In-Memory-Indizes und
+ * Änderungsversion übernehmen den Batch wie neu angelegte Netze
+ * @param ghostNets Im Batch gespeicherte Netze
+ */
+public record GhostNetsImportedEvent(List<GhostNetSnapshot> ghostNets) {
+
+    /**
+     * Liefert je Netz ein CREATED-Ereignis für Listener, die Änderungen einzeln übernehmen
+     * @return Änderungsereignisse in Importreihenfolge
+     */
+    public List<GhostNetChangedEvent> changes() {
+        return ghostNets.stream()
+                .map(ghostNet -> new GhostNetChangedEvent(GhostNetChangedEvent.Type.CREATED, null, ghostNet))
+                .toList();
+    }
+}
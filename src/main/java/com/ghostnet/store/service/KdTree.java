@@ -0,0 +1,251 @@
+package com.ghostnet.store.service;
+
+import java.util.function.LongPredicate;
+
+/**
+ * Statischer 3D-KD-Baum über Punkten auf der Einheitskugel
+ * Breiten- und Längengrad werden in Einheitsvektoren umgerechnet. Die euklidische Sehnenlänge wächst
+ * streng monoton mit der Großkreisentfernung, daher liefert die Suche nach den nächsten Nachbarn im
+ * Raum exakt die nächsten Punkte auf der Kugel, ohne Sonderfälle an Datumsgrenze und Polen.
+ * Die Knoten liegen implizit in Arrays (Median jeder Teilliste ist der Teilbaum-Wurzelknoten)
+ */
+final class KdTree {
+
+    /** Mittlerer Erdradius in Metern */
+    static final double EARTH_RADIUS = 6_371_000;
+
+    private static final int DIMENSIONS = 3;
+
+    private final long[] ids;
+
+    /** x, y, z je Punkt hintereinander, in Baumreihenfolge */
+    private final double[] coordinates;
+
+    /**
+     * Baut den Baum auf; die übergebenen Arrays werden umsortiert und übernommen
+     * @param ids IDs der Punkte
+     * @param coordinates Einheitsvektoren der Punkte, drei Werte je Punkt
+     */
+    KdTree(long[] ids, double[] coordinates) {
+        this.ids = ids;
+        this.coordinates = coordinates;
+        build(0, ids.length, 0);
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * Trägt die nächsten Punkte zu einer Position in die Ergebnisliste ein
+     * @param query Einheitsvektor der Position
+     * @param result Begrenzte Liste der bisher nächsten Punkte
+     * @param skip Punkte, die übersprungen werden sollen (z.B. inzwischen entfernte)
+     */
+    void nearest(double[] query, Nearest result, LongPredicate skip) {
+        search(0, ids.length, 0, query, result, skip);
+    }
+
+    private void search(int from, int to, int axis, double[] query, Nearest result, LongPredicate skip) {
+        if (from >= to) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        int offset = mid * DIMENSIONS;
+        if (!skip.test(ids[mid])) {
+            double dx = query[0] - coordinates[offset];
+            double dy = query[1] - coordinates[offset + 1];
+            double dz = query[2] - coordinates[offset + 2];
+            result.offer(ids[mid], dx * dx + dy * dy + dz * dz);
+        }
+        double diff = query[axis] - coordinates[offset + axis];
+        int next = (axis + 1) % DIMENSIONS;
+        if (diff < 0) {
+            search(from, mid, next, query, result, skip);
+            if (diff * diff < result.bound()) {
+                search(mid + 1, to, next, query, result, skip);
+            }
+        } else {
+            search(mid + 1, to, next, query, result, skip);
+            if (diff * diff < result.bound()) {
+                search(from, mid, next, query, result, skip);
+            }
+        }
+    }
+
+    /** Legt rekursiv den Median jeder Teilliste entlang der abwechselnden Achsen fest */
+    private void build(int from, int to, int axis) {
+        if (to - from <= 1) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        select(from, to - 1, mid, axis);
+        int next = (axis + 1) % DIMENSIONS;
+        build(from, mid, next);
+        build(mid + 1, to, next);
+    }
+
+    /**
+     * Quickselect mit Hoare-Partitionierung: bringt das k-kleinste Element entlang der Achse an Position k
+     * Gleiche Koordinaten (z.B. mehrfach gemeldete Positionen) führen so nicht zu quadratischer Laufzeit
+     */
+    private void select(int left, int right, int k, int axis) {
+        while (right > left) {
+            double pivot = coordinates[((left + right) >>> 1) * DIMENSIONS + axis];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (coordinates[i * DIMENSIONS + axis] < pivot) {
+                    i++;
+                }
+                while (coordinates[j * DIMENSIONS + axis] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        if (a == b) {
+            return;
+        }
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        for (int d = 0; d < DIMENSIONS; d++) {
+            double value = coordinates[a * DIMENSIONS + d];
+            coordinates[a * DIMENSIONS + d] = coordinates[b * DIMENSIONS + d];
+            coordinates[b * DIMENSIONS + d] = value;
+        }
+    }
+
+    /**
+     * Rechnet eine Position in einen Einheitsvektor um
+     * @param latitude Breitengrad
+     * @param longitude Längengrad
+     * @param target Ziel-Array
+     * @param offset Position im Ziel-Array
+     */
+    static void toUnitVector(double latitude, double longitude, double[] target, int offset) {
+        double lat = Math.toRadians(latitude);
+        double lon = Math.toRadians(longitude);
+        double cos = Math.cos(lat);
+        target[offset] = cos * Math.cos(lon);
+        target[offset + 1] = cos * Math.sin(lon);
+        target[offset + 2] = Math.sin(lat);
+    }
+
+    /**
+     * Rechnet eine quadrierte Sehnenlänge auf der Einheitskugel in die Großkreisentfernung um
+     * @param squaredChord Quadrat der Sehnenlänge
+     * @return Entfernung in Metern
+     */
+    static double toMeters(double squaredChord) {
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(squaredChord) / 2));
+    }
+
+    /**
+     * Begrenzte Liste der k nächsten Punkte als Max-Heap über der quadrierten Sehnenlänge
+     */
+    static final class Nearest {
+
+        private final long[] ids;
+
+        private final double[] distances;
+
+        private int size;
+
+        Nearest(int k) {
+            ids = new long[k];
+            distances = new double[k];
+        }
+
+        /** Größte noch interessante quadrierte Entfernung */
+        double bound() {
+            return size < ids.length ? Double.POSITIVE_INFINITY : distances[0];
+        }
+
+        void offer(long id, double distance) {
+            if (size < ids.length) {
+                ids[size] = id;
+                distances[size] = distance;
+                siftUp(size++);
+            } else if (distance < distances[0]) {
+                ids[0] = id;
+                distances[0] = distance;
+                siftDown(0);
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Leert den Heap und liefert die IDs aufsteigend nach Entfernung
+         * @param squaredDistances Ziel für die zugehörigen quadrierten Entfernungen
+         * @return IDs, nächster Punkt zuerst
+         */
+        long[] drainSorted(double[] squaredDistances) {
+            int count = size;
+            long[] sorted = new long[count];
+            for (int i = count - 1; i >= 0; i--) {
+                sorted[i] = ids[0];
+                squaredDistances[i] = distances[0];
+                size--;
+                ids[0] = ids[size];
+                distances[0] = distances[size];
+                siftDown(0);
+            }
+            return sorted;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (distances[parent] >= distances[index]) {
+                    return;
+                }
+                swap(parent, index);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int left = 2 * index + 1;
+                int largest = index;
+                if (left < size && distances[left] > distances[largest]) {
+                    largest = left;
+                }
+                if (left + 1 < size && distances[left + 1] > distances[largest]) {
+                    largest = left + 1;
+                }
+                if (largest == index) {
+                    return;
+                }
+                swap(index, largest);
+                index = largest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long id = ids[a];
+            ids[a] = ids[b];
+            ids[b] = id;
+            double distance = distances[a];
+            distances[a] = distances[b];
+            distances[b] = distance;
+        }
+    }
+}
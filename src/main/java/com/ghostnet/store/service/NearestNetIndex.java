@@ -0,0 +1,227 @@
+package com.ghostnet.store.service;
+
+import com.ghostnet.store.domain.GhostNetStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Räumlicher Index für die Suche nach den nächstgelegenen Geisternetzen
+ * Hält je Status einen KD-Baum über den Positionen der Netze, die noch im Meer liegen. Änderungen werden
+ * nicht sofort in den Baum eingebaut: neue Positionen kommen in eine kleine Liste, die bei jeder Abfrage
+ * linear mitgeprüft wird, entfernte Netze werden bei der Suche übersprungen. Überschreiten diese
+ * Änderungen einen Schwellwert, wird der Baum des Status neu aufgebaut
+ */
+@Service
+public class NearestNetIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(NearestNetIndex.class);
+
+    /** Status, für die ein Baum geführt wird; geborgene Netze liegen nicht mehr im Meer */
+    public static final Set<GhostNetStatus> STATUSES = Collections.unmodifiableSet(
+            EnumSet.of(GhostNetStatus.GEMELDET, GhostNetStatus.BERGUNG_BEVORSTEHEND, GhostNetStatus.VERSCHOLLEN));
+
+    /**
+     * Treffer einer Suche
+     * @param distanceMeters Großkreisentfernung zur angefragten Position in Metern
+     * @param ghostNet Geisternetz
+     */
+    public record Nearby(double distanceMeters, GhostNetSnapshot ghostNet) {
+    }
+
+    /** Baum eines Status mit den seit dem letzten Aufbau angefallenen Änderungen */
+    private static final class Partition {
+
+        private KdTree tree = new KdTree(new long[0], new double[0]);
+
+        /** Nach dem letzten Aufbau hinzugekommene Netze */
+        private final Map<Long, double[]> added = new LinkedHashMap<>();
+
+        /** Im Baum enthaltene, inzwischen entfernte oder verschobene Netze */
+        private final Set<Long> removed = new HashSet<>();
+
+        /** Im Baum enthaltene Netze */
+        private final Set<Long> inTree = new HashSet<>();
+    }
+
+    private final Map<GhostNetStatus, Partition> partitions = new EnumMap<>(GhostNetStatus.class);
+
+    /** Aktuell indizierte Netze */
+    private final Map<Long, GhostNetSnapshot> members = new HashMap<>();
+
+    /** Zuletzt übernommene Version je Netz, verspätete ältere Ereignisse werden verworfen */
+    private final SnapshotVersions versions = new SnapshotVersions();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final GhostNetSnapshotLoader snapshotLoader;
+
+    private final int rebuildThreshold;
+
+    public NearestNetIndex(GhostNetSnapshotLoader snapshotLoader,
+                           @Value("${netpatrol.nearest.rebuild-threshold:1024}") int rebuildThreshold) {
+        this.snapshotLoader = snapshotLoader;
+        this.rebuildThreshold = rebuildThreshold;
+        STATUSES.forEach(status -> partitions.put(status, new Partition()));
+    }
+
+    /**
+     * Baut die Bäume nach dem Start aus allen Geisternetzen auf
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        lock.writeLock().lock();
+        try {
+            snapshotLoader.forEach(ghostNet -> {
+                if (indexed(ghostNet)) {
+                    versions.loaded(ghostNet);
+                    members.put(ghostNet.id(), ghostNet);
+                }
+            });
+            partitions.keySet().forEach(this::rebuild);
+            logger.info("Nearest-net index built from {} ghost nets", members.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Übernimmt eine Änderung an einem Geisternetz, z.B. nach Zuweisung, Bergung oder Verschollen-Meldung
+     * @param event Änderungsereignis
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGhostNetChanged(GhostNetChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!versions.accept(event)) {
+                return;
+            }
+            remove(event.ghostNetId());
+            if (event.after() != null && indexed(event.after())) {
+                add(event.after());
+            } else {
+                versions.release(event.ghostNetId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Übernimmt die Netze eines Importbatches
+     * @param event Importereignis
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGhostNetsImported(GhostNetsImportedEvent event) {
+        event.changes().forEach(this::onGhostNetChanged);
+    }
+
+    /**
+     * Liefert die k nächstgelegenen Netze eines Status
+     * @param latitude Breitengrad der Position
+     * @param longitude Längengrad der Position
+     * @param k Anzahl der gewünschten Netze
+     * @param status Status der Netze
+     * @return Netze aufsteigend nach Entfernung
+     * @throws IllegalArgumentException wenn für den Status kein Index geführt wird
+     */
+    public List<Nearby> nearest(double latitude, double longitude, int k, GhostNetStatus status) {
+        Partition partition = partitions.get(status);
+        if (partition == null) {
+            throw new IllegalArgumentException("No index for status " + status);
+        }
+        double[] query = new double[3];
+        KdTree.toUnitVector(latitude, longitude, query, 0);
+        KdTree.Nearest result = new KdTree.Nearest(k);
+
+        lock.readLock().lock();
+        try {
+            partition.tree.nearest(query, result, partition.removed::contains);
+            for (Map.Entry<Long, double[]> entry : partition.added.entrySet()) {
+                double[] point = entry.getValue();
+                double dx = query[0] - point[0];
+                double dy = query[1] - point[1];
+                double dz = query[2] - point[2];
+                result.offer(entry.getKey(), dx * dx + dy * dy + dz * dz);
+            }
+            double[] distances = new double[result.size()];
+            long[] ids = result.drainSorted(distances);
+            List<Nearby> nearby = new ArrayList<>(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                nearby.add(new Nearby(KdTree.toMeters(distances[i]), members.get(ids[i])));
+            }
+            return nearby;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean indexed(GhostNetSnapshot ghostNet) {
+        return ghostNet.hasPosition() && STATUSES.contains(ghostNet.status());
+    }
+
+    private void add(GhostNetSnapshot ghostNet) {
+        members.put(ghostNet.id(), ghostNet);
+        Partition partition = partitions.get(ghostNet.status());
+        double[] point = new double[3];
+        KdTree.toUnitVector(ghostNet.latitude(), ghostNet.longitude(), point, 0);
+        partition.added.put(ghostNet.id(), point);
+        rebuildIfNeeded(ghostNet.status(), partition);
+    }
+
+    private void remove(Long id) {
+        GhostNetSnapshot existing = members.remove(id);
+        if (existing == null) {
+            return;
+        }
+        Partition partition = partitions.get(existing.status());
+        if (partition.added.remove(id) == null && partition.inTree.contains(id)) {
+            partition.removed.add(id);
+            rebuildIfNeeded(existing.status(), partition);
+        }
+    }
+
+    private void rebuildIfNeeded(GhostNetStatus status, Partition partition) {
+        if (partition.added.size() + partition.removed.size() > Math.max(rebuildThreshold, partition.tree.size() / 8)) {
+            rebuild(status);
+        }
+    }
+
+    /** Baut den Baum eines Status aus den aktuell indizierten Netzen neu auf */
+    private void rebuild(GhostNetStatus status) {
+        Partition partition = partitions.get(status);
+        List<GhostNetSnapshot> nets = members.values().stream()
+            .filter(ghostNet -> ghostNet.status() == status)
+            .toList();
+        long[] ids = new long[nets.size()];
+        double[] coordinates = new double[nets.size() * 3];
+        for (int i = 0; i < nets.size(); i++) {
+            GhostNetSnapshot ghostNet = nets.get(i);
+            ids[i] = ghostNet.id();
+            KdTree.toUnitVector(ghostNet.latitude(), ghostNet.longitude(), coordinates, i * 3);
+        }
+        partition.tree = new KdTree(ids, coordinates);
+        partition.added.clear();
+        partition.removed.clear();
+        partition.inTree.clear();
+        for (long id : ids) {
+            partition.inTree.add(id);
+        }
+    }
+}
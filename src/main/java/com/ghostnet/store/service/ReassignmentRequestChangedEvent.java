@@ -0,0 +1,17 @@
+package com.ghostnet.store.service;
+
+/**
+ * Ereignis für jede Änderung an einer Umverteilungsanfrage
+ * @param type Art der Änderung
+ * @param requestId ID der Anfrage, null wenn bei einer Annahme alle übrigen offenen Anfragen des Netzes abgelehnt wurden
+ * @param ghostNetId ID des betroffenen Geisternetzes
+ */
+public record ReassignmentRequestChangedEvent(Type type, Long requestId, Long ghostNetId) {
+
+    /** Art der Änderung */
+    public enum Type {
+        CREATED,
+        ACCEPTED,
+        REJECTED
+    }
+}
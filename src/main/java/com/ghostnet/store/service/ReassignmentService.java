@@ -0,0 +1,194 @@
+package com.ghostnet.store.service;
+
+import com.ghostnet.store.domain.GhostNet;
+import com.ghostnet.store.domain.ReassignmentRequest;
+import com.ghostnet.store.domain.ReassignmentStatus;
+import com.ghostnet.store.repository.GhostNetRepository;
+import com.ghostnet.store.repository.ReassignmentRequestRepository;
+import com.ghostnet.store.security.AuthenticatedUser;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Anlegen, Annehmen und Ablehnen von Umverteilungsanfragen
+ * Jede Aktion läuft in einer Transaktion. Die Annahme besteht aus einem bedingten UPDATE auf das
+ * Geisternetz, einem auf die Anfrage und einem Sammel-UPDATE, das alle übrigen offenen Anfragen
+ * für das Netz ablehnt. Dass es je Netz höchstens eine offene Anfrage gibt, garantiert der
+ * eindeutige Index auf pending_ghost_net_id
+ */
+@Service
+public class ReassignmentService {
+
+    /** Ausgang einer Aktion */
+    public enum Status {
+        OK,
+        NOT_FOUND,
+        FORBIDDEN,
+        INVALID_STATE,
+        CONFLICT
+    }
+
+    /**
+     * Ergebnis einer Aktion
+     * @param status Ausgang
+     * @param request Betroffene Anfrage (nur bei OK)
+     */
+    public record Result(Status status, ReassignmentRequest request) {
+
+        static Result of(Status status) {
+            return new Result(status, null);
+        }
+    }
+
+    private final ReassignmentRequestRepository requestRepository;
+
+    private final GhostNetRepository ghostNetRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final TransactionTemplate transaction;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ReassignmentService(ReassignmentRequestRepository requestRepository,
+                               GhostNetRepository ghostNetRepository,
+                               ApplicationEventPublisher eventPublisher,
+                               PlatformTransactionManager transactionManager) {
+        this.requestRepository = requestRepository;
+        this.ghostNetRepository = ghostNetRepository;
+        this.eventPublisher = eventPublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Legt eine offene Anfrage an, die Bergung eines zugewiesenen Geisternetzes zu übernehmen
+     * @param ghostNetId ID des Geisternetzes
+     * @param user Antragsteller
+     * @return OK, NOT_FOUND, INVALID_STATE ohne Berger oder bei eigener Zuweisung, CONFLICT wenn bereits
+     *         eine offene Anfrage für das Netz existiert
+     */
+    public Result create(Long ghostNetId, AuthenticatedUser user) {
+        try {
+            return transaction.execute(tx -> {
+                GhostNet ghostNet = ghostNetRepository.findById(ghostNetId).orElse(null);
+                if (ghostNet == null) {
+                    return Result.of(Status.NOT_FOUND);
+                }
+                // Ohne Bergenden oder für die eigene Zuweisung gibt es nichts zu übernehmen
+                if (ghostNet.getSalvorUserId() == null || ghostNet.getSalvorUserId().equals(user.getId())) {
+                    return Result.of(Status.INVALID_STATE);
+                }
+
+                ReassignmentRequest request = new ReassignmentRequest();
+                request.setGhostNetId(ghostNetId);
+                request.setRequesterId(user.getId());
+                request.setCurrentSalvorId(ghostNet.getSalvorUserId());
+                request.setStatus(ReassignmentStatus.PENDING);
+                request.setCreatedAt(LocalDateTime.now());
+                // Flush, damit eine Verletzung des eindeutigen Index hier und nicht erst beim Commit auffällt
+                ReassignmentRequest saved = requestRepository.saveAndFlush(request);
+                eventPublisher.publishEvent(new ReassignmentRequestChangedEvent(
+                        ReassignmentRequestChangedEvent.Type.CREATED, saved.getId(), saved.getGhostNetId()));
+                return new Result(Status.OK, saved);
+            });
+        } catch (DataIntegrityViolationException e) {
+            return Result.of(Status.CONFLICT);
+        }
+    }
+
+    /**
+     * Nimmt eine offene Anfrage an und überträgt die Bergung auf den Antragsteller
+     * @param id ID der Anfrage
+     * @param user Aktueller Berger
+     * @return OK, NOT_FOUND, FORBIDDEN wenn der User nicht der Berger ist, INVALID_STATE wenn die Anfrage
+     *         bereits bearbeitet wurde, CONFLICT wenn Netz oder Anfrage zwischenzeitlich geändert wurden
+     */
+    public Result accept(Long id, AuthenticatedUser user) {
+        return transaction.execute(tx -> {
+            ReassignmentRequest request = requestRepository.findById(id).orElse(null);
+            Status denied = check(request, user, ReassignmentStatus.ACCEPTED);
+            if (denied != null) {
+                return Result.of(denied);
+            }
+            GhostNet ghostNet = ghostNetRepository.findById(request.getGhostNetId()).orElse(null);
+            if (ghostNet == null) {
+                return Result.of(Status.NOT_FOUND);
+            }
+
+            GhostNetSnapshot before = GhostNetSnapshot.of(ghostNet);
+            LocalDateTime now = LocalDateTime.now();
+            if (ghostNetRepository.reassign(ghostNet.getId(), ghostNet.getVersion(), request.getCurrentSalvorId(),
+                    request.getRequesterId(), now) == 0
+                    || requestRepository.decide(id, request.getStatus(), ReassignmentStatus.ACCEPTED, now) == 0) {
+                tx.setRollbackOnly();
+                return Result.of(Status.CONFLICT);
+            }
+            int rejected = requestRepository.rejectOthers(ghostNet.getId(), id,
+                    ReassignmentStatus.PENDING, ReassignmentStatus.REJECTED, now);
+
+            // Die Entities sind nach den UPDATEs veraltet und werden nur noch für Ereignis und Antwort angepasst
+            entityManager.detach(ghostNet);
+            entityManager.detach(request);
+            ghostNet.setSalvorUserId(request.getRequesterId());
+            ghostNet.setVersion(ghostNet.getVersion() + 1);
+            ghostNet.setUpdatedAt(now);
+            eventPublisher.publishEvent(new GhostNetChangedEvent(
+                    GhostNetChangedEvent.Type.REASSIGNED, before, GhostNetSnapshot.of(ghostNet)));
+            eventPublisher.publishEvent(new ReassignmentRequestChangedEvent(
+                    ReassignmentRequestChangedEvent.Type.ACCEPTED, id, request.getGhostNetId()));
+            if (rejected > 0) {
+                eventPublisher.publishEvent(new ReassignmentRequestChangedEvent(
+                        ReassignmentRequestChangedEvent.Type.REJECTED, null, request.getGhostNetId()));
+            }
+            request.setStatus(ReassignmentStatus.ACCEPTED);
+            return new Result(Status.OK, request);
+        });
+    }
+
+    /**
+     * Lehnt eine offene Anfrage ab
+     * @param id ID der Anfrage
+     * @param user Aktueller Berger
+     * @return OK, NOT_FOUND, FORBIDDEN wenn der User nicht der Berger ist, INVALID_STATE wenn die Anfrage
+     *         bereits bearbeitet wurde, CONFLICT wenn sie zwischenzeitlich bearbeitet wurde
+     */
+    public Result reject(Long id, AuthenticatedUser user) {
+        return transaction.execute(tx -> {
+            ReassignmentRequest request = requestRepository.findById(id).orElse(null);
+            Status denied = check(request, user, ReassignmentStatus.REJECTED);
+            if (denied != null) {
+                return Result.of(denied);
+            }
+            if (requestRepository.decide(id, request.getStatus(), ReassignmentStatus.REJECTED, LocalDateTime.now()) == 0) {
+                return Result.of(Status.CONFLICT);
+            }
+            entityManager.detach(request);
+            eventPublisher.publishEvent(new ReassignmentRequestChangedEvent(
+                    ReassignmentRequestChangedEvent.Type.REJECTED, id, request.getGhostNetId()));
+            request.setStatus(ReassignmentStatus.REJECTED);
+            return new Result(Status.OK, request);
+        });
+    }
+
+    /** Prüft, ob der User über die Anfrage entscheiden darf und der Übergang erlaubt ist; null wenn ja */
+    private static Status check(ReassignmentRequest request, AuthenticatedUser user, ReassignmentStatus target) {
+        if (request == null) {
+            return Status.NOT_FOUND;
+        }
+        if (request.getCurrentSalvorId() == null || !request.getCurrentSalvorId().equals(user.getId())) {
+            return Status.FORBIDDEN;
+        }
+        if (request.getStatus() == null || !request.getStatus().canTransitionTo(target)) {
+            return Status.INVALID_STATE;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,345 @@
+package com.ghostnet.store.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+
+/**
+ * Plant die Reihenfolge, in der ein Bergender seine zugewiesenen Netze anfährt
+ * Die Route beginnt an der Startposition und endet am letzten Netz. Jeder Neustart baut eine Route nach
+ * dem Nächster-Nachbar-Prinzip (ab dem zweiten Neustart mit zufälliger Wahl unter den nächsten
+ * Kandidaten) und verbessert sie mit 2-opt und Or-opt, bis kein Zug mehr kürzer ist. Die Neustarts
+ * laufen parallel auf einem eigenen Fork/Join-Pool und brechen spätestens nach dem Zeitbudget ab;
+ * geliefert wird die kürzeste gefundene Route
+ */
+@Service
+public class RouteOptimizer {
+
+    /** Mindestverbesserung eines Zuges in Metern, verhindert Endlosschleifen durch Rundungsfehler */
+    private static final double EPSILON = 1e-6;
+
+    /** Anzahl der nächsten Kandidaten, unter denen ein zufälliger Neustart wählt */
+    private static final int CANDIDATES = 3;
+
+    /** Längste Teilstrecke, die Or-opt an eine andere Stelle verschiebt */
+    private static final int MAX_SEGMENT = 3;
+
+    /**
+     * Geplante Route
+     * @param stops Netze in der geplanten Reihenfolge
+     * @param distanceMeters Länge der geplanten Route in Metern
+     * @param naiveDistanceMeters Länge der Route in der übergebenen Reihenfolge in Metern
+     * @param restarts Anzahl der durchgeführten Neustarts
+     */
+    public record Route(List<GhostNetSnapshot> stops, double distanceMeters, double naiveDistanceMeters, int restarts) {
+    }
+
+    /**
+     * Reihenfolge als Indizes in die übergebenen Positionen
+     * @param order Indizes der Netze in Fahrreihenfolge
+     * @param distanceMeters Länge der Route in Metern
+     * @param restarts Anzahl der durchgeführten Neustarts
+     */
+    record Tour(int[] order, double distanceMeters, int restarts) {
+    }
+
+    private final ForkJoinPool pool;
+
+    private final int parallelism;
+
+    private final int restarts;
+
+    private final Duration timeBudget;
+
+    private final int maxStops;
+
+    public RouteOptimizer(@Value("${netpatrol.route.parallelism:0}") int parallelism,
+                          @Value("${netpatrol.route.restarts:32}") int restarts,
+                          @Value("${netpatrol.route.time-budget:PT0.2S}") Duration timeBudget,
+                          @Value("${netpatrol.route.max-stops:2000}") int maxStops) {
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(this.parallelism);
+        this.restarts = Math.max(1, restarts);
+        this.timeBudget = timeBudget;
+        this.maxStops = maxStops;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Plant die Route zu den Netzen mit Position
+     * @param startLatitude Breitengrad der Startposition
+     * @param startLongitude Längengrad der Startposition
+     * @param ghostNets Netze in der bisherigen Reihenfolge; alle müssen eine Position haben
+     * @return Geplante Route mit Vergleich zur bisherigen Reihenfolge
+     * @throws IllegalArgumentException wenn mehr Netze als erlaubt übergeben werden
+     */
+    public Route plan(double startLatitude, double startLongitude, List<GhostNetSnapshot> ghostNets) {
+        if (ghostNets.size() > maxStops) {
+            throw new IllegalArgumentException("Too many stops: " + ghostNets.size() + " (max " + maxStops + ")");
+        }
+        double[] latitudes = new double[ghostNets.size()];
+        double[] longitudes = new double[ghostNets.size()];
+        for (int i = 0; i < ghostNets.size(); i++) {
+            latitudes[i] = ghostNets.get(i).latitude();
+            longitudes[i] = ghostNets.get(i).longitude();
+        }
+        double[] distances = distances(startLatitude, startLongitude, latitudes, longitudes);
+        int[] naive = IntStream.range(0, ghostNets.size()).toArray();
+        Tour tour = optimize(distances, ghostNets.size());
+
+        List<GhostNetSnapshot> stops = new ArrayList<>(ghostNets.size());
+        for (int index : tour.order()) {
+            stops.add(ghostNets.get(index));
+        }
+        return new Route(stops, tour.distanceMeters(), length(distances, ghostNets.size() + 1, toPath(naive)), tour.restarts());
+    }
+
+    /**
+     * Berechnet die Entfernungsmatrix zwischen Startposition (Knoten 0) und den Netzen (Knoten 1..n)
+     * @return Großkreisentfernungen in Metern, zeilenweise
+     */
+    double[] distances(double startLatitude, double startLongitude, double[] latitudes, double[] longitudes) {
+        int size = latitudes.length + 1;
+        double[] vectors = new double[size * 3];
+        KdTree.toUnitVector(startLatitude, startLongitude, vectors, 0);
+        for (int i = 1; i < size; i++) {
+            KdTree.toUnitVector(latitudes[i - 1], longitudes[i - 1], vectors, i * 3);
+        }
+        double[] distances = new double[size * size];
+        pool.submit(() -> IntStream.range(0, size).parallel().forEach(i -> {
+            for (int j = 0; j < size; j++) {
+                double dx = vectors[i * 3] - vectors[j * 3];
+                double dy = vectors[i * 3 + 1] - vectors[j * 3 + 1];
+                double dz = vectors[i * 3 + 2] - vectors[j * 3 + 2];
+                distances[i * size + j] = KdTree.toMeters(dx * dx + dy * dy + dz * dz);
+            }
+        })).join();
+        return distances;
+    }
+
+    /**
+     * Sucht mit parallelen Neustarts eine möglichst kurze Route
+     * @param distances Entfernungsmatrix aus {@link #distances}
+     * @param stops Anzahl der Netze
+     * @return Kürzeste gefundene Route
+     */
+    Tour optimize(double[] distances, int stops) {
+        long deadline = System.nanoTime() + timeBudget.toNanos();
+        // Bei bis zu drei Netzen findet schon die lokale Suche das Optimum
+        int total = stops <= 3 ? 1 : restarts;
+        int workers = Math.min(parallelism, total);
+        List<ForkJoinTask<Tour>> tasks = new ArrayList<>(workers);
+        for (int worker = 0; worker < workers; worker++) {
+            int first = worker;
+            tasks.add(pool.submit(() -> search(distances, stops + 1, first, workers, total, deadline)));
+        }
+        Tour best = null;
+        int done = 0;
+        for (ForkJoinTask<Tour> task : tasks) {
+            Tour tour = task.join();
+            done += tour.restarts();
+            if (best == null || tour.distanceMeters() < best.distanceMeters()) {
+                best = tour;
+            }
+        }
+        return new Tour(best.order(), best.distanceMeters(), done);
+    }
+
+    /** Führt die Neustarts first, first + step, ... bis total oder bis zum Ablauf des Zeitbudgets aus */
+    private static Tour search(double[] distances, int size, int first, int step, int total, long deadline) {
+        int[] best = null;
+        double bestLength = Double.POSITIVE_INFINITY;
+        int done = 0;
+        for (int restart = first; restart < total; restart += step) {
+            // Der erste Durchlauf muss auch bei abgelaufenem Budget eine Route liefern
+            if (done > 0 && System.nanoTime() >= deadline) {
+                break;
+            }
+            int[] path = nearestNeighbour(distances, size, restart == 0 ? null : new SplittableRandom(restart));
+            improve(distances, size, path, deadline);
+            double length = length(distances, size, path);
+            if (length < bestLength) {
+                best = path;
+                bestLength = length;
+            }
+            done++;
+        }
+        int[] order = new int[size - 1];
+        for (int i = 1; i < size; i++) {
+            order[i - 1] = best[i] - 1;
+        }
+        return new Tour(order, bestLength, done);
+    }
+
+    /**
+     * Baut eine Route, die jeweils eines der nächsten noch nicht besuchten Netze anfährt
+     * @param random Zufallsquelle für die Wahl unter den nächsten Kandidaten, null für den jeweils nächsten
+     * @return Knotenfolge, beginnend mit der Startposition
+     */
+    private static int[] nearestNeighbour(double[] distances, int size, SplittableRandom random) {
+        int[] path = new int[size];
+        boolean[] visited = new boolean[size];
+        visited[0] = true;
+        int[] candidates = new int[CANDIDATES];
+        for (int position = 1; position < size; position++) {
+            int current = path[position - 1];
+            int found = 0;
+            for (int node = 1; node < size; node++) {
+                if (visited[node]) {
+                    continue;
+                }
+                // Kandidaten aufsteigend nach Entfernung halten
+                double distance = distances[current * size + node];
+                int slot = Math.min(found, CANDIDATES - 1);
+                if (found == CANDIDATES && distance >= distances[current * size + candidates[slot]]) {
+                    continue;
+                }
+                while (slot > 0 && distances[current * size + candidates[slot - 1]] > distance) {
+                    candidates[slot] = candidates[slot - 1];
+                    slot--;
+                }
+                candidates[slot] = node;
+                found = Math.min(found + 1, CANDIDATES);
+            }
+            int next = candidates[random == null ? 0 : random.nextInt(found)];
+            path[position] = next;
+            visited[next] = true;
+        }
+        return path;
+    }
+
+    /** Wendet 2-opt- und Or-opt-Züge an, bis keiner mehr die Route verkürzt oder das Zeitbudget abgelaufen ist */
+    private static void improve(double[] distances, int size, int[] path, long deadline) {
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadline) {
+            improved = twoOpt(distances, size, path, deadline);
+            improved |= orOpt(distances, size, path, deadline);
+        }
+    }
+
+    /** Kehrt Teilstrecken um, wenn sich dadurch zwei Kanten verkürzen */
+    private static boolean twoOpt(double[] distances, int size, int[] path, long deadline) {
+        boolean improved = false;
+        for (int i = 1; i < size - 1; i++) {
+            if (System.nanoTime() >= deadline) {
+                return improved;
+            }
+            for (int j = i + 1; j < size; j++) {
+                int before = path[i - 1];
+                int first = path[i];
+                int last = path[j];
+                // Die Route endet am letzten Netz, hinter dem Ende entfällt die zweite Kante
+                double delta = distances[before * size + last] - distances[before * size + first];
+                if (j + 1 < size) {
+                    int after = path[j + 1];
+                    delta += distances[first * size + after] - distances[last * size + after];
+                }
+                if (delta < -EPSILON) {
+                    reverse(path, i, j);
+                    improved = true;
+                }
+            }
+        }
+        return improved;
+    }
+
+    /** Verschiebt Teilstrecken aus bis zu drei Netzen, auch umgekehrt, an eine günstigere Stelle */
+    private static boolean orOpt(double[] distances, int size, int[] path, long deadline) {
+        boolean improved = false;
+        for (int length = 1; length <= MAX_SEGMENT; length++) {
+            for (int i = 1; i + length <= size; i++) {
+                if (System.nanoTime() >= deadline) {
+                    return improved;
+                }
+                int end = i + length - 1;
+                int before = path[i - 1];
+                int first = path[i];
+                int last = path[end];
+                int after = end + 1 < size ? path[end + 1] : -1;
+                double removed = distances[before * size + first];
+                if (after >= 0) {
+                    removed += distances[last * size + after] - distances[before * size + after];
+                }
+                for (int p = 0; p < size; p++) {
+                    if (p >= i - 1 && p <= end) {
+                        continue;
+                    }
+                    int from = path[p];
+                    int to = p + 1 < size ? path[p + 1] : -1;
+                    double forward = distances[from * size + first];
+                    double reversed = distances[from * size + last];
+                    if (to >= 0) {
+                        double gap = distances[from * size + to];
+                        forward += distances[last * size + to] - gap;
+                        reversed += distances[first * size + to] - gap;
+                    }
+                    boolean reverse = reversed < forward;
+                    if (Math.min(forward, reversed) - removed < -EPSILON) {
+                        move(path, i, length, p, reverse);
+                        improved = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return improved;
+    }
+
+    /** Setzt die Teilstrecke ab Position start hinter die Position target */
+    private static void move(int[] path, int start, int length, int target, boolean reverse) {
+        int[] segment = new int[length];
+        for (int k = 0; k < length; k++) {
+            segment[k] = path[reverse ? start + length - 1 - k : start + k];
+        }
+        int[] copy = path.clone();
+        int position = 0;
+        for (int k = 0; k < copy.length; k++) {
+            if (k >= start && k < start + length) {
+                continue;
+            }
+            path[position++] = copy[k];
+            if (k == target) {
+                System.arraycopy(segment, 0, path, position, length);
+                position += length;
+            }
+        }
+    }
+
+    private static void reverse(int[] path, int from, int to) {
+        while (from < to) {
+            int node = path[from];
+            path[from++] = path[to];
+            path[to--] = node;
+        }
+    }
+
+    /** Länge einer Knotenfolge in Metern */
+    static double length(double[] distances, int size, int[] path) {
+        double length = 0;
+        for (int i = 1; i < path.length; i++) {
+            length += distances[path[i - 1] * size + path[i]];
+        }
+        return length;
+    }
+
+    /** Macht aus einer Reihenfolge von Netz-Indizes eine Knotenfolge ab der Startposition */
+    static int[] toPath(int[] order) {
+        int[] path = new int[order.length + 1];
+        for (int i = 0; i < order.length; i++) {
+            path[i + 1] = order[i] + 1;
+        }
+        return path;
+    }
+}
@@ -0,0 +1,148 @@
+package com.ghostnet.store.service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Merkt sich je Geisternetz die zuletzt übernommene Version eines In-Memory-Index
+ * Änderungsereignisse werden erst nach dem Commit zugestellt, zwei gleichzeitig committete Änderungen
+ * desselben Netzes können dabei in vertauschter Reihenfolge ankommen. Ein Snapshot mit kleinerer Version
+ * als der bereits übernommene wird deshalb verworfen, ein gelöschtes Netz bleibt gelöscht.
+ * Versionen werden nur für Netze gehalten, die der Index enthält. Für gelöschte oder aus dem Index
+ * gefallene Netze bleibt die Version nur kurz als Marker stehen, denn verspätete Ereignisse kommen
+ * höchstens um die Dauer eines Commits zu spät. Nicht threadsicher, die Aufrufer halten ihre Schreibsperre
+ */
+final class SnapshotVersions {
+
+    /** Version gelöschter Netze, IDs werden nicht wiederverwendet */
+    private static final long DELETED = Long.MAX_VALUE;
+
+    private static final Duration MARKER_RETENTION = Duration.ofMinutes(1);
+
+    private static final int MAX_MARKERS = 10_000;
+
+    /**
+     * Version eines nicht mehr enthaltenen Netzes
+     * @param version Zuletzt übernommene Version
+     * @param since Zeitpunkt (System.nanoTime) des Entfernens
+     */
+    private record Marker(long version, long since) {
+    }
+
+    private final long retentionNanos;
+
+    private final int maxMarkers;
+
+    private final Map<Long, Long> versions = new HashMap<>();
+
+    /** Marker in Entstehungsreihenfolge, die ältesten werden zuerst verworfen */
+    private final LinkedHashMap<Long, Marker> markers;
+
+    SnapshotVersions() {
+        this(MARKER_RETENTION, MAX_MARKERS);
+    }
+
+    /**
+     * @param markerRetention Wie lange die Version eines entfernten Netzes erhalten bleibt
+     * @param maxMarkers Höchstzahl gleichzeitig gehaltener Marker
+     */
+    SnapshotVersions(Duration markerRetention, int maxMarkers) {
+        this.retentionNanos = markerRetention.toNanos();
+        this.maxMarkers = maxMarkers;
+        this.markers = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Marker> eldest) {
+                return size() > SnapshotVersions.this.maxMarkers;
+            }
+        };
+    }
+
+    /**
+     * Merkt die Version eines beim Aufbau geladenen Snapshots, den der Index enthält
+     * @param ghostNet Geladener Snapshot
+     */
+    void loaded(GhostNetSnapshot ghostNet) {
+        if (ghostNet.version() != null) {
+            versions.merge(ghostNet.id(), ghostNet.version(), Math::max);
+        }
+    }
+
+    /**
+     * Prüft, ob ein Änderungsereignis übernommen werden soll, und merkt sich in diesem Fall dessen Version
+     * Enthält der Index das Netz danach nicht, muss der Aufrufer release aufrufen
+     * @param event Änderungsereignis
+     * @return false, wenn bereits ein neuerer Stand oder die Löschung übernommen wurde
+     */
+    boolean accept(GhostNetChangedEvent event) {
+        Long id = event.ghostNetId();
+        if (event.after() == null) {
+            versions.remove(id);
+            mark(id, DELETED);
+            return true;
+        }
+        Long version = event.after().version();
+        if (version == null) {
+            return true;
+        }
+        Long applied = applied(id);
+        if (applied != null && version < applied) {
+            return false;
+        }
+        versions.put(id, version);
+        markers.remove(id);
+        return true;
+    }
+
+    /**
+     * Vergisst die Version eines Netzes, das der Index nicht mehr enthält, bis auf einen kurzlebigen Marker
+     * @param id ID des Netzes
+     */
+    void release(Long id) {
+        Long version = versions.remove(id);
+        if (version != null) {
+            mark(id, version);
+        }
+    }
+
+    /** Vergisst alle Versionen, z.B. vor einem Neuaufbau */
+    void clear() {
+        versions.clear();
+        markers.clear();
+    }
+
+    /**
+     * Anzahl der gehaltenen Versionen und Marker
+     * @return Summe beider
+     */
+    int size() {
+        expireMarkers();
+        return versions.size() + markers.size();
+    }
+
+    private Long applied(Long id) {
+        Long version = versions.get(id);
+        if (version != null) {
+            return version;
+        }
+        expireMarkers();
+        Marker marker = markers.get(id);
+        return marker != null ? marker.version() : null;
+    }
+
+    private void mark(Long id, long version) {
+        expireMarkers();
+        markers.remove(id);
+        markers.put(id, new Marker(version, System.nanoTime()));
+    }
+
+    private void expireMarkers() {
+        long now = System.nanoTime();
+        Iterator<Marker> iterator = markers.values().iterator();
+        while (iterator.hasNext() && now - iterator.next().since() >= retentionNanos) {
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.ghostnet.store.service;
+
+import com.ghostnet.store.domain.GhostNet;
+import com.ghostnet.store.repository.GhostNetRepository;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Berechnet beim Start fehlende Hilbert-Schlüssel für bestehende Geisternetze
+ * Betrifft Datensätze, die vor Einführung der Spalte spatial_key gespeichert wurden
+ */
+@Component
+@AllArgsConstructor
+public class SpatialKeyBackfill implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpatialKeyBackfill.class);
+
+    /** Anzahl der Datensätze pro Transaktion */
+    private static final int BATCH_SIZE = 500;
+
+    private final GhostNetRepository ghostNetRepository;
+
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * Aktualisiert alle Geisternetze ohne Schlüssel in Batches
+     * @param args Anwendungsargumente
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        long updated = 0;
+        int batch;
+        do {
+            batch = transaction.execute(status -> {
+                List<GhostNet> ghostNets = ghostNetRepository.findWithoutSpatialKey(Limit.of(BATCH_SIZE));
+                ghostNets.forEach(GhostNet::updateSpatialKey);
+                return ghostNets.size();
+            });
+            updated += batch;
+        } while (batch == BATCH_SIZE);
+
+        if (updated > 0) {
+            logger.info("Computed spatial keys for {} ghost nets", updated);
+        }
+    }
+}
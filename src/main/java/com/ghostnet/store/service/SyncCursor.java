@@ -0,0 +1,77 @@
+package com.ghostnet.store.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaker Cursor für die Delta-Synchronisation
+ * Enthält für Geisternetze, Löschungen und Umverteilungsanfragen jeweils die Position
+ * (Änderungszeitpunkt, id) des zuletzt übertragenen Eintrags
+ * @param ghostNets Position in den geänderten Geisternetzen
+ * @param tombstones Position in den Löschungen
+ * @param requests Position in den geänderten Umverteilungsanfragen
+ */
+public record SyncCursor(Position ghostNets, Position tombstones, Position requests) {
+
+    private static final String SEPARATOR = "|";
+
+    /** Position vor allen Einträgen, für die erste Synchronisation */
+    public static final Position START = new Position(LocalDateTime.of(1970, 1, 1, 0, 0), 0L);
+
+    /**
+     * Position innerhalb einer nach (Zeitpunkt, id) sortierten Änderungsliste
+     * @param at Änderungszeitpunkt
+     * @param id ID des Eintrags
+     */
+    public record Position(LocalDateTime at, Long id) {
+
+        /**
+         * Liefert die spätere von zwei Positionen
+         * @param other Andere Position
+         * @return Spätere Position
+         */
+        public Position max(Position other) {
+            int order = at.compareTo(other.at);
+            if (order == 0) {
+                order = id.compareTo(other.id);
+            }
+            return order >= 0 ? this : other;
+        }
+    }
+
+    /**
+     * Kodiert den Cursor für die Übergabe an den Client
+     * @return Base64url-kodierter Cursor ohne Padding
+     */
+    public String encode() {
+        String raw = String.join(SEPARATOR,
+                ghostNets.at().toString(), ghostNets.id().toString(),
+                tombstones.at().toString(), tombstones.id().toString(),
+                requests.at().toString(), requests.id().toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Dekodiert einen vom Client übergebenen Cursor
+     * @param token Kodierter Cursor
+     * @return Dekodierter Cursor
+     * @throws IllegalArgumentException wenn der Cursor ungültig ist
+     */
+    public static SyncCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 6) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new SyncCursor(
+                    new Position(LocalDateTime.parse(parts[0]), Long.valueOf(parts[1])),
+                    new Position(LocalDateTime.parse(parts[2]), Long.valueOf(parts[3])),
+                    new Position(LocalDateTime.parse(parts[4]), Long.valueOf(parts[5])));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.ghostnet.store.service;
+
+import com.ghostnet.store.repository.GhostNetRepository;
+import com.ghostnet.store.repository.ReassignmentRequestRepository;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Setzt beim Start fehlende Änderungszeitpunkte für bestehende Geisternetze und Umverteilungsanfragen
+ * Ohne Änderungszeitpunkt würden diese Datensätze bei der Delta-Synchronisation nie übertragen
+ */
+@Component
+@AllArgsConstructor
+public class UpdatedAtBackfill implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpdatedAtBackfill.class);
+
+    private final GhostNetRepository ghostNetRepository;
+
+    private final ReassignmentRequestRepository requestRepository;
+
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * Übernimmt den Erstellungszeitpunkt als Änderungszeitpunkt
+     * @param args Anwendungsargumente
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        LocalDateTime now = LocalDateTime.now();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        int ghostNets = transaction.execute(status -> ghostNetRepository.backfillUpdatedAt(now));
+        int requests = transaction.execute(status -> requestRepository.backfillUpdatedAt(now));
+        if (ghostNets > 0 || requests > 0) {
+            logger.info("Set updated_at for {} ghost nets and {} reassignment requests", ghostNets, requests);
+        }
+    }
+}
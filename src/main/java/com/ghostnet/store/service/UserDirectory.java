@@ -0,0 +1,176 @@
+package com.ghostnet.store.service;
+
+import com.ghostnet.store.domain.User;
+import com.ghostnet.store.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Verzeichnis der User-Kurzprofile (Benutzername, Name, Telefonnummer) für Listenansichten
+ * Die Profile liegen in einem begrenzten Cache: bei Überschreiten der Maximalgröße wird das am längsten
+ * nicht gelesene Profil verdrängt, nach Ablauf der TTL wird ein Profil neu geladen. Fehlende Profile
+ * einer Abfrage werden gemeinsam mit einer Datenbankabfrage nachgeladen. Registrierung und
+ * Profiländerung entfernen das Profil aus dem Cache.
+ * Metriken: netpatrol.users.cache.requests (result=hit|miss), netpatrol.users.cache.hit.ratio und
+ * netpatrol.users.cache.size
+ */
+@Service
+public class UserDirectory {
+
+    /**
+     * Kurzprofil eines Users
+     * @param id ID des Users
+     * @param username Benutzername
+     * @param name Vollständiger Name, leer wenn nicht angegeben
+     * @param phone Telefonnummer, leer wenn nicht angegeben
+     */
+    public record UserSummary(Long id, String username, String name, String phone) {
+
+        static UserSummary of(User user) {
+            return new UserSummary(user.getId(), user.getUsername(),
+                    user.getName() != null ? user.getName() : "",
+                    user.getPhone() != null ? user.getPhone() : "");
+        }
+    }
+
+    /** Profil mit Ablaufzeitpunkt (System.nanoTime) */
+    private record Entry(UserSummary summary, long expiresAt) {
+    }
+
+    private final UserRepository userRepository;
+
+    private final int maxSize;
+
+    private final long ttlNanos;
+
+    /** In Zugriffsreihenfolge, das erste Profil wird bei Überschreiten der Maximalgröße verdrängt */
+    private final LinkedHashMap<Long, Entry> entries;
+
+    /** Schützt entries; auch Lesen verändert die Zugriffsreihenfolge */
+    private final Object lock = new Object();
+
+    /** Anzahl der Invalidierungen; ein Nachladen, während dessen invalidiert wurde, wird nicht gespeichert */
+    private long invalidations;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    public UserDirectory(UserRepository userRepository,
+                         MeterRegistry meterRegistry,
+                         @Value("${netpatrol.users.cache.max-size:10000}") int maxSize,
+                         @Value("${netpatrol.users.cache.ttl:PT5M}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.maxSize = Math.max(1, maxSize);
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > UserDirectory.this.maxSize;
+            }
+        };
+        this.hits = Counter.builder("netpatrol.users.cache.requests").tag("result", "hit")
+                .description("User summary lookups answered from the cache").register(meterRegistry);
+        this.misses = Counter.builder("netpatrol.users.cache.requests").tag("result", "miss")
+                .description("User summary lookups that had to query the database").register(meterRegistry);
+        Gauge.builder("netpatrol.users.cache.hit.ratio", this, UserDirectory::hitRatio)
+                .description("Share of user summary lookups answered from the cache").register(meterRegistry);
+        Gauge.builder("netpatrol.users.cache.size", this, UserDirectory::size)
+                .description("Cached user summaries").register(meterRegistry);
+    }
+
+    /**
+     * Liefert das Kurzprofil eines Users
+     * @param id ID des Users
+     * @return Kurzprofil oder leer, wenn es den User nicht gibt
+     */
+    public Optional<UserSummary> find(Long id) {
+        List<UserSummary> found = findAll(List.of(id));
+        return found.isEmpty() ? Optional.empty() : Optional.of(found.get(0));
+    }
+
+    /**
+     * Liefert die Kurzprofile mehrerer User mit höchstens einer Datenbankabfrage
+     * @param ids IDs der User, Duplikate werden ignoriert
+     * @return Kurzprofile in der Reihenfolge der IDs, unbekannte IDs fehlen
+     */
+    public List<UserSummary> findAll(Collection<Long> ids) {
+        Set<Long> wanted = new LinkedHashSet<>(ids);
+        Map<Long, UserSummary> found = new LinkedHashMap<>();
+        List<Long> missing = new ArrayList<>();
+        long now = System.nanoTime();
+        long generation;
+        synchronized (lock) {
+            generation = invalidations;
+            for (Long id : wanted) {
+                Entry entry = entries.get(id);
+                if (entry != null && entry.expiresAt() - now > 0) {
+                    found.put(id, entry.summary());
+                } else {
+                    missing.add(id);
+                }
+            }
+        }
+        hits.increment(found.size());
+        misses.increment(missing.size());
+
+        if (!missing.isEmpty()) {
+            List<User> loaded = userRepository.findAllById(missing);
+            long expiresAt = System.nanoTime() + ttlNanos;
+            synchronized (lock) {
+                boolean current = generation == invalidations;
+                for (User user : loaded) {
+                    UserSummary summary = UserSummary.of(user);
+                    if (current) {
+                        entries.put(user.getId(), new Entry(summary, expiresAt));
+                    }
+                    found.put(user.getId(), summary);
+                }
+            }
+        }
+
+        List<UserSummary> result = new ArrayList<>(found.size());
+        for (Long id : wanted) {
+            UserSummary summary = found.get(id);
+            if (summary != null) {
+                result.add(summary);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Entfernt das Profil eines Users, z.B. nach Registrierung oder Profiländerung
+     * @param id ID des Users
+     */
+    public void invalidate(Long id) {
+        synchronized (lock) {
+            invalidations++;
+            entries.remove(id);
+        }
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private int size() {
+        synchronized (lock) {
+            return entries.size();
+        }
+    }
+}
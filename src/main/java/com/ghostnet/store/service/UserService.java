@@ -1,42 +1,92 @@
 package com.ghostnet.store.service;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import com.ghostnet.store.repository.UserRepository;
 import com.ghostnet.store.domain.User;
+import com.ghostnet.store.security.AuthenticatedUser;
+import java.util.List;
 import java.util.Optional;
-import lombok.AllArgsConstructor;
+import java.util.Set;
 
 /**
  * Service Klasse für User-Management
- * Implementiert Spring Security UserDetailsService für Authentication
+ * Implementiert Spring Security UserDetailsService für Authentication und
+ * UserDetailsPasswordService, damit Hashes mit veraltetem Work-Factor beim Login ersetzt werden.
+ * Die in netpatrol.dispatchers eingetragenen Benutzernamen erhalten die Berechtigung DISPATCH
  */
 @Service
-@AllArgsConstructor
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository repository;
 
+    private final UserDirectory userDirectory;
+
+    private final Set<String> dispatchers;
+
+    public UserService(UserRepository repository,
+                       UserDirectory userDirectory,
+                       @Value("${netpatrol.dispatchers:}") Set<String> dispatchers) {
+        this.repository = repository;
+        this.userDirectory = userDirectory;
+        this.dispatchers = dispatchers;
+    }
+
     /**
      * Lädt User-Daten für Spring Security Authentication
      * @param username Der Benutzername
-     * @return UserDetails für Spring Security
+     * @return AuthenticatedUser mit ID, Name und Telefonnummer für Spring Security
      * @throws UsernameNotFoundException wenn User nicht gefunden wird
      */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         Optional<User> user = repository.findByUsername(username);
         if (user.isPresent()) {
-            var userObj = user.get();
-            return org.springframework.security.core.userdetails.User.builder()
-                .username(userObj.getUsername())
-                .password(userObj.getPassword())
-                .build();
+            return principal(user.get());
         } else {
             throw new UsernameNotFoundException(username);
         }
     }
 
+    /**
+     * Speichert einen neu berechneten Passwort-Hash nach erfolgreichem Login
+     * @param user Angemeldeter User
+     * @param newPassword Neuer Hash mit dem konfigurierten Work-Factor
+     * @return Principal mit dem neuen Hash
+     * @throws UsernameNotFoundException wenn der User nicht mehr existiert
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        User entity = repository.findByUsername(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException(user.getUsername()));
+        entity.setPassword(newPassword);
+        return principal(repository.save(entity));
+    }
+
+    /**
+     * Ändert Name und Telefonnummer eines Users
+     * @param id ID des Users
+     * @param name Neuer Name
+     * @param phone Neue Telefonnummer
+     * @return Principal mit den geänderten Profildaten
+     * @throws UsernameNotFoundException wenn der User nicht mehr existiert
+     */
+    public AuthenticatedUser updateProfile(Long id, String name, String phone) {
+        User user = repository.findById(id).orElseThrow(() -> new UsernameNotFoundException(String.valueOf(id)));
+        user.setName(name);
+        user.setPhone(phone);
+        AuthenticatedUser updated = principal(repository.save(user));
+        userDirectory.invalidate(id);
+        updated.eraseCredentials();
+        return updated;
+    }
+
+    private AuthenticatedUser principal(User user) {
+        return AuthenticatedUser.of(user, dispatchers.contains(user.getUsername()) ? List.of(AuthenticatedUser.DISPATCH) : List.of());
+    }
+
 }
@@ -0,0 +1,139 @@
+package com.ghostnet.store.service;
+
+import com.ghostnet.store.domain.GhostNetStatus;
+import com.ghostnet.store.domain.UserStats;
+import com.ghostnet.store.repository.UserStatsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pflegt die Zähler in user_stats
+ * Jede Änderung an einem Geisternetz wird als Differenz aus altem und neuem Zustand gesammelt und
+ * vor dem Commit derselben Transaktion verbucht, eine Schreiboperation je betroffenem User. Ein Reparaturlauf beim Start und in regelmäßigen Abständen
+ * berechnet alle Zähler aus ghost_net neu und korrigiert Abweichungen
+ */
+@Service
+public class UserStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserStatsService.class);
+
+    private static final GhostNetStatus RECOVERED = GhostNetStatus.GEBORGEN;
+
+    private final UserStatsRepository userStatsRepository;
+
+    private final TransactionTemplate transaction;
+
+    /** Differenzen je User: gemeldet, geborgen */
+    private final CounterDeltas<Long> deltas;
+
+    public UserStatsService(UserStatsRepository userStatsRepository, PlatformTransactionManager transactionManager) {
+        this.userStatsRepository = userStatsRepository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.deltas = new CounterDeltas<>(2,
+                (userId, delta) -> userStatsRepository.addDelta(userId, delta[0], delta[1]),
+                transactionManager);
+    }
+
+    /**
+     * Liefert die Statistik eines Users
+     * @param userId ID des Users
+     * @return Zähler des Users, mit 0 belegt wenn noch keine Zeile existiert
+     */
+    public UserStats find(Long userId) {
+        return userStatsRepository.findById(userId).orElseGet(() -> {
+            UserStats empty = new UserStats();
+            empty.setUserId(userId);
+            return empty;
+        });
+    }
+
+    /**
+     * Merkt eine Änderung an einem Geisternetz für den Commit der umgebenden Transaktion vor
+     * Läuft ohne umgebende Transaktion sofort in einer eigenen
+     * @param event Änderungsereignis
+     */
+    @EventListener
+    public void onGhostNetChanged(GhostNetChangedEvent event) {
+        collect(event.before(), -1);
+        collect(event.after(), 1);
+    }
+
+    /** Verbucht den Beitrag eines Zustands zu den Zählern der beteiligten User */
+    private void collect(GhostNetSnapshot ghostNet, int sign) {
+        if (ghostNet == null) {
+            return;
+        }
+        if (ghostNet.reporterId() != null) {
+            deltas.add(ghostNet.reporterId(), sign, 0);
+        }
+        if (ghostNet.salvorUserId() != null && ghostNet.status() == RECOVERED) {
+            deltas.add(ghostNet.salvorUserId(), 0, sign);
+        }
+    }
+
+    /**
+     * Berechnet die Zähler nach dem Start neu, damit Abweichungen aus früheren Läufen
+     * oder direkten Datenbankänderungen nicht bestehen bleiben
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        repair();
+    }
+
+    /**
+     * Berechnet alle Zähler aus ghost_net neu und schreibt nur abweichende Zeilen
+     * Die Zählabfragen sperren ghost_net, bevor user_stats gelesen wird, sodass gleichzeitige
+     * Änderungen entweder vollständig vorher oder vollständig nachher verbucht werden
+     */
+    @Scheduled(cron = "${netpatrol.stats.repair-cron:0 0 4 * * *}")
+    public void repair() {
+        int corrected = transaction.execute(status -> {
+            Map<Long, long[]> expected = new HashMap<>();
+            count(expected, userStatsRepository.countReportedForRepair(), 0);
+            count(expected, userStatsRepository.countRecoveredForRepair(RECOVERED.getCode()), 1);
+
+            int changed = 0;
+            for (UserStats stats : userStatsRepository.findAll()) {
+                long[] counts = expected.remove(stats.getUserId());
+                if (counts == null) {
+                    counts = new long[2];
+                }
+                if (stats.getReported() != counts[0] || stats.getRecovered() != counts[1]) {
+                    stats.setReported(counts[0]);
+                    stats.setRecovered(counts[1]);
+                    changed++;
+                }
+            }
+            for (Map.Entry<Long, long[]> missing : expected.entrySet()) {
+                UserStats stats = new UserStats();
+                stats.setUserId(missing.getKey());
+                stats.setReported(missing.getValue()[0]);
+                stats.setRecovered(missing.getValue()[1]);
+                userStatsRepository.save(stats);
+                changed++;
+            }
+            return changed;
+        });
+        if (corrected > 0) {
+            logger.info("Corrected user stats for {} users", corrected);
+        }
+    }
+
+    /** Überträgt Zählergebnisse aus (User-ID, Anzahl)-Zeilen in die erwarteten Zähler */
+    private static void count(Map<Long, long[]> expected, List<Object[]> rows, int column) {
+        for (Object[] row : rows) {
+            Long userId = ((Number) row[0]).longValue();
+            expected.computeIfAbsent(userId, k -> new long[2])[column] = ((Number) row[1]).longValue();
+        }
+    }
+}
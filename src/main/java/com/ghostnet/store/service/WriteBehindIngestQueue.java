@@ -0,0 +1,477 @@
+package com.ghostnet.store.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ghostnet.store.domain.GhostNet;
+import com.ghostnet.store.domain.IngestReceipt;
+import com.ghostnet.store.repository.GhostNetRepository;
+import com.ghostnet.store.repository.IngestReceiptRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schreibwarteschlange für anonyme Meldungen (optional, netpatrol.ingest.write-behind.enabled)
+ * Meldungen werden an ein Journal angehängt und auf die Platte geschrieben, bevor der Melder eine
+ * Tracking-ID erhält. Ein Hintergrund-Thread speichert die Meldungen gebündelt in einer Transaktion
+ * je Batch und legt dabei für jede Meldung eine Quittung an. Nach einem Neustart werden alle
+ * Journal-Einträge ohne Quittung erneut eingereiht. Ist die Warteschlange voll, wird die Meldung
+ * abgelehnt, statt die Datenbank zu überlasten
+ */
+@Service
+public class WriteBehindIngestQueue implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindIngestQueue.class);
+
+    /** Erste Wartezeit nach einem vorübergehenden Datenbankfehler, verdoppelt sich bis MAX_BACKOFF */
+    private static final Duration INITIAL_BACKOFF = Duration.ofMillis(500);
+
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(10);
+
+    /** Status einer Meldung */
+    public enum Status {
+        QUEUED,
+        COMMITTED,
+        FAILED,
+        UNKNOWN
+    }
+
+    /**
+     * Status einer Meldung für die Abfrage über die Tracking-ID
+     * @param trackingId Tracking-ID
+     * @param status Verarbeitungsstatus
+     * @param ghostNetId ID des gespeicherten Geisternetzes (nur bei COMMITTED)
+     * @param error Fehlerbeschreibung (nur bei FAILED)
+     */
+    public record Receipt(String trackingId, Status status, Long ghostNetId, String error) {
+    }
+
+    /** Wird geworfen, wenn die Warteschlange voll ist */
+    public static class QueueFullException extends RuntimeException {
+        public QueueFullException() {
+            super("Ingest queue is full");
+        }
+    }
+
+    /** Zeile im Journal */
+    private record JournalEntry(String trackingId, GhostNet report) {
+    }
+
+    private final GhostNetRepository ghostNetRepository;
+
+    private final IngestReceiptRepository receiptRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ObjectMapper objectMapper;
+
+    private final TransactionTemplate transaction;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final boolean enabled;
+
+    private final Path journalPath;
+
+    private final int capacity;
+
+    private final int batchSize;
+
+    private final Duration receiptRetention;
+
+    private final BlockingQueue<JournalEntry> queue = new LinkedBlockingQueue<>();
+
+    /** Eingereihte, noch nicht verarbeitete Tracking-IDs */
+    private final Map<String, Boolean> queued = new ConcurrentHashMap<>();
+
+    /** Schützt Schreibposition und Kürzen des Journals */
+    private final Object journalLock = new Object();
+
+    /** Serialisiert fsync-Aufrufe; wer wartet, findet seine Daten oft schon synchronisiert vor */
+    private final Object syncLock = new Object();
+
+    private FileChannel journal;
+
+    private long written;
+
+    private long synced;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    public WriteBehindIngestQueue(GhostNetRepository ghostNetRepository,
+                                  IngestReceiptRepository receiptRepository,
+                                  ApplicationEventPublisher eventPublisher,
+                                  ObjectMapper objectMapper,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${netpatrol.ingest.write-behind.enabled:false}") boolean enabled,
+                                  @Value("${netpatrol.ingest.write-behind.journal:data/ingest-journal.log}") Path journalPath,
+                                  @Value("${netpatrol.ingest.write-behind.capacity:10000}") int capacity,
+                                  @Value("${netpatrol.ingest.write-behind.batch-size:200}") int batchSize,
+                                  @Value("${netpatrol.ingest.write-behind.receipt-retention:P7D}") Duration receiptRetention) {
+        this.ghostNetRepository = ghostNetRepository;
+        this.receiptRepository = receiptRepository;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.journalPath = journalPath;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.receiptRetention = receiptRetention;
+    }
+
+    /**
+     * Prüft ob Meldungen über die Warteschlange angenommen werden
+     * @return true wenn die Warteschlange aktiviert und gestartet ist
+     */
+    public boolean isEnabled() {
+        return running;
+    }
+
+    /**
+     * Öffnet das Journal, reiht unverarbeitete Einträge erneut ein und startet den Schreib-Thread
+     * @param args Anwendungsargumente
+     */
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        if (journalPath.getParent() != null) {
+            Files.createDirectories(journalPath.getParent());
+        }
+        journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        replay();
+
+        running = true;
+        writer = Thread.ofPlatform().name("ghostnet-ingest-writer").daemon(false).start(this::drain);
+        logger.info("Write-behind ingest enabled, journal {}", journalPath.toAbsolutePath());
+    }
+
+    /**
+     * Nimmt eine bereits geprüfte Meldung an
+     * Kehrt erst zurück, wenn die Meldung im Journal auf der Platte steht
+     * @param report Geisternetz mit Status und Zeitstempeln
+     * @return Tracking-ID
+     * @throws QueueFullException wenn die Warteschlange voll ist
+     */
+    public String submit(GhostNet report) {
+        JournalEntry entry = new JournalEntry(UUID.randomUUID().toString(), report);
+        byte[] line = toLine(entry);
+        long end;
+        synchronized (journalLock) {
+            if (queued.size() >= capacity) {
+                throw new QueueFullException();
+            }
+            try {
+                journal.write(ByteBuffer.wrap(line), written);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            written += line.length;
+            end = written;
+            queued.put(entry.trackingId(), Boolean.TRUE);
+        }
+        sync(end);
+        queue.add(entry);
+        return entry.trackingId();
+    }
+
+    /**
+     * Liefert den Status einer Meldung
+     * @param trackingId Tracking-ID
+     * @return Status, UNKNOWN wenn die ID unbekannt oder die Quittung bereits entfernt ist
+     */
+    public Receipt find(String trackingId) {
+        if (queued.containsKey(trackingId)) {
+            return new Receipt(trackingId, Status.QUEUED, null, null);
+        }
+        Optional<IngestReceipt> receipt = receiptRepository.findById(trackingId);
+        if (receipt.isEmpty()) {
+            return new Receipt(trackingId, Status.UNKNOWN, null, null);
+        }
+        IngestReceipt processed = receipt.get();
+        return processed.getGhostNetId() != null
+            ? new Receipt(trackingId, Status.COMMITTED, processed.getGhostNetId(), null)
+            : new Receipt(trackingId, Status.FAILED, null, processed.getError());
+    }
+
+    /**
+     * Entfernt Quittungen, die älter als die Aufbewahrungsdauer sind
+     */
+    @Scheduled(cron = "${netpatrol.ingest.write-behind.receipt-purge-cron:0 45 3 * * *}")
+    public void purgeReceipts() {
+        int purged = receiptRepository.deleteOlderThan(LocalDateTime.now().minus(receiptRetention));
+        if (purged > 0) {
+            logger.info("Purged {} ingest receipts", purged);
+        }
+    }
+
+    /**
+     * Verarbeitet beim Herunterfahren noch eingereihte Meldungen und schließt das Journal
+     * Was nicht mehr gespeichert werden kann, bleibt im Journal und wird beim nächsten Start übernommen
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException, IOException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        synchronized (journalLock) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Schreib-Thread: holt Meldungen in Batches aus der Warteschlange
+     * Nach einem vorübergehenden Fehler wartet er mit wachsendem Abstand; beim Herunterfahren bleiben
+     * wieder eingereihte Meldungen im Journal und werden beim nächsten Start übernommen
+     */
+    private void drain() {
+        long backoff = 0;
+        while (running || !queue.isEmpty()) {
+            try {
+                JournalEntry first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<JournalEntry> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                if (store(batch, backoff > 0)) {
+                    if (!running) {
+                        logger.warn("Stopping ingest writer with {} reports left in the journal", queued.size());
+                        return;
+                    }
+                    backoff = backoff == 0 ? INITIAL_BACKOFF.toMillis() : Math.min(backoff * 2, MAX_BACKOFF.toMillis());
+                    Thread.sleep(backoff);
+                } else {
+                    backoff = 0;
+                    compact();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Error in ingest writer", e);
+            }
+        }
+    }
+
+    /**
+     * Speichert einen Batch in einer Transaktion
+     * Schlägt der Batch fehl, wird jede Meldung einzeln gespeichert, damit eine fehlerhafte
+     * Meldung nicht die übrigen blockiert. Nur Datenfehler ergeben eine FAILED-Quittung; bei
+     * vorübergehenden Fehlern (Sperr-Timeout, Deadlock, Verbindungsabbruch) werden die noch
+     * offenen Meldungen wieder eingereiht
+     * @param batch Meldungen aus der Warteschlange
+     * @param afterFailure true nach einem vorübergehenden Fehler; offen ist dann, ob der letzte Commit
+     *                     noch durchging, bereits quittierte Meldungen werden deshalb übersprungen
+     * @return true wenn Meldungen wieder eingereiht wurden
+     */
+    private boolean store(List<JournalEntry> batch, boolean afterFailure) {
+        Set<String> done = new HashSet<>();
+        try {
+            List<JournalEntry> pending = batch;
+            if (afterFailure) {
+                receiptRepository.findAllById(batch.stream().map(JournalEntry::trackingId).toList())
+                    .forEach(receipt -> done.add(receipt.getTrackingId()));
+                pending = batch.stream().filter(entry -> !done.contains(entry.trackingId())).toList();
+            }
+            try {
+                List<JournalEntry> inserted = pending;
+                transaction.executeWithoutResult(status -> insert(inserted));
+                pending.forEach(entry -> done.add(entry.trackingId()));
+                return false;
+            } catch (RuntimeException batchFailure) {
+                logger.warn("Ingest batch of {} failed, retrying individually", pending.size(), batchFailure);
+            }
+            for (JournalEntry entry : pending) {
+                resetAfterRollback(entry.report());
+                try {
+                    transaction.executeWithoutResult(status -> insert(List.of(entry)));
+                } catch (DataIntegrityViolationException e) {
+                    logger.warn("Ingest of report {} failed", entry.trackingId(), e);
+                    transaction.executeWithoutResult(status -> entityManager.persist(receipt(entry.trackingId(), null, e.getMessage())));
+                }
+                done.add(entry.trackingId());
+            }
+            return false;
+        } catch (RuntimeException e) {
+            logger.warn("Ingest of {} reports failed temporarily, retrying later", batch.size() - done.size(), e);
+            return true;
+        } finally {
+            for (JournalEntry entry : batch) {
+                if (done.contains(entry.trackingId())) {
+                    queued.remove(entry.trackingId());
+                } else {
+                    resetAfterRollback(entry.report());
+                    queue.add(entry);
+                }
+            }
+        }
+    }
+
+    /** Speichert Geisternetze und Quittungen innerhalb der aktuellen Transaktion */
+    private void insert(List<JournalEntry> batch) {
+        List<GhostNet> ghostNets = batch.stream().map(JournalEntry::report).toList();
+        ghostNetRepository.saveAll(ghostNets);
+        for (int i = 0; i < batch.size(); i++) {
+            entityManager.persist(receipt(batch.get(i).trackingId(), ghostNets.get(i).getId(), null));
+        }
+        ghostNetRepository.flush();
+        for (GhostNet ghostNet : ghostNets) {
+            eventPublisher.publishEvent(new GhostNetChangedEvent(
+                GhostNetChangedEvent.Type.CREATED, null, GhostNetSnapshot.of(ghostNet)));
+        }
+    }
+
+    /**
+     * Entfernt ID und Version, die das zurückgerollte saveAll bereits vergeben hat
+     * Sonst hält Spring Data die Meldung für bestehend und versucht ein merge statt persist
+     */
+    private static void resetAfterRollback(GhostNet report) {
+        report.setId(null);
+        report.setVersion(null);
+    }
+
+    private static IngestReceipt receipt(String trackingId, Long ghostNetId, String error) {
+        IngestReceipt receipt = new IngestReceipt();
+        receipt.setTrackingId(trackingId);
+        receipt.setGhostNetId(ghostNetId);
+        receipt.setError(error != null && error.length() > 255 ? error.substring(0, 255) : error);
+        receipt.setProcessedAt(LocalDateTime.now());
+        return receipt;
+    }
+
+    /** Leert das Journal, sobald keine Meldung mehr aussteht */
+    private void compact() {
+        synchronized (journalLock) {
+            if (!queued.isEmpty()) {
+                return;
+            }
+            try {
+                journal.truncate(0);
+                journal.force(false);
+            } catch (IOException e) {
+                logger.warn("Could not truncate ingest journal", e);
+                return;
+            }
+            written = 0;
+            synchronized (syncLock) {
+                synced = 0;
+            }
+        }
+    }
+
+    /**
+     * Schreibt das Journal mindestens bis zur angegebenen Position auf die Platte
+     * Gleichzeitige Aufrufer teilen sich einen fsync
+     */
+    private void sync(long position) {
+        synchronized (syncLock) {
+            if (synced >= position) {
+                return;
+            }
+            long target;
+            synchronized (journalLock) {
+                target = written;
+            }
+            try {
+                journal.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            synced = target;
+        }
+    }
+
+    /** Reiht alle Journal-Einträge ohne Quittung erneut ein */
+    private void replay() throws IOException {
+        Map<String, JournalEntry> entries = new LinkedHashMap<>();
+        try (BufferedReader reader = new BufferedReader(Channels.newReader(journal.position(0), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    JournalEntry entry = objectMapper.readValue(line, JournalEntry.class);
+                    entries.put(entry.trackingId(), entry);
+                } catch (IOException e) {
+                    logger.warn("Skipping unreadable ingest journal line"); // Abgebrochener Schreibvorgang
+                }
+            }
+        }
+        journal = FileChannel.open(journalPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        written = journal.size();
+        if (written > 0) {
+            // Abgebrochene letzte Zeile abschließen, damit der nächste Eintrag in einer eigenen Zeile beginnt
+            ByteBuffer last = ByteBuffer.allocate(1);
+            journal.read(last, written - 1);
+            if (last.get(0) != '\n') {
+                journal.write(ByteBuffer.wrap(new byte[] {'\n'}), written);
+                written++;
+            }
+        }
+        synced = written;
+
+        receiptRepository.findAllById(entries.keySet()).forEach(receipt -> entries.remove(receipt.getTrackingId()));
+        for (JournalEntry entry : entries.values()) {
+            queued.put(entry.trackingId(), Boolean.TRUE);
+            queue.add(entry);
+        }
+        if (!entries.isEmpty()) {
+            logger.info("Re-queued {} unprocessed reports from ingest journal", entries.size());
+        } else {
+            compact();
+        }
+    }
+
+    private byte[] toLine(JournalEntry entry) {
+        try {
+            return (objectMapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Flyway-Migration vom Ausgangsschema (V1__baseline.sql) auf Statuscodes und die Indizes der bestehenden Abfragen
+ * Bis hierhin hat Hibernate das Schema mit ddl-auto=update gepflegt, bestehende Datenbanken können also irgendwo
+ * zwischen dem Dump und dem letzten Stand vor Flyway stehen. Jeder Schritt prüft deshalb zuerst, ob er nötig ist.
+ * Spätere Änderungen kommen als SQL-Skripte unter db/migration dazu. Diese Klasse liegt im gleichnamigen Paket
+ * und wird von Flyway über spring.flyway.locations gefunden, nicht über den Spring-Kontext.
+ */
+public class V2__StatusCodesAndIndexes extends BaseJavaMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(V2__StatusCodesAndIndexes.class);
+
+    /** Codes laut GhostNetStatus, hier festgeschrieben, da die Migration unverändert bleiben muss */
+    private static final Map<String, Integer> GHOST_NET_CODES = codes("GEMELDET", "BERGUNG_BEVORSTEHEND", "GEBORGEN", "VERSCHOLLEN");
+
+    /** Codes laut ReassignmentStatus */
+    private static final Map<String, Integer> REQUEST_CODES = codes("PENDING", "ACCEPTED", "REJECTED");
+
+    private static final String MISSING_CONTACT_CHECK = "status <> 4 or (missing_reporter_name is not null and missing_reporter_phone is not null)";
+
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Führt alle Schritte auf der Verbindung von Flyway aus
+     * @param context Flyway-Kontext
+     */
+    @Override
+    public void migrate(Context context) {
+        jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(context.getConnection(), true));
+        // MySQL schreibt DDL sofort fest; was die Migration abbrechen kann, wird deshalb vor dem ersten Schritt geprüft
+        checkStatuses("ghost_net", GHOST_NET_CODES);
+        checkStatuses("reassignment_request", REQUEST_CODES);
+        checkUsernames();
+        resolvePendingRequests();
+        migrateGhostNets();
+        migrateReassignmentRequests();
+        addIndex("user", "uk_user_username", "unique index uk_user_username (username)");
+        createTables();
+    }
+
+    private void migrateGhostNets() {
+        if (hasTextStatus("ghost_net")) {
+            // Die Prüfung hängt vom Status ab und wird unten mit Code neu angelegt
+            if (hasConstraint("ghost_net", "chk_missing_contact")) {
+                jdbcTemplate.execute("alter table ghost_net drop constraint chk_missing_contact");
+            }
+            // updated_at ist im Ausgangsschema "on update current_timestamp" und soll unverändert bleiben
+            int updated = jdbcTemplate.update("update ghost_net set status = " + toCode(GHOST_NET_CODES) + ", updated_at = updated_at");
+            jdbcTemplate.execute("alter table ghost_net modify status tinyint");
+            logger.info("Converted status of {} ghost nets to status codes", updated);
+        }
+        addColumn("ghost_net", "description", "varchar(255)");
+        addColumn("ghost_net", "location", "varchar(255)");
+        addColumn("ghost_net", "duplicate_of_id", "bigint");
+        addColumn("ghost_net", "spatial_key", "bigint");
+        addColumn("ghost_net", "version", "bigint not null default 0");
+        if (!hasConstraint("ghost_net", "chk_missing_contact")) {
+            jdbcTemplate.execute("alter table ghost_net add constraint chk_missing_contact check (" + MISSING_CONTACT_CHECK + ")");
+        }
+        addIndex("ghost_net", "idx_gn_status_spatial", "index idx_gn_status_spatial (status, spatial_key)");
+        addIndex("ghost_net", "idx_gn_salvor_status", "index idx_gn_salvor_status (salvor_user_id, status)");
+        addIndex("ghost_net", "idx_gn_reporter", "index idx_gn_reporter (reporter_id)");
+        addIndex("ghost_net", "idx_gn_updated", "index idx_gn_updated (updated_at, id)");
+        addIndex("ghost_net", "idx_gn_created", "index idx_gn_created (created_at, id)");
+        // Präfixe von idx_gn_status_spatial und idx_gn_salvor_status, fk_ghost_net_salvor nutzt letzteren
+        dropIndex("ghost_net", "idx_gn_status");
+        dropIndex("ghost_net", "idx_gn_salvor");
+    }
+
+    private void migrateReassignmentRequests() {
+        if (hasTextStatus("reassignment_request")) {
+            if (hasColumn("reassignment_request", "pending_ghost_net_id")) {
+                // Berechnet aus dem Status, entfernt auch den eindeutigen Index
+                jdbcTemplate.execute("alter table reassignment_request drop column pending_ghost_net_id");
+            }
+            int updated = jdbcTemplate.update("update reassignment_request set status = " + toCode(REQUEST_CODES));
+            jdbcTemplate.execute("alter table reassignment_request modify status tinyint");
+            logger.info("Converted status of {} reassignment requests to status codes", updated);
+        }
+        addColumn("reassignment_request", "updated_at", "datetime(6)");
+        addColumn("reassignment_request", "version", "bigint not null default 0");
+        addColumn("reassignment_request", "pending_ghost_net_id",
+                "bigint generated always as (case when status = 1 then ghost_net_id end) stored");
+        jdbcTemplate.update("update reassignment_request set updated_at = created_at where updated_at is null");
+        addIndex("reassignment_request", "uk_rr_pending_ghost_net", "unique index uk_rr_pending_ghost_net (pending_ghost_net_id)");
+        addIndex("reassignment_request", "idx_rr_updated", "index idx_rr_updated (updated_at, id)");
+        addIndex("reassignment_request", "idx_rr_ghost_net_status", "index idx_rr_ghost_net_status (ghost_net_id, status)");
+        addIndex("reassignment_request", "idx_rr_requester_status", "index idx_rr_requester_status (requester_id, status)");
+        addIndex("reassignment_request", "idx_rr_salvor_status", "index idx_rr_salvor_status (current_salvor_id, status)");
+    }
+
+    private void createTables() {
+        jdbcTemplate.execute("create table if not exists user_stats ("
+                + "user_id bigint not null, reported bigint not null, recovered bigint not null, "
+                + "primary key (user_id)) engine=InnoDB default charset=utf8mb4 collate=utf8mb4_unicode_ci");
+        jdbcTemplate.execute("create table if not exists ghost_net_tombstone ("
+                + "ghost_net_id bigint not null, deleted_at datetime(6) not null, "
+                + "primary key (ghost_net_id)) engine=InnoDB default charset=utf8mb4 collate=utf8mb4_unicode_ci");
+        addIndex("ghost_net_tombstone", "idx_gnt_deleted", "index idx_gnt_deleted (deleted_at, ghost_net_id)");
+        jdbcTemplate.execute("create table if not exists ingest_receipt ("
+                + "tracking_id varchar(36) not null, ghost_net_id bigint, error varchar(255), processed_at datetime(6) not null, "
+                + "primary key (tracking_id)) engine=InnoDB default charset=utf8mb4 collate=utf8mb4_unicode_ci");
+        addIndex("ingest_receipt", "idx_ir_processed", "index idx_ir_processed (processed_at)");
+        jdbcTemplate.execute("create table if not exists daily_status_rollup ("
+                + "rollup_day date not null, status varchar(32) not null, entered_count bigint not null, "
+                + "left_count bigint not null, recovery_seconds bigint not null, recovery_count bigint not null, "
+                + "primary key (rollup_day, status)) engine=InnoDB default charset=utf8mb4 collate=utf8mb4_unicode_ci");
+    }
+
+    private void addColumn(String table, String column, String definition) {
+        if (!hasColumn(table, column)) {
+            jdbcTemplate.execute("alter table `" + table + "` add column " + column + " " + definition);
+        }
+    }
+
+    private void addIndex(String table, String index, String definition) {
+        if (!hasIndex(table, index)) {
+            jdbcTemplate.execute("alter table `" + table + "` add " + definition);
+        }
+    }
+
+    private void dropIndex(String table, String index) {
+        if (hasIndex(table, index)) {
+            jdbcTemplate.execute("alter table `" + table + "` drop index " + index);
+        }
+    }
+
+    /**
+     * Bricht die Migration ab, wenn ein Benutzername mehrfach vergeben ist
+     * Die Registrierung hat Benutzernamen bisher nicht geprüft; welcher Account bleibt, muss von Hand entschieden werden
+     */
+    private void checkUsernames() {
+        if (hasIndex("user", "uk_user_username")) {
+            return;
+        }
+        List<Map<String, Object>> duplicates = jdbcTemplate.queryForList("select username, group_concat(id order by id) as ids "
+                + "from `user` where username is not null group by username having count(*) > 1");
+        if (!duplicates.isEmpty()) {
+            String found = duplicates.stream()
+                    .map(row -> "'" + row.get("username") + "' (user ids " + row.get("ids") + ")")
+                    .collect(Collectors.joining(", "));
+            throw new IllegalStateException("Duplicate usernames: " + found
+                    + "; rename or remove these users before migrating");
+        }
+    }
+
+    /**
+     * Lässt je Geisternetz nur die älteste offene Umverteilungsanfrage offen und lehnt die übrigen ab
+     * Die frühere Prüfung beim Anlegen war nicht atomar und konnte mehrere offene Anfragen durchlassen,
+     * uk_rr_pending_ghost_net erlaubt aber nur eine
+     */
+    private void resolvePendingRequests() {
+        if (hasIndex("reassignment_request", "uk_rr_pending_ghost_net")) {
+            return;
+        }
+        boolean text = hasTextStatus("reassignment_request");
+        String pending = text ? "upper(trim(status)) in ('PENDING', '1')" : "status = 1";
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("select id, ghost_net_id from reassignment_request "
+                + "where " + pending + " and ghost_net_id in (select ghost_net_id from reassignment_request "
+                + "where " + pending + " group by ghost_net_id having count(*) > 1) order by ghost_net_id, created_at, id");
+        List<Object> rejected = new ArrayList<>();
+        Object kept = null;
+        for (Map<String, Object> row : rows) {
+            if (Objects.equals(kept, row.get("ghost_net_id"))) {
+                rejected.add(row.get("id"));
+            }
+            kept = row.get("ghost_net_id");
+        }
+        if (rejected.isEmpty()) {
+            return;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(rejected.size(), "?"));
+        List<Object> arguments = new ArrayList<>();
+        arguments.add(text ? "REJECTED" : REQUEST_CODES.get("REJECTED"));
+        arguments.addAll(rejected);
+        jdbcTemplate.update("update reassignment_request set status = ? where id in (" + placeholders + ")", arguments.toArray());
+        logger.warn("Rejected {} duplicate pending reassignment requests, kept the oldest per ghost net: {}", rejected.size(), rejected);
+    }
+
+    /**
+     * Bricht die Migration ab, wenn ein Textstatus weder Name noch Code ist
+     * Solche Zeilen würden beim Umstellen sonst stillschweigend ihren Status verlieren und müssen vorher
+     * von Hand bereinigt werden
+     * @param table Tabelle, deren Status noch umgestellt wird
+     * @param codes Code je Name
+     */
+    private void checkStatuses(String table, Map<String, Integer> codes) {
+        if (!hasTextStatus(table)) {
+            return;
+        }
+        String known = codes.entrySet().stream()
+                .map(entry -> "'" + entry.getKey() + "', '" + entry.getValue() + "'")
+                .collect(Collectors.joining(", "));
+        List<Map<String, Object>> unknown = jdbcTemplate.queryForList("select status, count(*) as row_count from `" + table
+                + "` where status is not null and upper(trim(status)) not in (" + known + ") group by status");
+        if (!unknown.isEmpty()) {
+            String found = unknown.stream()
+                    .map(row -> "'" + row.get("status") + "' (" + row.get("row_count") + " rows)")
+                    .collect(Collectors.joining(", "));
+            throw new IllegalStateException("Unknown status values in " + table + ": " + found
+                    + "; correct or remove these rows before migrating");
+        }
+    }
+
+    /**
+     * CASE-Ausdruck, der Namen (und bereits umgesetzte Codes nach einem Abbruch) auf Codes abbildet
+     * @param codes Code je Name
+     * @return SQL-Ausdruck, andere Werte wurden vorher von checkStatuses abgewiesen
+     */
+    private static String toCode(Map<String, Integer> codes) {
+        StringBuilder sql = new StringBuilder("case upper(trim(status))");
+        codes.forEach((name, code) -> sql.append(" when '").append(name).append("' then '").append(code).append("'")
+                .append(" when '").append(code).append("' then '").append(code).append("'"));
+        return sql.append(" end").toString();
+    }
+
+    private static Map<String, Integer> codes(String... names) {
+        Map<String, Integer> codes = new LinkedHashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            codes.put(names[i], i + 1);
+        }
+        return codes;
+    }
+
+    private boolean hasTextStatus(String table) {
+        List<String> types = jdbcTemplate.queryForList("select data_type from information_schema.columns "
+                + "where table_schema = database() and table_name = ? and column_name = 'status'", String.class, table);
+        return !types.isEmpty() && (types.get(0).equalsIgnoreCase("varchar") || types.get(0).equalsIgnoreCase("char"));
+    }
+
+    private boolean hasColumn(String table, String column) {
+        return count("select count(*) from information_schema.columns "
+                + "where table_schema = database() and table_name = ? and column_name = ?", table, column);
+    }
+
+    private boolean hasIndex(String table, String index) {
+        return count("select count(*) from information_schema.statistics "
+                + "where table_schema = database() and table_name = ? and index_name = ?", table, index);
+    }
+
+    private boolean hasConstraint(String table, String constraint) {
+        return count("select count(*) from information_schema.table_constraints "
+                + "where table_schema = database() and table_name = ? and constraint_name = ?", table, constraint);
+    }
+
+    private boolean count(String sql, String table, String name) {
+        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, table, name);
+        return count != null && count > 0;
+    }
+}
@@ -0,0 +1,65 @@
+-- Ausgangsschema laut _ghostnet_db-dump.sql
+-- Bestehende Datenbanken in diesem Stand werden von Flyway als Version 1 übernommen (baseline-on-migrate),
+-- das Skript läuft nur auf leeren Datenbanken
+
+CREATE TABLE `user` (
+  `id` bigint NOT NULL,
+  `username` varchar(255) DEFAULT NULL,
+  `password` varchar(255) DEFAULT NULL,
+  `name` varchar(255) DEFAULT NULL,
+  `phone` varchar(255) DEFAULT NULL,
+  PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE `user_seq` (
+  `next_val` bigint DEFAULT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+INSERT INTO `user_seq` VALUES (1);
+
+CREATE TABLE `ghost_net` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `latitude` double DEFAULT NULL,
+  `longitude` double DEFAULT NULL,
+  `estimated_size` varchar(255) DEFAULT NULL,
+  `status` varchar(255) DEFAULT NULL,
+  `reporter_name` varchar(255) DEFAULT NULL,
+  `reporter_phone` varchar(50) DEFAULT NULL,
+  `reporter_id` bigint DEFAULT NULL,
+  `salvor_user_id` bigint DEFAULT NULL,
+  `missing_reporter_name` varchar(255) DEFAULT NULL,
+  `missing_reporter_phone` varchar(255) DEFAULT NULL,
+  `created_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  `updated_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  `reported_at` datetime(6) DEFAULT NULL,
+  `reported_by` varchar(255) DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  KEY `idx_gn_status` (`status`),
+  KEY `idx_gn_salvor` (`salvor_user_id`),
+  KEY `idx_gn_reporter` (`reporter_id`),
+  CONSTRAINT `fk_ghost_net_salvor` FOREIGN KEY (`salvor_user_id`) REFERENCES `user` (`id`) ON DELETE SET NULL ON UPDATE CASCADE,
+  CONSTRAINT `fk_gn_reporter` FOREIGN KEY (`reporter_id`) REFERENCES `user` (`id`) ON DELETE SET NULL ON UPDATE CASCADE,
+  CONSTRAINT `chk_missing_contact` CHECK (`status` <> 'VERSCHOLLEN' OR (`missing_reporter_name` IS NOT NULL AND `missing_reporter_phone` IS NOT NULL))
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE `ghost_net_seq` (
+  `next_val` bigint DEFAULT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+INSERT INTO `ghost_net_seq` VALUES (1);
+
+CREATE TABLE `reassignment_request` (
+  `id` bigint NOT NULL,
+  `created_at` datetime(6) DEFAULT NULL,
+  `current_salvor_id` bigint DEFAULT NULL,
+  `ghost_net_id` bigint DEFAULT NULL,
+  `requester_id` bigint DEFAULT NULL,
+  `status` varchar(255) DEFAULT NULL,
+  PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE `reassignment_request_seq` (
+  `next_val` bigint DEFAULT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+INSERT INTO `reassignment_request_seq` VALUES (1);
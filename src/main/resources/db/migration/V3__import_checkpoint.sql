@@ -0,0 +1,12 @@
+-- Fortschritt des Massenimports, wird in derselben Transaktion wie die importierten Netze geschrieben
+CREATE TABLE `import_checkpoint` (
+  `import_file` varchar(500) NOT NULL,
+  `file_size` bigint NOT NULL,
+  `byte_offset` bigint NOT NULL,
+  `skip_rows` int NOT NULL,
+  `line_count` bigint NOT NULL,
+  `imported` bigint NOT NULL,
+  `rejected` bigint NOT NULL,
+  `updated_at` datetime(6) NOT NULL,
+  PRIMARY KEY (`import_file`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
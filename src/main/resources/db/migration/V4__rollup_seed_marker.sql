@@ -0,0 +1,10 @@
+-- Markiert, dass daily_status_rollup aus dem Bestand befüllt wurde. Vorher verbuchte Differenzen würden doppelt zählen,
+-- denn die Befüllung zählt jedes vorhandene Netz. Vorhandene Aggregate stammen aus einer früheren Befüllung
+CREATE TABLE `daily_status_rollup_seed` (
+  `id` tinyint NOT NULL,
+  `seeded_at` datetime(6) NOT NULL,
+  PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+INSERT INTO `daily_status_rollup_seed` (`id`, `seeded_at`)
+SELECT 1, NOW(6) FROM DUAL WHERE EXISTS (SELECT 1 FROM `daily_status_rollup`);
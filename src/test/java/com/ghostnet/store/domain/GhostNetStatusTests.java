@@ -0,0 +1,53 @@
+package com.ghostnet.store.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GhostNetStatusTests {
+
+	@Test
+	void codesRoundTrip() {
+		for (GhostNetStatus status : GhostNetStatus.values()) {
+			assertEquals(status, GhostNetStatus.fromCode(status.getCode()));
+		}
+		for (ReassignmentStatus status : ReassignmentStatus.values()) {
+			assertEquals(status, ReassignmentStatus.fromCode(status.getCode()));
+		}
+		assertEquals(ReassignmentStatus.PENDING.getCode(), ReassignmentStatus.PENDING_CODE);
+		assertThrows(IllegalArgumentException.class, () -> GhostNetStatus.fromCode(0));
+		assertThrows(IllegalArgumentException.class, () -> ReassignmentStatus.fromCode(9));
+	}
+
+	@Test
+	void sourcesMatchTransitionTable() {
+		for (GhostNetStatus target : GhostNetStatus.values()) {
+			EnumSet<GhostNetStatus> expected = EnumSet.noneOf(GhostNetStatus.class);
+			for (GhostNetStatus source : GhostNetStatus.values()) {
+				if (source.canTransitionTo(target)) {
+					expected.add(source);
+				}
+			}
+			assertEquals(expected, target.sources());
+		}
+		assertTrue(GhostNetStatus.GEMELDET.canTransitionTo(GhostNetStatus.BERGUNG_BEVORSTEHEND));
+		assertTrue(GhostNetStatus.VERSCHOLLEN.canTransitionTo(GhostNetStatus.GEBORGEN));
+		assertFalse(GhostNetStatus.GEBORGEN.canTransitionTo(GhostNetStatus.VERSCHOLLEN));
+		assertFalse(GhostNetStatus.BERGUNG_BEVORSTEHEND.canTransitionTo(GhostNetStatus.GEMELDET));
+		assertFalse(ReassignmentStatus.ACCEPTED.canTransitionTo(ReassignmentStatus.REJECTED));
+	}
+
+	@Test
+	void parseIgnoresCaseAndRejectsUnknownNames() {
+		assertEquals(GhostNetStatus.GEBORGEN, GhostNetStatus.parse(" geborgen "));
+		assertNull(GhostNetStatus.parse("SALVAGED"));
+		assertNull(GhostNetStatus.parse(""));
+		assertNull(GhostNetStatus.parse(null));
+	}
+}
@@ -0,0 +1,54 @@
+package com.ghostnet.store.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpatialKeyTests {
+
+	@Test
+	void coarseCellIndexIsPrefixOfFineKey() {
+		Random random = new Random(42);
+		for (int i = 0; i < 1000; i++) {
+			long x = random.nextInt(1 << SpatialKey.ORDER);
+			long y = random.nextInt(1 << SpatialKey.ORDER);
+			long key = SpatialKey.hilbertIndex(SpatialKey.ORDER, x, y);
+			for (int level = 1; level < SpatialKey.ORDER; level++) {
+				int shift = SpatialKey.ORDER - level;
+				assertEquals(key >> (2 * shift), SpatialKey.hilbertIndex(level, x >> shift, y >> shift));
+			}
+		}
+	}
+
+	@Test
+	void coveringRangesContainEveryPointInBox() {
+		Random random = new Random(7);
+		double[][] boxes = {{53.0, 3.0, 56.0, 9.0}, {-10.0, 170.0, 10.0, -170.0}, {54.1, 11.2, 54.2, 11.3}};
+		for (double[] box : boxes) {
+			List<long[]> ranges = SpatialKey.coveringRanges(box[0], box[1], box[2], box[3], 8);
+			assertTrue(ranges.size() <= 8);
+			for (int i = 0; i < 500; i++) {
+				double lat = box[0] + random.nextDouble() * (box[2] - box[0]);
+				double lonSpan = box[1] <= box[3] ? box[3] - box[1] : 360.0 - box[1] + box[3];
+				double lon = box[1] + random.nextDouble() * lonSpan;
+				if (lon > 180.0) {
+					lon -= 360.0;
+				}
+				long key = SpatialKey.encode(lat, lon);
+				assertTrue(ranges.stream().anyMatch(r -> key >= r[0] && key <= r[1]));
+			}
+		}
+	}
+
+	@Test
+	void missingCoordinatesHaveNoKey() {
+		assertNull(SpatialKey.of(null, 8.0));
+		assertNull(SpatialKey.of(54.0, null));
+	}
+
+}
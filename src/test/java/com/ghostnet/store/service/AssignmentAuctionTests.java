@@ -0,0 +1,95 @@
+package com.ghostnet.store.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AssignmentAuctionTests {
+
+	@Test
+	void smallInstancesMatchBruteForce() {
+		Random random = new Random(3);
+		for (int round = 0; round < 500; round++) {
+			int nets = 1 + random.nextInt(6);
+			int salvors = 1 + random.nextInt(3);
+			int[] capacities = new int[salvors];
+			for (int j = 0; j < salvors; j++) {
+				capacities[j] = random.nextInt(4);
+			}
+			double[] costs = new double[nets * salvors];
+			for (int i = 0; i < costs.length; i++) {
+				costs[i] = random.nextInt(100);
+			}
+			double unassignedCost = 50 + random.nextInt(100);
+
+			int[] result = AssignmentAuction.solve(costs, nets, capacities, unassignedCost);
+			assertFeasible(result, salvors, capacities);
+			assertEquals(bruteForce(costs, nets, capacities.clone(), unassignedCost, 0),
+				total(costs, salvors, result, unassignedCost), 1e-9, "round " + round);
+		}
+	}
+
+	@Test
+	void largeInstanceRespectsCapacities() {
+		Random random = new Random(9);
+		int nets = 2000;
+		int salvors = 100;
+		int[] capacities = new int[salvors];
+		for (int j = 0; j < salvors; j++) {
+			capacities[j] = 10 + random.nextInt(20);
+		}
+		double[] costs = new double[nets * salvors];
+		for (int i = 0; i < costs.length; i++) {
+			costs[i] = random.nextInt(1_000_000);
+		}
+
+		int[] result = AssignmentAuction.solve(costs, nets, capacities, 1_000_001);
+		assertFeasible(result, salvors, capacities);
+		int assigned = 0;
+		for (int salvor : result) {
+			assigned += salvor == AssignmentAuction.UNASSIGNED ? 0 : 1;
+		}
+		// Die Kapazität reicht für alle Netze, jede Zuordnung ist günstiger als keine
+		assertEquals(nets, assigned);
+	}
+
+	private static void assertFeasible(int[] result, int salvors, int[] capacities) {
+		int[] load = new int[salvors];
+		for (int salvor : result) {
+			if (salvor != AssignmentAuction.UNASSIGNED) {
+				load[salvor]++;
+			}
+		}
+		for (int j = 0; j < salvors; j++) {
+			assertTrue(load[j] <= capacities[j]);
+		}
+	}
+
+	private static double total(double[] costs, int salvors, int[] result, double unassignedCost) {
+		double total = 0;
+		for (int i = 0; i < result.length; i++) {
+			total += result[i] == AssignmentAuction.UNASSIGNED ? unassignedCost : costs[i * salvors + result[i]];
+		}
+		return total;
+	}
+
+	/** Günstigste Zuordnung über alle Möglichkeiten ab Netz net */
+	private static double bruteForce(double[] costs, int nets, int[] capacities, double unassignedCost, int net) {
+		if (net == nets) {
+			return 0;
+		}
+		double best = unassignedCost + bruteForce(costs, nets, capacities, unassignedCost, net + 1);
+		for (int j = 0; j < capacities.length; j++) {
+			if (capacities[j] > 0) {
+				capacities[j]--;
+				best = Math.min(best, costs[net * capacities.length + j]
+					+ bruteForce(costs, nets, capacities, unassignedCost, net + 1));
+				capacities[j]++;
+			}
+		}
+		return best;
+	}
+}
@@ -0,0 +1,139 @@
+package com.ghostnet.store.service;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.ghostnet.store.domain.GhostNet;
+import com.ghostnet.store.domain.ImportCheckpoint;
+import com.ghostnet.store.repository.GhostNetRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GhostNetBulkImportTests {
+
+	@TempDir
+	Path dir;
+
+	/** Gespeicherte Beschreibungen in Speicherreihenfolge */
+	private final List<String> saved = new ArrayList<>();
+
+	/** Checkpoint wie in import_checkpoint gespeichert */
+	private final AtomicReference<ImportCheckpoint> checkpoint = new AtomicReference<>();
+
+	/** Nummer des saveAll-Aufrufs, der scheitert (0 = keiner) */
+	private final AtomicInteger failingSave = new AtomicInteger();
+
+	private final AtomicInteger saves = new AtomicInteger();
+
+	private GhostNetRepository ghostNetRepository;
+
+	private EntityManager entityManager;
+
+	@BeforeEach
+	void setUp() {
+		ghostNetRepository = mock(GhostNetRepository.class);
+		when(ghostNetRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+			if (saves.incrementAndGet() == failingSave.get()) {
+				throw new QueryTimeoutException("Connection lost");
+			}
+			Iterable<GhostNet> ghostNets = invocation.getArgument(0);
+			ghostNets.forEach(ghostNet -> saved.add(ghostNet.getDescription()));
+			return ghostNets;
+		});
+		entityManager = mock(EntityManager.class);
+		when(entityManager.find(eq(ImportCheckpoint.class), any())).thenAnswer(invocation -> checkpoint.get());
+		when(entityManager.merge(any(ImportCheckpoint.class))).thenAnswer(invocation -> {
+			checkpoint.set(invocation.getArgument(0));
+			return invocation.getArgument(0);
+		});
+		Query delete = mock(Query.class);
+		when(delete.setParameter(anyString(), any())).thenReturn(delete);
+		when(delete.executeUpdate()).thenAnswer(invocation -> {
+			checkpoint.set(null);
+			return 1;
+		});
+		when(entityManager.createQuery(anyString())).thenReturn(delete);
+	}
+
+	@Test
+	void quotedNewlinesAcrossChunkBoundariesStayInOneRecord() throws Exception {
+		Path file = write("latitude,longitude,status,description\r\n"
+			+ "54.1,10.1,GEMELDET,\"erste Zeile\r\nzweite Zeile, mit Komma\"\r\n"
+			+ "54.2,10.2,GEMELDET,\"Boje \"\"Nord\"\"\nam Riff\n\nvor Anker\"\r\n"
+			+ "91,10.3,GEMELDET,ungültig\r\n"
+			+ "54.4,10.4,GEMELDET,\"Ende\"");
+
+		// Jeder Abschnitt endet frühestens nach 8 Bytes, also meist innerhalb eines Feldes in Anführungszeichen
+		bulkImport(file, 8, 2).run(null);
+
+		assertEquals(List.of("erste Zeile\r\nzweite Zeile, mit Komma", "Boje \"Nord\"\nam Riff\n\nvor Anker", "Ende"), saved);
+		assertNull(checkpoint.get());
+		List<String> rejects = Files.readAllLines(dir.resolve("nets.csv.rejects.csv"));
+		assertEquals(2, rejects.size());
+		assertEquals(8, Integer.parseInt(rejects.get(1).substring(0, rejects.get(1).indexOf(','))));
+	}
+
+	@Test
+	void resumeWithSmallerChunkSizeImportsEachRowOnce() throws Exception {
+		StringBuilder csv = new StringBuilder("latitude,longitude,description\n");
+		List<String> descriptions = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			descriptions.add("net " + i);
+			csv.append("54.").append(i).append(",10.").append(i).append(",\"net ").append(i).append("\"\n");
+		}
+		Path file = write(csv.toString());
+
+		// Der erste Lauf bricht beim zweiten Commit ab, der Checkpoint steht mitten im einzigen Abschnitt
+		failingSave.set(2);
+		bulkImport(file, 1024 * 1024, 1).run(null);
+		assertEquals(descriptions.subList(0, 3), saved);
+		assertNotNull(checkpoint.get());
+		assertEquals(3, checkpoint.get().getSkipRows());
+
+		failingSave.set(0);
+		bulkImport(file, 1, 1).run(null);
+
+		assertEquals(descriptions, saved);
+		assertNull(checkpoint.get());
+	}
+
+	private GhostNetBulkImport bulkImport(Path file, long chunkSize, int parallelism) {
+		GhostNetBulkImport bulkImport = new GhostNetBulkImport(ghostNetRepository, mock(AnalyticsService.class),
+			mock(ApplicationEventPublisher.class), JsonMapper.builder().findAndAddModules().build(),
+			mock(PlatformTransactionManager.class), mock(ConfigurableApplicationContext.class),
+			file, "auto", DataSize.ofBytes(chunkSize), parallelism, 3, false);
+		ReflectionTestUtils.setField(bulkImport, "entityManager", entityManager);
+		return bulkImport;
+	}
+
+	private Path write(String content) throws Exception {
+		Path file = dir.resolve("nets.csv");
+		Files.writeString(file, content, StandardCharsets.UTF_8);
+		return file;
+	}
+}
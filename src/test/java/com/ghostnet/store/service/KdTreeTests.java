@@ -0,0 +1,66 @@
+package com.ghostnet.store.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class KdTreeTests {
+
+	@Test
+	void nearestMatchesBruteForce() {
+		Random random = new Random(11);
+		int n = 20_000;
+		double[][] positions = new double[n][];
+		for (int i = 0; i < n; i++) {
+			// Ein Teil der Netze teilt sich dieselbe Position, einige liegen an der Datumsgrenze
+			positions[i] = i % 10 == 0 ? new double[] {54.0, 10.0}
+				: new double[] {random.nextDouble() * 180 - 90, i % 7 == 0 ? 179.9 + random.nextDouble() * 0.1 : random.nextDouble() * 360 - 180};
+		}
+		long[] ids = new long[n];
+		double[] coordinates = new double[n * 3];
+		for (int i = 0; i < n; i++) {
+			ids[i] = i;
+			KdTree.toUnitVector(positions[i][0], positions[i][1], coordinates, i * 3);
+		}
+		KdTree tree = new KdTree(ids, coordinates);
+
+		for (int q = 0; q < 200; q++) {
+			double lat = random.nextDouble() * 180 - 90;
+			double lon = q % 5 == 0 ? -179.95 : random.nextDouble() * 360 - 180;
+			double[] query = new double[3];
+			KdTree.toUnitVector(lat, lon, query, 0);
+
+			KdTree.Nearest result = new KdTree.Nearest(10);
+			tree.nearest(query, result, id -> id % 3 == 0);
+			double[] distances = new double[result.size()];
+			long[] found = result.drainSorted(distances);
+
+			double[] meters = new double[n];
+			for (int i = 0; i < n; i++) {
+				meters[i] = haversine(lat, lon, positions[i][0], positions[i][1]);
+			}
+			double[] expectedMeters = IntStream.range(0, n)
+				.filter(i -> i % 3 != 0)
+				.mapToDouble(i -> meters[i])
+				.sorted()
+				.limit(10)
+				.toArray();
+			assertEquals(10, found.length);
+			double[] foundMeters = Arrays.stream(distances).map(KdTree::toMeters).toArray();
+			assertArrayEquals(expectedMeters, foundMeters, 1e-3);
+		}
+	}
+
+	private static double haversine(double lat1, double lon1, double lat2, double lon2) {
+		double dLat = Math.toRadians(lat2 - lat1);
+		double dLon = Math.toRadians(lon2 - lon1);
+		double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+			+ Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+		return 2 * KdTree.EARTH_RADIUS * Math.asin(Math.sqrt(Math.min(1, a)));
+	}
+}
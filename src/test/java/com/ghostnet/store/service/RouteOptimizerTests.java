@@ -0,0 +1,92 @@
+package com.ghostnet.store.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteOptimizerTests {
+
+	private final RouteOptimizer optimizer = new RouteOptimizer(4, 32, Duration.ofSeconds(2), 2000);
+
+	@Test
+	void smallRouteIsOptimal() {
+		Random random = new Random(5);
+		for (int round = 0; round < 20; round++) {
+			int n = 7;
+			double[] distances = randomDistances(random, n);
+			RouteOptimizer.Tour tour = optimizer.optimize(distances, n);
+			assertEquals(bruteForce(distances, n), tour.distanceMeters(), 1e-3);
+		}
+	}
+
+	@Test
+	void largeRouteIsPermutationAndShorterThanNaiveOrder() {
+		int n = 300;
+		double[] distances = randomDistances(new Random(17), n);
+		RouteOptimizer.Tour tour = optimizer.optimize(distances, n);
+
+		int[] sorted = tour.order().clone();
+		Arrays.sort(sorted);
+		assertArrayEquals(IntStream.range(0, n).toArray(), sorted);
+		assertEquals(RouteOptimizer.length(distances, n + 1, RouteOptimizer.toPath(tour.order())), tour.distanceMeters(), 1e-3);
+
+		double naive = RouteOptimizer.length(distances, n + 1, RouteOptimizer.toPath(IntStream.range(0, n).toArray()));
+		assertTrue(tour.distanceMeters() < naive / 5, tour.distanceMeters() + " vs " + naive);
+	}
+
+	@Test
+	void emptyAndSingleRoutes() {
+		assertEquals(0, optimizer.optimize(randomDistances(new Random(1), 0), 0).order().length);
+		assertArrayEquals(new int[] {0}, optimizer.optimize(randomDistances(new Random(1), 1), 1).order());
+	}
+
+	private double[] randomDistances(Random random, int n) {
+		double[] latitudes = new double[n];
+		double[] longitudes = new double[n];
+		for (int i = 0; i < n; i++) {
+			latitudes[i] = 53 + random.nextDouble() * 3;
+			longitudes[i] = 4 + random.nextDouble() * 10;
+		}
+		return optimizer.distances(54, 9, latitudes, longitudes);
+	}
+
+	/** Kürzeste Route über alle Reihenfolgen */
+	private static double bruteForce(double[] distances, int n) {
+		int[] order = IntStream.range(0, n).toArray();
+		double best = Double.POSITIVE_INFINITY;
+		do {
+			best = Math.min(best, RouteOptimizer.length(distances, n + 1, RouteOptimizer.toPath(order)));
+		} while (nextPermutation(order));
+		return best;
+	}
+
+	private static boolean nextPermutation(int[] a) {
+		int i = a.length - 2;
+		while (i >= 0 && a[i] >= a[i + 1]) {
+			i--;
+		}
+		if (i < 0) {
+			return false;
+		}
+		int j = a.length - 1;
+		while (a[j] <= a[i]) {
+			j--;
+		}
+		int t = a[i];
+		a[i] = a[j];
+		a[j] = t;
+		for (int l = i + 1, r = a.length - 1; l < r; l++, r--) {
+			t = a[l];
+			a[l] = a[r];
+			a[r] = t;
+		}
+		return true;
+	}
+}
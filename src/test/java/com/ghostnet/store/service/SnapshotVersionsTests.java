@@ -0,0 +1,92 @@
+package com.ghostnet.store.service;
+
+import com.ghostnet.store.domain.GhostNet;
+import com.ghostnet.store.domain.GhostNetStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotVersionsTests {
+
+	private final SnapshotVersions versions = new SnapshotVersions();
+
+	@Test
+	void olderSnapshotArrivingLateIsIgnored() {
+		versions.loaded(snapshot(GhostNetStatus.GEMELDET, 0L));
+
+		// Zuweisung (Version 1) und Bergung (Version 2) werden vertauscht zugestellt
+		assertTrue(versions.accept(changed(GhostNetStatus.GEBORGEN, 2L)));
+		assertFalse(versions.accept(changed(GhostNetStatus.BERGUNG_BEVORSTEHEND, 1L)));
+		assertTrue(versions.accept(changed(GhostNetStatus.GEBORGEN, 2L)));
+	}
+
+	@Test
+	void snapshotOlderThanLoadedStateIsIgnored() {
+		versions.loaded(snapshot(GhostNetStatus.BERGUNG_BEVORSTEHEND, 3L));
+
+		assertFalse(versions.accept(changed(GhostNetStatus.GEMELDET, 2L)));
+		assertTrue(versions.accept(changed(GhostNetStatus.GEBORGEN, 4L)));
+	}
+
+	@Test
+	void deletedNetIsNotRestoredByLateUpdate() {
+		GhostNetSnapshot reported = snapshot(GhostNetStatus.GEMELDET, 1L);
+		assertTrue(versions.accept(new GhostNetChangedEvent(GhostNetChangedEvent.Type.DELETED, reported, null)));
+
+		assertFalse(versions.accept(changed(GhostNetStatus.GEMELDET, 1L)));
+	}
+
+	@Test
+	void releasedNetIsRememberedOnlyAsBoundedMarker() {
+		SnapshotVersions bounded = new SnapshotVersions(Duration.ofMinutes(1), 2);
+		for (long id = 1; id <= 5; id++) {
+			bounded.accept(changed(id, GhostNetStatus.GEBORGEN, 2L));
+			// Der Index führt geborgene Netze nicht
+			bounded.release(id);
+		}
+
+		assertEquals(2, bounded.size());
+		assertFalse(bounded.accept(changed(5L, GhostNetStatus.BERGUNG_BEVORSTEHEND, 1L)));
+		assertTrue(bounded.accept(changed(1L, GhostNetStatus.BERGUNG_BEVORSTEHEND, 1L)));
+	}
+
+	@Test
+	void deleteMarkersExpire() {
+		SnapshotVersions expiring = new SnapshotVersions(Duration.ZERO, 100);
+		expiring.accept(changed(GhostNetStatus.GEMELDET, 1L));
+		expiring.accept(new GhostNetChangedEvent(GhostNetChangedEvent.Type.DELETED, snapshot(GhostNetStatus.GEMELDET, 1L), null));
+
+		assertEquals(0, expiring.size());
+	}
+
+	@Test
+	void snapshotWithoutVersionIsApplied() {
+		versions.loaded(snapshot(GhostNetStatus.GEMELDET, 5L));
+
+		assertTrue(versions.accept(changed(GhostNetStatus.VERSCHOLLEN, null)));
+	}
+
+	private static GhostNetChangedEvent changed(GhostNetStatus status, Long version) {
+		return changed(42L, status, version);
+	}
+
+	private static GhostNetChangedEvent changed(Long id, GhostNetStatus status, Long version) {
+		return new GhostNetChangedEvent(GhostNetChangedEvent.Type.ASSIGNED, null, snapshot(id, status, version));
+	}
+
+	private static GhostNetSnapshot snapshot(GhostNetStatus status, Long version) {
+		return snapshot(42L, status, version);
+	}
+
+	private static GhostNetSnapshot snapshot(Long id, GhostNetStatus status, Long version) {
+		GhostNet ghostNet = new GhostNet();
+		ghostNet.setId(id);
+		ghostNet.setStatus(status);
+		ghostNet.setVersion(version);
+		return GhostNetSnapshot.of(ghostNet);
+	}
+}
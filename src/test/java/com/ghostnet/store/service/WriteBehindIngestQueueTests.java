@@ -0,0 +1,212 @@
+package com.ghostnet.store.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.ghostnet.store.domain.GhostNet;
+import com.ghostnet.store.domain.GhostNetStatus;
+import com.ghostnet.store.domain.IngestReceipt;
+import com.ghostnet.store.repository.GhostNetRepository;
+import com.ghostnet.store.repository.IngestReceiptRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WriteBehindIngestQueueTests {
+
+	@TempDir
+	Path dir;
+
+	private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+	/** Quittungen wie von der Datenbank gespeichert */
+	private final Map<String, IngestReceipt> receipts = new ConcurrentHashMap<>();
+
+	/** Geisternetze, deren Insert erfolgreich war */
+	private final List<GhostNet> saved = new CopyOnWriteArrayList<>();
+
+	private final AtomicLong ids = new AtomicLong(100);
+
+	/** Anzahl der folgenden saveAll-Aufrufe, die mit einem Sperr-Timeout scheitern */
+	private final AtomicInteger lockTimeouts = new AtomicInteger();
+
+	private Path journalPath;
+
+	private WriteBehindIngestQueue queue;
+
+	@BeforeEach
+	void setUp() {
+		journalPath = dir.resolve("ingest-journal.log");
+		GhostNetRepository ghostNetRepository = mock(GhostNetRepository.class);
+		// Wie Spring Data: mit Version gilt das Netz als bestehend (merge), eine zu lange Beschreibung scheitert am Insert
+		when(ghostNetRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+			if (lockTimeouts.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+				throw new CannotAcquireLockException("Lock wait timeout exceeded");
+			}
+			Iterable<GhostNet> ghostNets = invocation.getArgument(0);
+			List<GhostNet> batch = new ArrayList<>();
+			for (GhostNet ghostNet : ghostNets) {
+				if (ghostNet.getVersion() != null) {
+					throw new ObjectOptimisticLockingFailureException(GhostNet.class, ghostNet.getId());
+				}
+				if (ghostNet.getDescription() != null && ghostNet.getDescription().length() > 255) {
+					throw new DataIntegrityViolationException("Data too long for column 'description'");
+				}
+				ghostNet.setId(ids.incrementAndGet());
+				ghostNet.setVersion(0L);
+				batch.add(ghostNet);
+			}
+			saved.addAll(batch);
+			return batch;
+		});
+		IngestReceiptRepository receiptRepository = mock(IngestReceiptRepository.class);
+		when(receiptRepository.findById(any())).thenAnswer(invocation -> Optional.ofNullable(receipts.get(invocation.<String>getArgument(0))));
+		when(receiptRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+			List<IngestReceipt> found = new ArrayList<>();
+			invocation.<Iterable<String>>getArgument(0).forEach(id -> Optional.ofNullable(receipts.get(id)).ifPresent(found::add));
+			return found;
+		});
+		EntityManager entityManager = mock(EntityManager.class);
+		doAnswer(invocation -> {
+			IngestReceipt receipt = invocation.getArgument(0);
+			receipts.put(receipt.getTrackingId(), receipt);
+			return null;
+		}).when(entityManager).persist(any(IngestReceipt.class));
+
+		queue = new WriteBehindIngestQueue(ghostNetRepository, receiptRepository, mock(ApplicationEventPublisher.class),
+				objectMapper, mock(PlatformTransactionManager.class), true, journalPath, 100, 50, Duration.ofDays(7));
+		ReflectionTestUtils.setField(queue, "entityManager", entityManager);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		queue.shutdown();
+	}
+
+	@Test
+	void failedBatchRetriesEachReportAsNewInsert() throws Exception {
+		GhostNet bad = report();
+		bad.setDescription("x".repeat(300));
+		writeJournal(line("good", report()) + line("bad", bad));
+
+		queue.run(null);
+		awaitProcessed("good", "bad");
+
+		WriteBehindIngestQueue.Receipt good = queue.find("good");
+		assertEquals(WriteBehindIngestQueue.Status.COMMITTED, good.status());
+		assertNotNull(good.ghostNetId());
+		assertEquals(WriteBehindIngestQueue.Status.FAILED, queue.find("bad").status());
+		assertEquals(1, saved.size());
+	}
+
+	@Test
+	void transientFailureRequeuesReportInsteadOfFailingIt() throws Exception {
+		// Batch und Einzelversuch scheitern, der Versuch nach der Wartezeit gelingt
+		lockTimeouts.set(2);
+		queue.run(null);
+		String trackingId = queue.submit(report());
+		awaitProcessed(trackingId);
+		queue.shutdown();
+
+		WriteBehindIngestQueue.Receipt receipt = queue.find(trackingId);
+		assertEquals(WriteBehindIngestQueue.Status.COMMITTED, receipt.status());
+		assertNotNull(receipt.ghostNetId());
+		assertEquals(1, saved.size());
+		assertEquals(1, receipts.size());
+		assertEquals(0, Files.size(journalPath));
+	}
+
+	@Test
+	void replayRequeuesOnlyReportsWithoutReceipt() throws Exception {
+		receipts.put("done", receipt("done", 7L));
+		// Die letzte Zeile wurde beim Absturz nur zur Hälfte geschrieben
+		writeJournal(line("done", report()) + line("open", report()) + "{\"trackingId\":\"torn\",\"rep");
+
+		queue.run(null);
+		awaitProcessed("open");
+		queue.shutdown();
+
+		assertEquals(1, saved.size());
+		assertEquals(GhostNetStatus.GEMELDET, saved.get(0).getStatus());
+		assertEquals(7L, queue.find("done").ghostNetId());
+		assertEquals(WriteBehindIngestQueue.Status.UNKNOWN, queue.find("torn").status());
+		assertEquals(0, Files.size(journalPath));
+	}
+
+	@Test
+	void submittedReportIsStoredAndJournalCompacted() throws Exception {
+		queue.run(null);
+		String trackingId = queue.submit(report());
+		awaitProcessed(trackingId);
+		queue.shutdown();
+
+		assertEquals(WriteBehindIngestQueue.Status.COMMITTED, queue.find(trackingId).status());
+		assertEquals(0, Files.size(journalPath));
+	}
+
+	private static GhostNet report() {
+		GhostNet ghostNet = new GhostNet();
+		ghostNet.setLatitude(54.3);
+		ghostNet.setLongitude(10.2);
+		ghostNet.setStatus(GhostNetStatus.GEMELDET);
+		ghostNet.setCreatedAt(LocalDateTime.of(2025, 11, 5, 12, 0));
+		return ghostNet;
+	}
+
+	private static IngestReceipt receipt(String trackingId, Long ghostNetId) {
+		IngestReceipt receipt = new IngestReceipt();
+		receipt.setTrackingId(trackingId);
+		receipt.setGhostNetId(ghostNetId);
+		receipt.setProcessedAt(LocalDateTime.now());
+		return receipt;
+	}
+
+	private String line(String trackingId, GhostNet report) throws Exception {
+		return objectMapper.writeValueAsString(Map.of("trackingId", trackingId, "report", report)) + "\n";
+	}
+
+	private void writeJournal(String content) throws Exception {
+		Files.writeString(journalPath, content, StandardCharsets.UTF_8);
+	}
+
+	private void awaitProcessed(String... trackingIds) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+		for (String trackingId : trackingIds) {
+			while (queue.find(trackingId).status() == WriteBehindIngestQueue.Status.QUEUED) {
+				if (System.nanoTime() > deadline) {
+					throw new AssertionError("Report " + trackingId + " was not processed");
+				}
+				Thread.sleep(20);
+			}
+		}
+	}
+}